@@ -14,6 +14,7 @@ import nl.tudelft.bt.model.multigrid.SoluteSpecies;
 import nl.tudelft.bt.model.particlebased.BiomassParticle;
 import nl.tudelft.bt.model.particlebased.BiomassParticleContainer;
 import nl.tudelft.bt.model.reaction.Reaction;
+import nl.tudelft.bt.model.reaction.ReactionKernel;
 import nl.tudelft.bt.model.util.ColorMaps;
 import nl.tudelft.bt.model.util.ExtraMath;
 
@@ -237,6 +238,15 @@ public class BiomassSpecies implements Serializable {
 		 *            position of center of biomass particle
 		 */
 		public void computeGrowthRates(ContinuousCoordinate c) {
+			// compute each reaction once from the compiled reactions
+			// and scatter the rates to the particulates
+			ReactionKernel k = Model.model().getReactionKernel();
+			if (k != null) {
+				MultigridVariable.setCurrentLocation(c);
+				if (k.computeGrowthRates(this, _particulateSp, _growthRates,
+						MultigridVariable.getCurrentVoxel()))
+					return;
+			}
 			// check if the reactions array is initialized. If not,
 			// initialize it
 			if (_biomassSp._reactions == null) {
@@ -14,6 +14,7 @@ import nl.tudelft.bt.model.particlebased.BiomassParticle;
 import nl.tudelft.bt.model.particlebased.BiomassParticleContainer;
 import nl.tudelft.bt.model.particlebased.granule.GranuleBiomassParticleContainer;
 import nl.tudelft.bt.model.reaction.Reaction;
+import nl.tudelft.bt.model.reaction.ReactionKernel;
 import nl.tudelft.bt.model.timeconstraint.TimeStepConstraint;
 import nl.tudelft.bt.model.util.ExtraMath;
 import nl.tudelft.bt.model.util.UnlimitedFloatArray;
@@ -63,6 +64,8 @@ public class Model implements Serializable {
 
 	private boolean _overrideTimeStep;
 
+	private boolean _solveByRelaxation;
+
 	private ArrayList<TimeStepConstraint> _timeStepConstraints;
 
 	// attributes for simulation finishing criterium
@@ -96,8 +99,41 @@ public class Model implements Serializable {
 
 	private ArrayList<Reaction> _reactions;
 
+	// the reactions of all solutes compiled for the solver
+	private ReactionKernel _reactionKernel;
+
+	// temporary variables of the solver, reused between solves
+	private transient SolverWorkspace _solverWorkspace;
+
 	private BoundaryLayer _boundaryLayer;
 
+	// if true, the solute grid is cropped vertically to the biofilm height
+	// plus _croppingMargin
+	private boolean _verticalCropping;
+
+	private float _croppingMargin;
+
+	// the solute solve is skipped, or replaced by a single correction cycle
+	// if _lazySolveCorrection, when the biomass and bulk concentrations
+	// changed by less than this relative tolerance since the last solve (0
+	// to solve at every iteration)
+	private float _lazySolveTolerance;
+
+	private boolean _lazySolveCorrection;
+
+	private int _skippedSolves;
+
+	// how the solutes were updated at the last iteration: true if the solve
+	// was skipped keeping the previous solution, or if it was replaced by a
+	// correction cycle
+	private boolean _lastSolveSkipped;
+
+	private boolean _lastSolveCorrected;
+
+	// time since the last solve, used as time step by the transient modes of
+	// the solver
+	private float _timeSinceLastSolve;
+
 	private float _maxBiofilmHeight;
 
 	private float _finalBiofilmHeight;
@@ -155,6 +191,17 @@ public class Model implements Serializable {
 		_minimumTimeStep = 0;
 		_writeTimedWriters = true;
 		_overrideTimeStep = false;
+		_solveByRelaxation = false;
+		_verticalCropping = false;
+		_croppingMargin = 0;
+		// lazy solve, and the inputs and solutions stored by the last solves
+		_lazySolveTolerance = 0;
+		_lazySolveCorrection = false;
+		_skippedSolves = 0;
+		_timeSinceLastSolve = 0;
+		_lastSolveSkipped = false;
+		_lastSolveCorrected = false;
+		_solverWorkspace = null;
 		_finishIterationTime = Float.POSITIVE_INFINITY;
 		_finishIterationCount = Float.POSITIVE_INFINITY;
 		_maxBiovolume = Float.POSITIVE_INFINITY;
@@ -226,17 +273,40 @@ public class Model implements Serializable {
 	 *             id ((d != 2) && (d != 3)) and if g is not of form 2^n + 1
 	 */
 	public void buildSystem(int d, float s, int g) throws InvalidValueException {
+		buildSystem(d, s, g, g);
+	}
+
+	/**
+	 * Builds the spatial system with a height different from its horizontal
+	 * size, such as a slab. The grid elements are cubic, so the height of the
+	 * system is n times the size of a grid element.
+	 * 
+	 * @param d
+	 *            dimensionality (2D or 3D)
+	 * @param s
+	 *            horizontal system size
+	 * @param g
+	 *            horizontal grid size for solute concentration field
+	 * @param n
+	 *            vertical grid size for solute concentration field
+	 * @throws InvalidValueException
+	 *             id ((d != 2) && (d != 3)) and if the grid is not valid (see
+	 *             MultigridVariable.setGrid)
+	 */
+	public void buildSystem(int d, float s, int g, int n)
+			throws InvalidValueException {
 		if ((d != 2) && (d != 3))
 			throw new InvalidValueException("dimensionality value (" + d
 					+ ") not valid");
 		_dimensionality = d;
-		systemSize = new ContinuousCoordinate(s, s, (d == 3 ? s : 0));
-		referenceSystemSide = s;
 		_systemGridSide = s / g;
 		_numberOfGridNodes = g;
-		_maxBiofilmHeight = s;
+		float h = (n == g ? s : n * _systemGridSide);
+		systemSize = new ContinuousCoordinate(h, s, (d == 3 ? s : 0));
+		referenceSystemSide = s;
+		_maxBiofilmHeight = h;
 		// define the grid resolution
-		MultigridVariable.setGrid(g, g, (d == 3 ? g : 1));
+		MultigridVariable.setGrid(n, g, (d == 3 ? g : 1));
 	}
 
 	/**
@@ -247,8 +317,8 @@ public class Model implements Serializable {
 	 * @param expansionOrder
 	 */
 	public void expandSystemVertically(int expansionOrder) {
-		int newVerticalGridSize = ExtraMath.exp2(MultigridUtils
-				.order(_numberOfGridNodes) + expansionOrder) + 1;
+		int newVerticalGridSize = (_numberOfGridNodes - 1)
+				* ExtraMath.exp2(expansionOrder) + 1;
 		float newVerticalSize = newVerticalGridSize * _systemGridSide;
 		systemSize = new ContinuousCoordinate(newVerticalSize,
 				referenceSystemSide,
@@ -256,6 +326,61 @@ public class Model implements Serializable {
 		// define the grid resolution
 		MultigridVariable.setGrid(newVerticalGridSize, _numberOfGridNodes,
 				(_dimensionality == 3 ? _numberOfGridNodes : 1));
+		// the solver workspace is allocated again for the new grid
+		_solverWorkspace = null;
+	}
+
+	/**
+	 * Crop the solute grid vertically to the biofilm height plus a margin,
+	 * instead of solving the diffusion/reaction PDE's in the whole system. The
+	 * grid height is adapted to the biofilm before each solve, using the
+	 * smallest valid multigrid size, so that the solver does not spend time
+	 * in the liquid above the boundary layer. The margin must be larger than
+	 * the thickness of the boundary layer, since the padding on top of the
+	 * cropped grid is kept at the bulk concentration. Solute and particulate
+	 * grids are then written to disk at the cropped height.
+	 * 
+	 * @param b
+	 *            true to crop the grid, false to use the whole system
+	 * @param margin
+	 *            height above the top of the biofilm kept in the grid
+	 *            (units of length)
+	 */
+	public void setVerticalCropping(boolean b, float margin) {
+		if (margin < 0)
+			throw new InvalidValueException("cropping margin (" + margin
+					+ ") is negative");
+		_verticalCropping = b;
+		_croppingMargin = margin;
+	}
+
+	/**
+	 * Adapt the height of the solute grid to the present biofilm height (or
+	 * restore the whole system if cropping is off). The solute concentrations
+	 * in planes added to the grid are set to the bulk concentration. A change
+	 * in grid size makes the next solve start from the bulk concentration.
+	 */
+	private void cropSoluteGridVertically() {
+		int full = MultigridVariable.getSystemVerticalGridSize();
+		int n = full;
+		if (_verticalCropping) {
+			int needed = (int) ((getCurrentBiofilmHeight() + _croppingMargin)
+					/ _systemGridSide) + 2;
+			// keep at least two coarser grids under the horizontal size
+			n = (_numberOfGridNodes - 1) / 4 + 1;
+			while ((n < needed) && (n < full))
+				n = 2 * n - 1;
+			n = Math.min(n, full);
+		}
+		if (n == MultigridVariable.getVerticalGridSize())
+			return;
+		MultigridVariable.cropGridVertically(n);
+		for (int i = 0; i < _soluteSpecies.length; i++)
+			_soluteSpecies[i].adaptToGrid(_soluteSpecies[i]
+					.getBulkConcentration());
+		for (int i = 0; i < _particulateSpecies.length; i++)
+			_particulateSpecies[i].adaptToGrid(0);
+		_boundaryLayer.adaptToGrid(0);
 	}
 
 	/**
@@ -351,6 +476,17 @@ public class Model implements Serializable {
 		for (Iterator<ParticulateSpecies> iter = col.iterator(); iter.hasNext();) {
 			_particulateSpecies[i++] = (ParticulateSpecies) iter.next();
 		}
+		// compile the reactions for the solver and for particle growth
+		_reactionKernel = new ReactionKernel(_soluteSpecies,
+				_particulateSpecies);
+	}
+
+	/**
+	 * @return the reactions of all species compiled for the solver and for
+	 *         particle growth
+	 */
+	public ReactionKernel getReactionKernel() {
+		return _reactionKernel;
 	}
 
 	/**
@@ -758,6 +894,9 @@ public class Model implements Serializable {
 	 * matrices.
 	 */
 	public void updateBioDiscreteData() {
+		// adapt the grid to the biofilm height, if cropping is on
+		if (_boundaryLayer != null)
+			cropSoluteGridVertically();
 		// reset values of all BacteriaSpecies
 		for (int i = 0; i < _particulateSpecies.length; i++) {
 			_particulateSpecies[i].resetDiscreteMatrix();
@@ -780,11 +919,7 @@ public class Model implements Serializable {
 	public void initializeSoluteConcentrations()
 			throws MultigridSystemNotSetException {
 		updateBioDiscreteData();
-		//TODO put multigrid back on
-		MultigridVariable.solve(_soluteSpecies, _particulateSpecies,
-				_boundaryLayer);
-//		MultigridVariable.initializeSolveByRelax(_soluteSpecies, _particulateSpecies,
-//		_boundaryLayer);
+		solveWithMultigrid();
 		// perform the global reactor mass balances
 		for (int i = 0; i < _soluteSpecies.length; i++) {
 			_soluteSpecies[i].initializeGlobalRateSeries();
@@ -806,30 +941,148 @@ public class Model implements Serializable {
 			_soluteSpecies[i].updateBulkConcentrationAndRateSeries(_timeStep);
 		}
 		updateBioDiscreteData();
+		// time integrated by the transient modes of the solver (see
+		// MultigridVariable.setTimeIntegration)
+		_timeSinceLastSolve += _timeStep;
+		_lastSolveSkipped = false;
+		_lastSolveCorrected = false;
+		if ((_lazySolveTolerance > 0) && (_solverWorkspace != null)) {
+			float change = _solverWorkspace.computeChangeOfSolveInputs(
+					_soluteSpecies, _particulateSpecies);
+			if (change < _lazySolveTolerance) {
+				_skippedSolves++;
+				if (_lazySolveCorrection) {
+					_lastSolveCorrected = true;
+					_reactionKernel.update();
+					MultigridVariable.setTransientTimeStep(_timeSinceLastSolve);
+					MultigridVariable.correct(_soluteSpecies,
+							_particulateSpecies, _boundaryLayer,
+							_solverWorkspace);
+					_timeSinceLastSolve = 0;
+					System.out.println("solute solve replaced by a correction"
+							+ " cycle (change " + change + ")");
+				} else {
+					_lastSolveSkipped = true;
+					// the solver statistics would otherwise be those of the
+					// last solve
+					MultigridVariable.resetStatistics();
+					System.out.println("solute solve skipped (change "
+							+ change + ")");
+				}
+				return;
+			}
+		}
+		MultigridVariable.setTransientTimeStep(_timeSinceLastSolve);
 		solveWithMultigrid();
-		// NOTE to solve by relaxation use:
-		// MultigridVariable.solveByRelax(
-		// _chemicalSpecies,
-		// _fixedSpecies,
-		// _boundaryLayer);
+	}
+
+	/**
+	 * Solve the diffusion/reaction PDE's lazily: at each iteration, if the
+	 * discrete concentrations of the particulate species and the bulk
+	 * concentrations of the solutes changed by less than a relative
+	 * tolerance since the last solve, the solute concentrations of the last
+	 * solve are kept, or corrected by a single cycle of the multigrid
+	 * solver. The change is accumulated over skipped iterations, so that the
+	 * solution never lags the biomass by more than the tolerance. Each skip
+	 * is written to the console. By default the solutes are solved at every
+	 * iteration. The correction cycle is a multigrid cycle, so it may not be
+	 * used when the solutes are solved by relaxation (see
+	 * setSolveByRelaxation).
+	 * 
+	 * @param tolerance
+	 *            relative change below which the solve is skipped (0 to solve
+	 *            at every iteration)
+	 * @param correct
+	 *            true to correct the solution by a single cycle instead of
+	 *            keeping it as is
+	 * @throws InvalidValueException
+	 *             if the tolerance is negative, or if correct is true and the
+	 *             solutes are solved by relaxation
+	 */
+	public void setLazySolve(float tolerance, boolean correct) {
+		if (tolerance < 0)
+			throw new InvalidValueException("lazy solve tolerance ("
+					+ tolerance + ") is negative");
+		if (correct && (tolerance > 0) && _solveByRelaxation)
+			throw new InvalidValueException("lazy solve correction cycles"
+					+ " may not be used when solving by relaxation");
+		_lazySolveTolerance = tolerance;
+		_lazySolveCorrection = correct;
+	}
+
+	/**
+	 * @return the number of solute solves skipped (or replaced by a
+	 *         correction cycle) since the start of the simulation
+	 */
+	public int getNumberOfSkippedSolves() {
+		return _skippedSolves;
+	}
+
+	/**
+	 * @return true if the solute solve of the last iteration was skipped,
+	 *         keeping the previous solution (see setLazySolve)
+	 */
+	public boolean isLastSolveSkipped() {
+		return _lastSolveSkipped;
+	}
+
+	/**
+	 * @return true if the solute solve of the last iteration was replaced by
+	 *         a correction cycle (see setLazySolve)
+	 */
+	public boolean isLastSolveCorrected() {
+		return _lastSolveCorrected;
 	}
 
 	/**
 	 * Determines the concentration fields of all solutes by solving the
-	 * diffusion/reaction PDE's using multigrid
+	 * diffusion/reaction PDE's using multigrid, or by relaxation if
+	 * setSolveByRelaxation(true) was called
 	 * 
 	 * @throws MultigridSystemNotSetException
 	 * 
 	 */
 	public void solveWithMultigrid() throws MultigridSystemNotSetException {
-//		MultigridVariable.solve(_soluteSpecies, _particulateSpecies,
-//				_boundaryLayer);
-		//TODO put multigrid back on
-//		MultigridVariable.solve(_soluteSpecies, _particulateSpecies,
-//				_boundaryLayer);
-		MultigridVariable.solveByRelax(_soluteSpecies, _particulateSpecies,
-		_boundaryLayer);
+		// compile the reactions again if they were changed
+		_reactionKernel.update();
+		if (_solverWorkspace == null)
+			_solverWorkspace = new SolverWorkspace();
+		if (_solveByRelaxation)
+			MultigridVariable.solveByRelax(_soluteSpecies,
+					_particulateSpecies, _boundaryLayer, _solverWorkspace);
+		else
+			MultigridVariable.solve(_soluteSpecies, _particulateSpecies,
+					_boundaryLayer, _solverWorkspace);
+		_timeSinceLastSolve = 0;
+		// inputs of the solve, to which the next ones are compared
+		if (_lazySolveTolerance > 0)
+			_solverWorkspace.storeSolveInputs(_soluteSpecies,
+					_particulateSpecies);
+	}
+
+	/**
+	 * Choose the solver for the diffusion/reaction PDE's. By default, the
+	 * multigrid solver is used, which stops when the residual of all solutes
+	 * has converged. Relaxation uses a fixed number of sweeps on the finest
+	 * grid and is slower, being mainly useful for testing purposes.
+	 * 
+	 * @param b
+	 *            true to solve by relaxation, false to use multigrid
+	 * @throws InvalidValueException
+	 *             if b is true and the lazy solve uses correction cycles
+	 */
+	public void setSolveByRelaxation(boolean b) {
+		if (b && (_lazySolveTolerance > 0) && _lazySolveCorrection)
+			throw new InvalidValueException("solving by relaxation may not"
+					+ " be used with lazy solve correction cycles");
+		_solveByRelaxation = b;
+	}
 
+	/**
+	 * @return true if solute concentrations are solved by relaxation
+	 */
+	public boolean isSolvedByRelaxation() {
+		return _solveByRelaxation;
 	}
 
 	/**
@@ -49,6 +49,9 @@ public abstract class ModelHandler extends ApplicationComponent {
 
 	protected int gridSize; // for solutes concentration
 
+	// height of the system, if different from _systemSize (0 otherwise)
+	private float _systemHeight;
+
 	protected float _kShoving;
 
 	protected static final float FSHOVING = 0.01f;
@@ -136,10 +139,35 @@ public abstract class ModelHandler extends ApplicationComponent {
 	 * (non-Javadoc)
 	 */
 	public void initializeSystemSpace() throws InvalidValueException {
-		_m.buildSystem(_geometry, _systemSize, gridSize);
+		if (_systemHeight > 0)
+			_m.buildSystem(_geometry, _systemSize, gridSize, Math
+					.round(_systemHeight * gridSize / _systemSize));
+		else
+			_m.buildSystem(_geometry, _systemSize, gridSize);
 		_spaceSystemIsEditable = false;
 	}
 
+	/**
+	 * Set a height for the system different from its horizontal size (e.g.
+	 * for a slab). The grid for solute concentration keeps cubic elements,
+	 * with as many vertical elements as fit in the height, so its sizes need
+	 * not be of the form 2^i + 1 (see MultigridVariable.setGrid). Must be
+	 * called after setSystemSpaceParameters and before initializeSystemSpace.
+	 * 
+	 * @param h
+	 *            height of the system [um]
+	 */
+	public void setSystemHeight(float h) {
+		if (!_spaceSystemIsEditable) {
+			throw (new SystemEditViolationException("Illegal setting "
+					+ "system parameters"));
+		}
+		if (h <= 0)
+			throw new ModelRuntimeException("system height (" + h
+					+ ") must be positive");
+		_systemHeight = h;
+	}
+
 	/**
 	 * Initialize the system writters and define the output directory. NOTE:
 	 * this operation is for all state writers
@@ -242,8 +270,12 @@ public abstract class ModelHandler extends ApplicationComponent {
 		}
 		// set the maximum biofilm height to leave enough free space
 		// to boundary layer
-		_m.setVerticalCutoffSize(_systemSize
-				* (1 - _relativeBoundaryLayerHeight) * 0.9f);
+		if (_systemHeight > 0)
+			_m.setVerticalCutoffSize((_m.systemSize.x - _systemSize
+					* _relativeBoundaryLayerHeight) * 0.9f);
+		else
+			_m.setVerticalCutoffSize(_systemSize
+					* (1 - _relativeBoundaryLayerHeight) * 0.9f);
 		try {
 			// create the boundary layer
 			createBoundaryLayer(_systemSize * _relativeBoundaryLayerHeight);
@@ -481,6 +513,165 @@ public abstract class ModelHandler extends ApplicationComponent {
 		_m.initializeSoluteConcentrations();
 	}
 
+	/**
+	 * Choose the solver for the diffusion/reaction PDE's: multigrid (default)
+	 * or relaxation
+	 * 
+	 * @param b
+	 *            true to solve by relaxation, false to use multigrid
+	 */
+	public void setSolveByRelaxation(boolean b) {
+		_m.setSolveByRelaxation(b);
+	}
+
+	/**
+	 * Set the maximum numbers of cycles used by the multigrid solver, which
+	 * otherwise stops when the residuals of all solutes have converged
+	 * 
+	 * @param nVCycles
+	 *            maximum number of V-cycles per grid level
+	 * @param nCoarsestSweeps
+	 *            maximum number of relaxation sweeps for the coarsest grid
+	 */
+	public void setMaximumSolverCycles(int nVCycles, int nCoarsestSweeps) {
+		MultigridVariable.setMaximumCycles(nVCycles, nCoarsestSweeps);
+	}
+
+	/**
+	 * Set the multigrid solver to start each solve from the solute fields of
+	 * the previous iteration, instead of from the bulk concentrations
+	 * 
+	 * @param b
+	 *            true to warm start
+	 */
+	public void setSolverWarmStart(boolean b) {
+		MultigridVariable.setWarmStart(b);
+	}
+
+	/**
+	 * Set the method used to solve the coarsest grid of the multigrid
+	 * solver
+	 * 
+	 * @param solver
+	 *            MultigridVariable.COARSEST_NEWTON (default) or
+	 *            MultigridVariable.COARSEST_RELAXATION
+	 */
+	public void setCoarsestGridSolver(int solver) {
+		MultigridVariable.setCoarsestSolver(solver);
+	}
+
+	/**
+	 * Set the type of cycle (V, W or F) and the number of smoothing sweeps on
+	 * each grid order used by the multigrid solver
+	 * 
+	 * @param s
+	 *            the cycle strategy
+	 */
+	public void setCycleStrategy(CycleStrategy s) {
+		MultigridVariable.setCycleStrategy(s);
+	}
+
+	/**
+	 * Set the time integration of the solutes by the multigrid solver: the
+	 * pseudo-steady state at each iteration, or a transient mode integrating
+	 * the solutes over each time step (see
+	 * MultigridVariable.setTimeIntegration)
+	 * 
+	 * @param integration
+	 *            MultigridVariable.TIME_STEADY_STATE (default),
+	 *            MultigridVariable.TIME_BACKWARD_EULER or
+	 *            MultigridVariable.TIME_BDF2
+	 */
+	public void setSoluteTimeIntegration(int integration) {
+		MultigridVariable.setTimeIntegration(integration);
+	}
+
+	/**
+	 * Set the precision of the multigrid solver
+	 * 
+	 * @param precision
+	 *            MultigridVariable.PRECISION_SINGLE (default) or
+	 *            MultigridVariable.PRECISION_MIXED
+	 */
+	public void setSolverPrecision(int precision) {
+		MultigridVariable.setPrecision(precision);
+	}
+
+	/**
+	 * Crop the solute grid vertically to the biofilm height plus the
+	 * thickness of the boundary layer (see Model.setVerticalCropping). Must be
+	 * called after setSystemSpaceParameters.
+	 * 
+	 * @param b
+	 *            true to crop the solute grid, false to use the whole system
+	 */
+	public void setSoluteGridCropping(boolean b) {
+		_m.setVerticalCropping(b, _systemSize * _relativeBoundaryLayerHeight);
+	}
+
+	/**
+	 * Skip the solute solve of an iteration, or replace it by a single
+	 * correction cycle, when the biomass and bulk concentrations changed by
+	 * less than a relative tolerance since the last solve (see
+	 * Model.setLazySolve)
+	 * 
+	 * @param tolerance
+	 *            relative change below which the solve is skipped (0 to solve
+	 *            at every iteration)
+	 * @param correct
+	 *            true to correct the solution by a single cycle
+	 */
+	public void setLazySolve(float tolerance, boolean correct) {
+		_m.setLazySolve(tolerance, correct);
+	}
+
+	/**
+	 * Set the smoother used on the grids finer than the coarsest by the
+	 * multigrid solver
+	 * 
+	 * @param smoother
+	 *            MultigridVariable.SMOOTHING_SWEEPS (default) or
+	 *            MultigridVariable.SMOOTHING_TILED
+	 */
+	public void setSmoother(int smoother) {
+		MultigridVariable.setSmoother(smoother);
+	}
+
+	/**
+	 * Set the size of the tiles of the tiled smoother
+	 * 
+	 * @param planes
+	 *            number of planes of each tile
+	 * @param sweeps
+	 *            maximum number of consecutive sweeps performed on a tile
+	 */
+	public void setSmoothingTiles(int planes, int sweeps) {
+		MultigridVariable.setTiling(planes, sweeps);
+	}
+
+	/**
+	 * Set the multigrid solver to relax all solutes of a voxel together (see
+	 * MultigridVariable.setCoupledRelaxation)
+	 * 
+	 * @param b
+	 *            true to relax the solutes of a voxel together
+	 */
+	public void setSolverCoupledRelaxation(boolean b) {
+		MultigridVariable.setCoupledRelaxation(b);
+	}
+
+	/**
+	 * Set the multigrid solver to use the vectorised stencil kernel, if the
+	 * vector API of the JDK is available (see
+	 * MultigridVariable.setVectorStencil)
+	 * 
+	 * @param b
+	 *            true to use the vectorised kernel
+	 */
+	public void setSolverVectorStencil(boolean b) {
+		MultigridVariable.setVectorStencil(b);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -488,7 +679,11 @@ public abstract class ModelHandler extends ApplicationComponent {
 	 */
 	public String toString() {
 		String s = "" + _m.getIterationCounter() + " - t = " + _m.getTime()
-				+ " h; timestep - " + _m.getTimeStep() + " h; particles - ";
+				+ " h; timestep - " + _m.getTimeStep() + " h; ";
+		if (!_m.isSolvedByRelaxation())
+			s += "v-cycles - " + MultigridVariable.getNumberOfVCyclesUsed()
+					+ "; ";
+		s += "particles - ";
 		for (Iterator iter = _biomassSpecies.iterator(); iter.hasNext();) {
 			BiomassSpecies element = (BiomassSpecies) iter.next();
 			s += element.getName() + ":" + _m.getNumberOfParticles(element)
@@ -517,6 +712,33 @@ public abstract class ModelHandler extends ApplicationComponent {
 				.setDetachmentFunction(df);
 	}
 
+	/**
+	 * Set the method used for shoving (see
+	 * BiomassParticleContainer.setShovingMethod). Must be called after
+	 * initializeDiffusionReactionSystem.
+	 * 
+	 * @param method
+	 *            BiomassParticleContainer.SHOVING_GAUSS_SEIDEL (default) or
+	 *            BiomassParticleContainer.SHOVING_JACOBI
+	 */
+	public void setShovingMethod(int method) {
+		((BiomassParticleContainer) Model.model().biomassContainer)
+				.setShovingMethod(method);
+	}
+
+	/**
+	 * Set the number of threads used by Jacobi shoving (see
+	 * BiomassParticleContainer.setNumberOfShovingThreads). Must be called
+	 * after initializeDiffusionReactionSystem.
+	 * 
+	 * @param n
+	 *            number of threads (0 or less for the number of processors)
+	 */
+	public void setNumberOfShovingThreads(int n) {
+		((BiomassParticleContainer) Model.model().biomassContainer)
+				.setNumberOfShovingThreads(n);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
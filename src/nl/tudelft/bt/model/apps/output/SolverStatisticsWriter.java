@@ -0,0 +1,74 @@
+package nl.tudelft.bt.model.apps.output;
+
+import java.util.Iterator;
+
+import nl.tudelft.bt.model.Model;
+import nl.tudelft.bt.model.multigrid.MultigridVariable;
+import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+
+/**
+ * Writes the statistics of the last solution of the solute concentrations to
+ * file at each iteration: whether the solve was skipped or replaced by a
+ * correction cycle (see Model.setLazySolve), number of cycles and relaxation
+ * sweeps, wall time of each phase of the solver and, for each solute, the
+ * norm of the residual and the truncation error
+ *
+ * @author jxavier
+ */
+public class SolverStatisticsWriter extends StateWriter {
+	static final public String FILENAME = "solverStatistics.txt";
+
+	static final private String DELIMITER = "\t";
+
+	/**
+	 * Write the table header
+	 */
+	private void initializeParametersWriting() {
+		String ht = "iteration" + DELIMITER + "time" + DELIMITER + "skipped"
+				+ DELIMITER + "corrected" + DELIMITER + "cycles"
+				+ DELIMITER + "sweeps" + DELIMITER + "coarsestSweeps"
+				+ DELIMITER + "coarsestNewtonSteps" + DELIMITER
+				+ "coarsestConverged" + DELIMITER + "solve[ms]" + DELIMITER
+				+ "smoothing[ms]" + DELIMITER + "transfer[ms]" + DELIMITER
+				+ "coarsest[ms]" + DELIMITER + "residual[ms]";
+		for (Iterator iter = Model.model().getSoluteSpecies().iterator(); iter
+				.hasNext();) {
+			SoluteSpecies s = (SoluteSpecies) iter.next();
+			ht += DELIMITER + s.getName() + "Residual" + DELIMITER
+					+ s.getName() + "TruncationError";
+		}
+		appendToFile(FILENAME, ht + "\n");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 */
+	public void write() {
+		if (!fileExists(FILENAME))
+			initializeParametersWriting();
+		String vals = Model.model().getIterationCounter() + DELIMITER
+				+ Model.model().getTime() + DELIMITER
+				+ (Model.model().isLastSolveSkipped() ? 1 : 0) + DELIMITER
+				+ (Model.model().isLastSolveCorrected() ? 1 : 0) + DELIMITER
+				+ MultigridVariable.getNumberOfVCyclesUsed() + DELIMITER
+				+ MultigridVariable.getNumberOfRelaxationSweepsUsed()
+				+ DELIMITER
+				+ MultigridVariable.getNumberOfCoarsestSweepsUsed()
+				+ DELIMITER
+				+ MultigridVariable.getNumberOfCoarsestNewtonStepsUsed()
+				+ DELIMITER
+				+ (MultigridVariable.hasCoarsestGridConverged() ? 1 : 0)
+				+ DELIMITER + MultigridVariable.getSolveTime() + DELIMITER
+				+ MultigridVariable.getSmoothingTime() + DELIMITER
+				+ MultigridVariable.getTransferTime() + DELIMITER
+				+ MultigridVariable.getCoarsestSolveTime() + DELIMITER
+				+ MultigridVariable.getResidualTime();
+		for (Iterator iter = Model.model().getSoluteSpecies().iterator(); iter
+				.hasNext();) {
+			SoluteSpecies s = (SoluteSpecies) iter.next();
+			vals += DELIMITER + s.getResidual() + DELIMITER
+					+ s.getTruncationError();
+		}
+		appendToFile(FILENAME, vals + "\n");
+	}
+}
@@ -6,6 +6,7 @@ package nl.tudelft.bt.model.detachment.levelset;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import nl.tudelft.bt.model.BiomassSpecies;
 import nl.tudelft.bt.model.Model;
@@ -58,6 +59,31 @@ public class DetachedBiomassContainer implements Serializable {
 	 * @param p
 	 */
 	public void addToDetachedBiomass(BiomassParticle p) {
+		addToDetachedBiomass(p, getParticulateSpecies());
+	}
+
+	/**
+	 * Add the biomass of several detached particles, in the order of the
+	 * list, as addToDetachedBiomass does for each particle
+	 * 
+	 * @param particles
+	 *            list of the detached particles
+	 */
+	public void addToDetachedBiomass(List particles) {
+		if (particles.isEmpty())
+			return;
+		ParticulateSpecies[] sp = getParticulateSpecies();
+		for (Iterator iter = particles.iterator(); iter.hasNext();)
+			addToDetachedBiomass((BiomassParticle) iter.next(), sp);
+	}
+
+	/**
+	 * @param p
+	 * @param sp
+	 *            the particulate species of the system
+	 */
+	private void addToDetachedBiomass(BiomassParticle p,
+			ParticulateSpecies[] sp) {
 		BiomassSpecies.Composition c = p.getComposition();
 		_totalDetachedSeries.add(c);
 		if (p.willDetachByErosion())
@@ -65,12 +91,17 @@ public class DetachedBiomassContainer implements Serializable {
 		else if (p.willDetachBySloughing())
 			_sloughedBiomassSeries.add(c);
 		// increment the calues of each particulate species in the composition
+		for (int i = 0; i < sp.length; i++)
+			sp[i].addToDetachedBiomass(c.getSpeciesMass(sp[i]));
+	}
+
+	/**
+	 * @return the particulate species of the system
+	 */
+	private ParticulateSpecies[] getParticulateSpecies() {
 		Collection sp = Model.model().getParticulateSpecies();
-		int speciesNumber = 0;
-		for (Iterator iter = sp.iterator(); iter.hasNext();) {
-			ParticulateSpecies element = (ParticulateSpecies) iter.next();
-			element.addToDetachedBiomass(c.getSpeciesMass(element));
-		}
+		return (ParticulateSpecies[]) sp.toArray(new ParticulateSpecies[sp
+				.size()]);
 	}
 
 	/**
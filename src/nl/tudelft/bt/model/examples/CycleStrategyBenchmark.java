@@ -0,0 +1,92 @@
+package nl.tudelft.bt.model.examples;
+
+import nl.tudelft.bt.model.Model;
+import nl.tudelft.bt.model.apps.ApplicationComponent;
+import nl.tudelft.bt.model.exceptions.*;
+import nl.tudelft.bt.model.multigrid.*;
+
+/**
+ * Benchmark of the cycle strategies of the multigrid solver. The system of
+ * Example 1 is grown for a number of iterations, after which the solute
+ * concentrations are solved repeatedly with each cycle strategy, reporting the
+ * average time per solve and the number of cycles used. Use to choose the
+ * fastest strategy for a given geometry before setting it with
+ * ModelHandler.setCycleStrategy.
+ *
+ * Arguments (all optional): output directory, geometry (2 or 3), grid side,
+ * number of growth iterations and number of solves per strategy.
+ *
+ * @author jxavier
+ */
+public class CycleStrategyBenchmark extends Example1 {
+	/**
+	 * The strategies compared: V, W and F cycles with few and with many
+	 * smoothing sweeps, and with more sweeps on the coarser grids only
+	 *
+	 * @return array of cycle strategies
+	 */
+	protected static CycleStrategy[] createStrategies() {
+		int[] types = { CycleStrategy.V_CYCLE, CycleStrategy.W_CYCLE,
+				CycleStrategy.F_CYCLE };
+		CycleStrategy[] s = new CycleStrategy[types.length * 3];
+		for (int i = 0; i < types.length; i++) {
+			s[3 * i] = new CycleStrategy(types[i], 2, 10);
+			s[3 * i + 1] = new CycleStrategy(types[i], 5, 50);
+			// many sweeps on the cheap coarser grids, few on the finest
+			s[3 * i + 2] = new CycleStrategy(types[i]);
+			s[3 * i + 2].setSmoothingSteps(0, 20, 200);
+			s[3 * i + 2].setSmoothingSteps(2, 2, 10);
+		}
+		return s;
+	}
+
+	/**
+	 * Run the benchmark
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		if (args.length > 0)
+			outputDirectory = args[0];
+		if (args.length > 1)
+			geometry = Integer.parseInt(args[1]);
+		if (args.length > 2)
+			gridSide = Integer.parseInt(args[2]);
+		int iterations = (args.length > 3 ? Integer.parseInt(args[3]) : 20);
+		int solves = (args.length > 4 ? Integer.parseInt(args[4]) : 5);
+		MultigridVariable.setSteps(5, 50);
+		ApplicationComponent app = new CycleStrategyBenchmark();
+		try {
+			app.setSystemSpaceParameters(geometry, systemSize,
+					relativeMaximumRadius, relativeMinimumRadius,
+					relativeBoundaryLayer, gridSide, kShov);
+			app.initializeSystemSpace();
+			app.intializeStateWriters(outputDirectory);
+			app.initializeDiffusionReactionSystem();
+			app.initializeDetachmentFunction();
+			// grow the biofilm
+			Model.model().setFinishIterationCount(iterations);
+			app.startIterating();
+			// solve the same system with each strategy
+			CycleStrategy[] strategies = createStrategies();
+			for (int i = 0; i < strategies.length; i++) {
+				MultigridVariable.setCycleStrategy(strategies[i]);
+				int cycles = 0;
+				long t = System.currentTimeMillis();
+				for (int j = 0; j < solves; j++) {
+					Model.model().solveWithMultigrid();
+					cycles += MultigridVariable.getNumberOfVCyclesUsed();
+				}
+				t = System.currentTimeMillis() - t;
+				System.out.println(strategies[i] + ": " + ((float) t / solves)
+						+ " ms per solve, " + ((float) cycles / solves)
+						+ " cycles per solve");
+			}
+		} catch (ModelException e) {
+			System.out.println(e);
+			System.exit(-1);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+import java.io.Serializable;
+
+import nl.tudelft.bt.model.exceptions.ModelRuntimeException;
+
+/**
+ * Defines the cycles used by the multigrid solver on each grid of the nested
+ * iteration: the type of cycle (V, W or F) and the number of pre- and
+ * post-smoothing relaxation sweeps on each grid order. Grid orders for which
+ * no number of sweeps was set use the values set by
+ * MultigridVariable.setSteps. Subclasses may override the get methods to
+ * define the number of sweeps differently.
+ *
+ * @author jxavier
+ */
+public class CycleStrategy implements Serializable {
+	/**
+	 * V-cycle: the coarser grid is visited once per cycle
+	 */
+	public static final int V_CYCLE = 0;
+
+	/**
+	 * W-cycle: the coarser grid is visited twice per cycle
+	 */
+	public static final int W_CYCLE = 1;
+
+	/**
+	 * F-cycle: the coarser grid is visited by an F-cycle followed by a
+	 * V-cycle
+	 */
+	public static final int F_CYCLE = 2;
+
+	private static final String[] NAMES = { "V", "W", "F" };
+
+	private int _type;
+
+	// number of sweeps for each grid order (-1 if not set)
+	private int[] _preSteps = new int[0];
+
+	private int[] _posSteps = new int[0];
+
+	/**
+	 * Create a new strategy of a given type, using the number of sweeps set by
+	 * MultigridVariable.setSteps on all grid orders
+	 *
+	 * @param type
+	 *            V_CYCLE, W_CYCLE or F_CYCLE
+	 */
+	public CycleStrategy(int type) {
+		if ((type < V_CYCLE) || (type > F_CYCLE))
+			throw new ModelRuntimeException("Invalid cycle type " + type);
+		_type = type;
+	}
+
+	/**
+	 * Create a new strategy of a given type, using the same number of sweeps
+	 * on all grid orders
+	 *
+	 * @param type
+	 *            V_CYCLE, W_CYCLE or F_CYCLE
+	 * @param npre
+	 *            number of pre-smoothing sweeps
+	 * @param npos
+	 *            number of post-smoothing sweeps
+	 */
+	public CycleStrategy(int type, int npre, int npos) {
+		this(type);
+		_preSteps = new int[] { npre };
+		_posSteps = new int[] { npos };
+	}
+
+	/**
+	 * Set the number of sweeps on grid order g and on all finer grid orders
+	 * for which the number of sweeps was not set explicitly
+	 *
+	 * @param g
+	 *            grid order (0 is the coarsest)
+	 * @param npre
+	 *            number of pre-smoothing sweeps
+	 * @param npos
+	 *            number of post-smoothing sweeps
+	 */
+	public void setSmoothingSteps(int g, int npre, int npos) {
+		if (g >= _preSteps.length) {
+			_preSteps = extend(_preSteps, g + 1);
+			_posSteps = extend(_posSteps, g + 1);
+		}
+		_preSteps[g] = npre;
+		_posSteps[g] = npos;
+	}
+
+	/**
+	 * Copy of array a with length n, with new entries set to -1
+	 */
+	private static int[] extend(int[] a, int n) {
+		int[] b = new int[n];
+		for (int i = 0; i < n; i++)
+			b[i] = (i < a.length ? a[i] : -1);
+		return b;
+	}
+
+	/**
+	 * Find the number of sweeps for grid order g, which is the one set for the
+	 * closest grid order not finer than g, or def if none was set
+	 */
+	private static int steps(int[] a, int g, int def) {
+		for (int i = Math.min(g, a.length - 1); i >= 0; i--)
+			if (a[i] >= 0)
+				return a[i];
+		return def;
+	}
+
+	/**
+	 * @return the type of cycle (V_CYCLE, W_CYCLE or F_CYCLE)
+	 */
+	public int getType() {
+		return _type;
+	}
+
+	/**
+	 * @param g
+	 *            grid order
+	 * @return the number of pre-smoothing sweeps on grid order g
+	 */
+	public int getPreSmoothingSteps(int g) {
+		return steps(_preSteps, g, MultigridVariable.nPreSteps);
+	}
+
+	/**
+	 * @param g
+	 *            grid order
+	 * @return the number of post-smoothing sweeps on grid order g
+	 */
+	public int getPostSmoothingSteps(int g) {
+		return steps(_posSteps, g, MultigridVariable.nPosSteps);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String s = NAMES[_type] + "-cycle";
+		for (int g = 0; g < _preSteps.length; g++)
+			if (_preSteps[g] >= 0)
+				s += " [" + g + ": " + _preSteps[g] + "/" + _posSteps[g] + "]";
+		return s;
+	}
+}
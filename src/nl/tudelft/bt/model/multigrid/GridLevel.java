@@ -0,0 +1,189 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+import java.io.Serializable;
+
+/**
+ * Layout of the values of one grid order, which are stored in a contiguous
+ * array including the padding elements used for boundary conditions. Element
+ * (i, j, k) of the padded grid is stored at index i * si + j * sj + k, so that
+ * neighbors along k are adjacent in memory. The layout also holds the spacing
+ * of the grid along each direction, which may differ when directions are
+ * coarsened independently, and how each direction was coarsened from the
+ * next finer grid order.
+ *
+ * @author jxavier
+ */
+public class GridLevel implements Serializable {
+	// number of elements along each direction, excluding padding
+	public final int n;
+
+	public final int m;
+
+	public final int l;
+
+	// stride of index i
+	public final int si;
+
+	// stride of index j (the stride of index k is 1)
+	public final int sj;
+
+	// total number of elements, including padding
+	public final int length;
+
+	// ratio between the spacing of this grid and that of the next finer grid
+	// along each direction (1 if the direction was not coarsened, 2 if it
+	// was)
+	public final int fi;
+
+	public final int fj;
+
+	public final int fk;
+
+	// smallest spacing along the directions with more than one element, in
+	// units of the spacing of the finest grid
+	public final int spacing;
+
+	// 0.5/h^2, where h is the smallest spacing
+	public final float h2i;
+
+	// (h/h_x)^2 for each direction x, the weight of the fluxes along x in the
+	// diffusion operator relative to h2i
+	public final float wi;
+
+	public final float wj;
+
+	public final float wk;
+
+	// true if all weights are 1 (the voxels are cubic)
+	public final boolean isotropic;
+
+	/**
+	 * Create the layout for a grid of n x m x l elements (excluding padding)
+	 *
+	 * @param n
+	 * @param m
+	 * @param l
+	 * @param h
+	 *            spacing of the finest grid
+	 * @param ti
+	 *            spacing along the first direction, in units of h
+	 * @param tj
+	 *            spacing along the second direction, in units of h
+	 * @param tk
+	 *            spacing along the third direction, in units of h
+	 * @param fi
+	 *            1 if the first direction is not coarsened from the next
+	 *            finer grid, 2 if it is (also 1 for the finest grid)
+	 * @param fj
+	 * @param fk
+	 */
+	public GridLevel(int n, int m, int l, float h, int ti, int tj, int tk,
+			int fi, int fj, int fk) {
+		this.n = n;
+		this.m = m;
+		this.l = l;
+		sj = l + 2;
+		si = (m + 2) * sj;
+		length = (n + 2) * si;
+		this.fi = fi;
+		this.fj = fj;
+		this.fk = fk;
+		// directions with a single element have no fluxes
+		int t = Integer.MAX_VALUE;
+		if (n > 1)
+			t = Math.min(t, ti);
+		if (m > 1)
+			t = Math.min(t, tj);
+		if (l > 1)
+			t = Math.min(t, tk);
+		spacing = t;
+		float hMin = h * t;
+		h2i = 0.5f / (hMin * hMin);
+		wi = (n > 1 ? ((float) t / ti) * ((float) t / ti) : 1);
+		wj = (m > 1 ? ((float) t / tj) * ((float) t / tj) : 1);
+		wk = (l > 1 ? ((float) t / tk) * ((float) t / tk) : 1);
+		isotropic = (wi == 1) && (wj == 1) && (wk == 1);
+	}
+
+	/**
+	 * Size of a direction of n elements once coarsened. Odd sizes keep every
+	 * other element, including the first and last (element i of the coarser
+	 * grid is element 2 * i - 1 of the finer grid). Even sizes agglomerate
+	 * pairs of elements (element i of the coarser grid covers elements
+	 * 2 * i - 1 and 2 * i of the finer grid).
+	 *
+	 * @param n
+	 *            number of elements along the direction
+	 * @return number of elements of the coarser grid
+	 */
+	public static int coarserSize(int n) {
+		return (n + 1) / 2;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @param k
+	 * @return the position of element (i, j, k) in the contiguous array
+	 */
+	public final int index(int i, int j, int k) {
+		return i * si + j * sj + k;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @param k
+	 * @return true if (i, j, k) is a padding element
+	 */
+	public final boolean isPadding(int i, int j, int k) {
+		return (i == 0) | (i == n + 1) | (j == 0) | (j == m + 1) | (k == 0)
+				| (k == l + 1);
+	}
+
+	/**
+	 * Colour of a voxel in red-black relaxation
+	 *
+	 * @param i
+	 * @param j
+	 * @param k
+	 * @return 0 (red) if i + j + k is odd, 1 (black) if i + j + k is even
+	 */
+	public static int colour(int i, int j, int k) {
+		return (i + j + k + 1) & 1;
+	}
+
+	/**
+	 * Find the first index along one direction of the voxels of a colour,
+	 * given the sum of the indexes along the other two directions. The
+	 * following voxels of that colour are found in steps of 2.
+	 *
+	 * @param colour
+	 *            0 (red) or 1 (black)
+	 * @param s
+	 *            sum of the indexes along the other two directions
+	 * @return 1 or 2
+	 */
+	public static int firstOfColour(int colour, int s) {
+		return 1 + ((colour + s) & 1);
+	}
+
+	/**
+	 * Copy the values in a contiguous array with this layout to a new 3D
+	 * matrix (including padding)
+	 *
+	 * @param u
+	 *            contiguous array with this layout
+	 * @return 3D matrix with the values of u
+	 */
+	public float[][][] toMatrix(float[] u) {
+		float[][][] a = new float[n + 2][m + 2][l + 2];
+		for (int i = 0; i < n + 2; i++)
+			for (int j = 0; j < m + 2; j++)
+				System.arraycopy(u, i * si + j * sj, a[i][j], 0, l + 2);
+		return a;
+	}
+}
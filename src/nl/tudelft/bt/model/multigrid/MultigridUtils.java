@@ -40,200 +40,199 @@ public abstract class MultigridUtils {
 	}
 
 	/**
-	 * Return the size of grid o orders smaller then n. Only to be used in
-	 * initialization of multigrid variables
-	 * 
-	 * @param n
-	 * @return the size of coarsest grid
-	 */
-	public static int coarserSize(int n, int o) {
-		try {
-			return ExtraMath.exp2(order(n) - o) + 1;
-		} catch (InvalidValueException e) {
-			return 1;
-		}
-	}
-
-	/**
-	 * Restricts the data in matrix u to a grid one order coarser. Restriction
+	 * Restricts the data in array u to the next coarser grid. Restriction
 	 * excludes border points.
 	 * 
 	 * @param u
 	 *            finer grid
+	 * @param g
+	 *            layout of the finer grid
 	 * @param uc
 	 *            coarser grid
+	 * @param gc
+	 *            layout of the coarser grid
 	 */
-	public static void restrict(float[][][] u, float[][][] uc,
-			BoundaryConditions bc) {
-		int lc = uc[0][0].length - 2;
-		int mc = uc[0].length - 2;
-		int nc = uc.length - 2;
-
-		int i, j, k; // indexes for fine grid
-		int ic, jc, kc; // indexes for coarse grid
-
-		// implements 2D and 3D
-		float nfac = (lc == 1 ? 1.0f / 8.0f : 1.0f / 12.0f); // pre-compute
-
-		for (k = 1, kc = 1; kc <= lc; kc++, k += 2)
-			for (j = 1, jc = 1; jc <= mc; jc++, j += 2)
-				for (i = 1, ic = 1; ic <= nc; ic++, i += 2)
-					// special case for 2D (when lc = 1)
-					uc[ic][jc][kc] = 0.5f
-							* u[i][j][k]
-							+ nfac
-							* (u[i + 1][j][k] + u[i - 1][j][k] + u[i][j + 1][k]
-									+ u[i][j - 1][k] + (lc == 1
-									? 0.0f
-									: u[i][j][k + 1] + u[i][j][k - 1]));
-		bc.refreshBoundaryConditions(uc);
+	public static void restrict(float[] u, GridLevel g, float[] uc,
+			GridLevel gc, BoundaryConditions bc) {
+		restrictBoundaryLayer(u, g, uc, gc, null, bc);
 	}
 
 	/**
-	 * Restricts the data in matrix u to a grid one order coarser. Restriction
-	 * excludes border pointsfor points inside the boundary layer, defined by
-	 * data in bl. Restriction excludes border points and points outside the
-	 * boundary layer (where bl >= 0.5). Points outside boundary layer are
-	 * skipped and, therefore, preserve their original value.
+	 * Restricts the data in array u to the next coarser grid for points
+	 * inside the boundary layer, defined by data in blc. Restriction excludes
+	 * border points and points outside the boundary layer (where blc >= 0.5).
+	 * Points outside boundary layer are skipped and, therefore, preserve their
+	 * original value. Each element of the coarser grid takes half of the value
+	 * of the finer grid element at the same position and half of the mean of
+	 * its neighbours along the directions coarsened by keeping every other
+	 * element. Along directions coarsened by agglomerating pairs of elements
+	 * (see GridLevel.coarserSize) the mean of the pair is used instead of the
+	 * value at the same position.
 	 * 
 	 * @param u
 	 *            finer grid
+	 * @param g
+	 *            layout of the finer grid
 	 * @param uc
 	 *            coarser grid
+	 * @param gc
+	 *            layout of the coarser grid
 	 * @param blc
-	 *            boundary layer at corser grid
+	 *            boundary layer at corser grid (null to restrict everywhere)
 	 */
-	public static void restrictBoundaryLayer(float[][][] u, float[][][] uc,
-			float blc[][][], BoundaryConditions bc) {
-		int lc = uc[0][0].length - 2;
-		int mc = uc[0].length - 2;
-		int nc = uc.length - 2;
+	public static void restrictBoundaryLayer(float[] u, GridLevel g,
+			float[] uc, GridLevel gc, float[] blc, BoundaryConditions bc) {
+		int lc = gc.l;
+		int mc = gc.m;
+		int nc = gc.n;
+		int si = g.si;
+		int sj = g.sj;
+		int fi = gc.fi;
+		int fj = gc.fj;
+		int fk = gc.fk;
+		// directions coarsened by keeping every other element (odd sizes)
+		boolean vi = (fi == 2) && (g.n % 2 == 1);
+		boolean vj = (fj == 2) && (g.m % 2 == 1);
+		boolean vk = (fk == 2) && (g.l % 2 == 1);
+		// directions coarsened by agglomerating pairs (even sizes)
+		int ai = (fi == 2) && !vi ? si : 0;
+		int aj = (fj == 2) && !vj ? sj : 0;
+		int ak = (fk == 2) && !vk ? 1 : 0;
 
 		int i, j, k; // indexes for fine grid
 		int ic, jc, kc; // indexes for coarse grid
 
-		// implements 2D and 3D
-		float nfac = (lc == 1 ? 1.0f / 8.0f : 1.0f / 12.0f); // pre-compute
-
-		for (k = 1, kc = 1; kc <= lc; kc++, k += 2)
-			for (j = 1, jc = 1; jc <= mc; jc++, j += 2)
-				for (i = 1, ic = 1; ic <= nc; ic++, i += 2)
-					if (blc[ic][jc][kc] < BLTHRESH)
-						// special case for 2D (when lc = 1)
-						uc[ic][jc][kc] = 0.5f
-								* u[i][j][k]
-								+ nfac
-								* (u[i + 1][j][k] + u[i - 1][j][k]
-										+ u[i][j + 1][k] + u[i][j - 1][k] + (lc == 1
-										? 0.0f
-										: u[i][j][k + 1] + u[i][j][k - 1]));
-		bc.refreshBoundaryConditions(uc);
+		// weights of the center and of each neighbour
+		int nNeighbours = (vi ? 2 : 0) + (vj ? 2 : 0) + (vk ? 2 : 0);
+		float cfac = (nNeighbours == 0 ? 1.0f : 0.5f);
+		float nfac = (nNeighbours == 0 ? 0.0f : 0.5f / nNeighbours);
+		boolean agglomerate = (ai | aj | ak) != 0;
+
+		for (i = 1, ic = 1; ic <= nc; ic++, i += fi)
+			for (j = 1, jc = 1; jc <= mc; jc++, j += fj) {
+				int p = g.index(i, j, 1);
+				int pc = gc.index(ic, jc, 1);
+				for (k = 1, kc = 1; kc <= lc; kc++, k += fk, p += fk, pc++) {
+					if ((blc != null) && (blc[pc] >= BLTHRESH))
+						continue;
+					float s = 0.0f;
+					if (vi)
+						s = u[p + si] + u[p - si];
+					if (vj)
+						s = s + u[p + sj] + u[p - sj];
+					if (vk)
+						s = s + (u[p + 1] + u[p - 1]);
+					float c = u[p];
+					// mean of the agglomerated elements (the offsets of
+					// directions not agglomerated are 0, so that each
+					// element is counted the same number of times)
+					if (agglomerate)
+						c = 0.125f * (u[p] + u[p + ai] + u[p + aj]
+								+ u[p + ai + aj] + u[p + ak] + u[p + ai + ak]
+								+ u[p + aj + ak] + u[p + ai + aj + ak]);
+					uc[pc] = cfac * c + nfac * s;
+				}
+			}
+		bc.refreshBoundaryConditions(uc, gc);
 	}
 
 	/**
-	 * Interpolates the data in matrix uc to a grid one order finner for cubic
-	 * matrices. Interpolation excludes border points.
+	 * Interpolates the data in array uc to the next finer grid. Interpolation
+	 * excludes border points.
 	 * 
 	 * @param u
 	 *            finer grid
+	 * @param g
+	 *            layout of the finer grid
 	 * @param uc
 	 *            coarser grid
+	 * @param gc
+	 *            layout of the coarser grid
 	 */
-	static void interpolate(float[][][] u, float[][][] uc, BoundaryConditions bc) {
-		int l_ = u[0][0].length - 2;
-		int m = u[0].length - 2;
-		int n = u.length - 2;
-
-		int i, j, k; // indexes for fine grid
-		int ic, jc, kc; // indexes for coarse grid
-
-		// copy points
-		for (kc = 1, k = 1; k <= l_; kc++, k += 2) {
-			for (jc = 1, j = 1; j <= m; jc++, j += 2) {
-				for (ic = 1, i = 1; i <= n; ic++, i += 2)
-					u[i][j][k] = uc[ic][jc][kc];
-			}
-		}
-		//interpolate verically
-		for (k = 1; k <= l_; k += 2) {
-			for (j = 1; j <= m; j += 2) {
-				for (i = 2; i < n; i += 2)
-					u[i][j][k] = 0.5f * (u[i + 1][j][k] + u[i - 1][j][k]);
-			}
-		}
-		//interpolate sideways
-		for (k = 1; k <= l_; k += 2) {
-			for (j = 2; j < m; j += 2) {
-				for (i = 1; i <= n; i++)
-					u[i][j][k] = 0.5f * (u[i][j + 1][k] + u[i][j - 1][k]);
-			}
-		}
-		for (k = 2; k < l_; k += 2) {
-			for (j = 1; j <= m; j++) {
-				for (i = 1; i <= n; i++)
-					u[i][j][k] = 0.5f * (u[i][j][k + 1] + u[i][j][k - 1]);
-			}
-		}
-
-		bc.refreshBoundaryConditions(u);
+	static void interpolate(float[] u, GridLevel g, float[] uc, GridLevel gc,
+			BoundaryConditions bc) {
+		interpolateBoundaryLayer(u, g, uc, gc, null, bc);
 	}
 
 	/**
-	 * Interpolates the data in matrix uc to a grid one order finner for cubic
-	 * matrices for points inside the boundary layer, defined by data in bl.
-	 * Interpolation excludes border points and points outside the boundary
-	 * layer (where bl >= 0.5). Points outside boundary layer are skipped and,
-	 * therefore, preserve their original value.
+	 * Interpolates the data in array uc to the next finer grid for points
+	 * inside the boundary layer, defined by data in bl. Interpolation
+	 * excludes border points and points outside the boundary layer (where bl
+	 * >= 0.5). Points outside boundary layer are skipped and, therefore,
+	 * preserve their original value. Along directions coarsened by keeping
+	 * every other element the interpolation is linear, along directions
+	 * coarsened by agglomerating pairs of elements both elements of a pair
+	 * take the value of the coarser element.
 	 * 
 	 * @param u
 	 *            finer grid
+	 * @param g
+	 *            layout of the finer grid
 	 * @param uc
 	 *            coarser grid
+	 * @param gc
+	 *            layout of the coarser grid
 	 * @param bl
-	 *            boundary layer at finer grid
+	 *            boundary layer at finer grid (null to interpolate everywhere)
 	 */
-	static void interpolateBoundaryLayer(float[][][] u, float[][][] uc,
-			float[][][] bl, BoundaryConditions bc) {
-		int l_ = u[0][0].length - 2;
-		int m = u[0].length - 2;
-		int n = u.length - 2;
+	static void interpolateBoundaryLayer(float[] u, GridLevel g, float[] uc,
+			GridLevel gc, float[] bl, BoundaryConditions bc) {
+		int l_ = g.l;
+		int m = g.m;
+		int n = g.n;
+		int si = g.si;
+		int sj = g.sj;
+		int fi = gc.fi;
+		int fj = gc.fj;
+		int fk = gc.fk;
 
 		int i, j, k; // indexes for fine grid
 		int ic, jc, kc; // indexes for coarse grid
 
 		// copy points
-		for (kc = 1, k = 1; k <= l_; kc++, k += 2) {
-			for (jc = 1, j = 1; j <= m; jc++, j += 2) {
-				for (ic = 1, i = 1; i <= n; ic++, i += 2)
-					if (bl[i][j][k] < BLTHRESH)
-						u[i][j][k] = uc[ic][jc][kc];
+		for (ic = 1, i = 1; i <= n; ic++, i += fi) {
+			for (jc = 1, j = 1; j <= m; jc++, j += fj) {
+				int p = g.index(i, j, 1);
+				int pc = gc.index(ic, jc, 1);
+				for (kc = 1, k = 1; k <= l_; kc++, k += fk, p += fk, pc++)
+					if ((bl == null) || (bl[p] < BLTHRESH))
+						u[p] = uc[pc];
 			}
 		}
-		//interpolate vertically
-		for (k = 1; k <= l_; k += 2) {
-			for (j = 1; j <= m; j += 2) {
-				for (i = 2; i < n; i += 2)
-					if (bl[i][j][k] < BLTHRESH)
-						u[i][j][k] = 0.5f * (u[i + 1][j][k] + u[i - 1][j][k]);
+		// interpolate vertically
+		if (fi == 2)
+			for (i = 2; i <= n; i += 2) {
+				for (j = 1; j <= m; j += fj) {
+					int p = g.index(i, j, 1);
+					for (k = 1; k <= l_; k += fk, p += fk)
+						if ((bl == null) || (bl[p] < BLTHRESH))
+							u[p] = (n % 2 == 1 ? 0.5f * (u[p + si] + u[p
+									- si]) : u[p - si]);
+				}
 			}
-		}
-		//interpolate sideways
-		for (k = 1; k <= l_; k += 2) {
-			for (j = 2; j < m; j += 2) {
-				for (i = 1; i <= n; i++)
-					if (bl[i][j][k] < BLTHRESH)
-						u[i][j][k] = 0.5f * (u[i][j + 1][k] + u[i][j - 1][k]);
+		// interpolate sideways
+		if (fj == 2)
+			for (i = 1; i <= n; i++) {
+				for (j = 2; j <= m; j += 2) {
+					int p = g.index(i, j, 1);
+					for (k = 1; k <= l_; k += fk, p += fk)
+						if ((bl == null) || (bl[p] < BLTHRESH))
+							u[p] = (m % 2 == 1 ? 0.5f * (u[p + sj] + u[p
+									- sj]) : u[p - sj]);
+				}
 			}
-		}
-		for (k = 2; k < l_; k += 2) {
-			for (j = 1; j <= n; j++) {
-				for (i = 1; i <= m; i++)
-					if (bl[i][j][k] < BLTHRESH)
-						u[i][j][k] = 0.5f * (u[i][j][k + 1] + u[i][j][k - 1]);
+		if (fk == 2)
+			for (i = 1; i <= n; i++) {
+				for (j = 1; j <= m; j++) {
+					int p = g.index(i, j, 2);
+					for (k = 2; k <= l_; k += 2, p += 2)
+						if ((bl == null) || (bl[p] < BLTHRESH))
+							u[p] = (l_ % 2 == 1 ? 0.5f * (u[p + 1] + u[p - 1])
+									: u[p - 1]);
+				}
 			}
-		}
 
-		bc.refreshBoundaryConditions(u);
+		bc.refreshBoundaryConditions(u, g);
 	}
 
 	/**
@@ -249,6 +248,16 @@ public abstract class MultigridUtils {
 					u[i][j][k] = val;
 	}
 
+	/**
+	 * Set all entries of a grid (including padding) to value val
+	 * 
+	 * @param u
+	 * @param val
+	 */
+	public static void setValues(float u[], float val) {
+		java.util.Arrays.fill(u, val);
+	}
+
 	/**
 	 * Set all entries of a boolena matrix to value val
 	 * 
@@ -263,29 +272,156 @@ public abstract class MultigridUtils {
 	}
 
 	/**
-	 * Add every entry of matrix b to the corresponding entry in matrix a
+	 * Add every entry of array b to the corresponding entry in array a
+	 * 
+	 * @param a
+	 * @param b
+	 */
+	static void addTo(float a[], float b[]) {
+		for (int p = 0; p < a.length; p++)
+			a[p] += b[p];
+	}
+
+	/**
+	 * Subtract every entry of array b to the corresponding entry in array a.
+	 * 
+	 * @param a
+	 * @param b
+	 */
+	static void subtractTo(float a[], float b[]) {
+		for (int p = 0; p < a.length; p++)
+			a[p] -= b[p];
+	}
+
+	/**
+	 * Copy every entry of array a to the corresponding entry in array b
 	 * 
 	 * @param a
 	 * @param b
 	 */
-	static void addTo(float a[][][], float b[][][]) {
-		for (int i = 0; i < a.length; i++)
-			for (int j = 0; j < a[i].length; j++)
-				for (int k = 0; k < a[i][j].length; k++)
-					a[i][j][k] += b[i][j][k];
+	static void copyTo(float a[], float b[]) {
+		System.arraycopy(a, 0, b, 0, a.length);
 	}
 
 	/**
-	 * Subtract every entry of matrix b to the corresponding entry in matrix a.
+	 * Find the maximum absolute difference between the entries of a and b
+	 * (except padding)
 	 * 
 	 * @param a
 	 * @param b
+	 * @param g
+	 *            layout of a and b
+	 * @return the maximum of |a - b|
 	 */
-	static void subtractTo(float a[][][], float b[][][]) {
-		for (int i = 0; i < a.length; i++)
-			for (int j = 0; j < a[i].length; j++)
-				for (int k = 0; k < a[i][j].length; k++)
-					a[i][j][k] -= b[i][j][k];
+	static float maxDifference(float a[], float b[], GridLevel g) {
+		float max = 0;
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++) {
+					float d = Math.abs(a[p] - b[p]);
+					max = (d > max ? d : max);
+				}
+			}
+		return max;
+	}
+
+	/**
+	 * Solve the banded linear system A x = f by LU factorisation without
+	 * pivoting, which is stable for the diagonally dominant systems of the
+	 * linearised diffusion-reaction operator. Row r of A is stored in a from
+	 * a[r * (2 * b + 1)], so that entry (r, c) is at a[r * (2 * b + 1) + c - r
+	 * + b]. Both a and f are overwritten, f with the solution x.
+	 * 
+	 * @param a
+	 *            band of the matrix, overwritten by its LU factors
+	 * @param f
+	 *            right hand side, overwritten by the solution
+	 * @param n
+	 *            number of unknowns
+	 * @param b
+	 *            half bandwidth
+	 * @return false if a zero or non-finite pivot was found
+	 */
+	static boolean solveBanded(double[] a, double[] f, int n, int b) {
+		int w = 2 * b + 1;
+		// forward elimination
+		for (int r = 0; r < n; r++) {
+			double pivot = a[r * w + b];
+			if ((pivot == 0) || Double.isNaN(pivot) || Double.isInfinite(pivot))
+				return false;
+			int last = Math.min(n - 1, r + b);
+			for (int s = r + 1; s <= last; s++) {
+				double factor = a[s * w + r - s + b] / pivot;
+				if (factor == 0)
+					continue;
+				for (int c = r + 1; c <= last; c++)
+					a[s * w + c - s + b] -= factor * a[r * w + c - r + b];
+				f[s] -= factor * f[r];
+			}
+		}
+		// back substitution
+		for (int r = n - 1; r >= 0; r--) {
+			double sum = f[r];
+			int last = Math.min(n - 1, r + b);
+			for (int c = r + 1; c <= last; c++)
+				sum -= a[r * w + c - r + b] * f[c];
+			f[r] = sum / a[r * w + b];
+		}
+		return true;
+	}
+
+	/**
+	 * Solve the dense linear system A x = f by Gaussian elimination with
+	 * partial pivoting. Entry (r, c) of A is at a[r * n + c] and f is at
+	 * a[n * n] to a[n * n + n - 1]. The array is overwritten, f with the
+	 * solution x.
+	 * 
+	 * @param a
+	 *            the matrix followed by the right hand side
+	 * @param n
+	 *            number of unknowns
+	 * @return false if the matrix is singular or has non-finite entries
+	 */
+	static boolean solveDense(double[] a, int n) {
+		int f = n * n;
+		// forward elimination
+		for (int r = 0; r < n; r++) {
+			// choose the row with the largest pivot
+			int m = r;
+			for (int s = r + 1; s < n; s++)
+				if (Math.abs(a[s * n + r]) > Math.abs(a[m * n + r]))
+					m = s;
+			if (m != r) {
+				for (int c = r; c < n; c++) {
+					double aux = a[r * n + c];
+					a[r * n + c] = a[m * n + c];
+					a[m * n + c] = aux;
+				}
+				double aux = a[f + r];
+				a[f + r] = a[f + m];
+				a[f + m] = aux;
+			}
+			double pivot = a[r * n + r];
+			if ((pivot == 0) || Double.isNaN(pivot) || Double.isInfinite(pivot))
+				return false;
+			for (int s = r + 1; s < n; s++) {
+				double factor = a[s * n + r] / pivot;
+				if (factor == 0)
+					continue;
+				for (int c = r + 1; c < n; c++)
+					a[s * n + c] -= factor * a[r * n + c];
+				a[f + s] -= factor * a[f + r];
+			}
+		}
+		// back substitution
+		for (int r = n - 1; r >= 0; r--) {
+			double sum = a[f + r];
+			for (int c = r + 1; c < n; c++)
+				sum -= a[r * n + c] * a[f + c];
+			a[f + r] = sum / a[r * n + r];
+		}
+		return true;
 	}
 
 	/**
@@ -322,6 +458,25 @@ public abstract class MultigridUtils {
 		return min;
 	}
 
+	/**
+	 * Find minimum value in a grid (except padding)
+	 * 
+	 * @param a
+	 * @param g
+	 *            layout of a
+	 * @return the minimum value in the grid
+	 */
+	public static float min(float a[], GridLevel g) {
+		float min = a[g.index(1, 1, 1)];
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++)
+					min = (a[p] < min ? a[p] : min);
+			}
+		return min;
+	}
+
 	/**
 	 * Find maximum value in a 3D matrix
 	 * 
@@ -337,6 +492,25 @@ public abstract class MultigridUtils {
 		return max;
 	}
 
+	/**
+	 * Find maximum value in a grid (except padding)
+	 * 
+	 * @param a
+	 * @param g
+	 *            layout of a
+	 * @return the maximum value in the grid
+	 */
+	public static float max(float a[], GridLevel g) {
+		float max = a[g.index(1, 1, 1)];
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++)
+					max = (a[p] > max ? a[p] : max);
+			}
+		return max;
+	}
+
 	/**
 	 * compute the norm of matrix (except padding)
 	 * 
@@ -351,6 +525,46 @@ public abstract class MultigridUtils {
 					norm += ExtraMath.sq(a[i][j][k]);
 		return (float) Math.sqrt(norm);
 	}
+
+	/**
+	 * compute the norm of a grid (except padding)
+	 * 
+	 * @param a
+	 * @param g
+	 *            layout of a
+	 * @return the norm of the grid
+	 */
+	public static float computeNorm(float[] a, GridLevel g) {
+		float norm = 0;
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++)
+					norm += ExtraMath.sq(a[p]);
+			}
+		return (float) Math.sqrt(norm);
+	}
+
+	/**
+	 * compute the norm of a grid (except padding), summing the squares in
+	 * double precision
+	 * 
+	 * @param a
+	 * @param g
+	 *            layout of a
+	 * @return the norm of the grid
+	 */
+	public static float computeNormInDouble(float[] a, GridLevel g) {
+		double norm = 0;
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++)
+					norm += (double) a[p] * a[p];
+			}
+		return (float) Math.sqrt(norm);
+	}
+
 	/**
 	 * @param a
 	 * @return the sum of all elements of a
@@ -364,6 +578,23 @@ public abstract class MultigridUtils {
 		return sum;
 	}
 
+	/**
+	 * @param a
+	 * @param g
+	 *            layout of a
+	 * @return the sum of all elements of a (except padding)
+	 */
+	public static float computeSum(float[] a, GridLevel g) {
+		float sum = 0;
+		for (int i = 1; i <= g.n; i++)
+			for (int j = 1; j <= g.m; j++) {
+				int p = g.index(i, j, 1);
+				for (int k = 1; k <= g.l; k++, p++)
+					sum += a[p];
+			}
+		return sum;
+	}
+
 	/**
 	 * Return values in a matrix (excluding boundaries) as a formatted string
 	 * 
@@ -6,11 +6,14 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import nl.tudelft.bt.model.*;
 import nl.tudelft.bt.model.exceptions.*;
 import nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions;
 import nl.tudelft.bt.model.multigrid.boundary_layers.BoundaryLayer;
+import nl.tudelft.bt.model.reaction.ReactionKernel;
 
 /**
  * Implements a 3D state variable at multigrid resolutions. Common base class
@@ -30,6 +33,9 @@ public class MultigridVariable implements Serializable {
 	// index of coarsestgrid
 	protected static final int COARSEST = 0;
 
+	// directions with this number of elements or less are not coarsened
+	protected static final int MIN_COARSENED_SIZE = 3;
+
 	// Default values. May be reset using setSteps()
 	protected static final int VCYCLES = 10;
 
@@ -37,6 +43,70 @@ public class MultigridVariable implements Serializable {
 
 	// works)
 
+	/**
+	 * Coarsest grid solved by red-black relaxation sweeps
+	 */
+	public static final int COARSEST_RELAXATION = 0;
+
+	/**
+	 * Coarsest grid solved by Newton iterations, each solving the linearised
+	 * system directly. Falls back to relaxation sweeps if the direct solution
+	 * fails or does not converge.
+	 */
+	public static final int COARSEST_NEWTON = 1;
+
+	// maximum number of Newton iterations for the coarsest grid
+	protected static final int NNEWTON = 20;
+
+	/**
+	 * Smoothing by red-black relaxation sweeps over the whole grid
+	 */
+	public static final int SMOOTHING_SWEEPS = 0;
+
+	/**
+	 * Smoothing by red-black relaxation sweeps tiled in space and time: a few
+	 * consecutive sweeps are performed over a tile of a few planes before
+	 * moving to the next tile, so that the values of the tile are reused
+	 * while in cache (see setTiling)
+	 */
+	public static final int SMOOTHING_TILED = 1;
+
+	/**
+	 * All values computed in single precision (float)
+	 */
+	public static final int PRECISION_SINGLE = 0;
+
+	/**
+	 * Concentrations stored and relaxed in single precision, but the
+	 * L-operator used for the right hand side of the coarser grids and the
+	 * residual and truncation error norms used to check convergence are
+	 * computed in double precision
+	 */
+	public static final int PRECISION_MIXED = 1;
+
+	/**
+	 * Solutes solved for the pseudo-steady state
+	 */
+	public static final int TIME_STEADY_STATE = 0;
+
+	/**
+	 * Solutes integrated in time by the backward Euler method over the time
+	 * elapsed since the previous solve (see setTimeIntegration)
+	 */
+	public static final int TIME_BACKWARD_EULER = 1;
+
+	/**
+	 * Solutes integrated in time by the second order backward
+	 * differentiation formula (BDF2) with variable time step, using the
+	 * solutions of the two previous solves (see setTimeIntegration)
+	 */
+	public static final int TIME_BDF2 = 2;
+
+	// default number of planes of a tile and of sweeps per tile
+	protected static final int TILE_PLANES = 4;
+
+	protected static final int TILE_SWEEPS = 4;
+
 	protected static int nPreSteps = 50;
 
 	// pre-smoothing steps (5 works on simple systems, 50 works on double
@@ -47,14 +117,99 @@ public class MultigridVariable implements Serializable {
 	// substrate limitation)
 	protected static final float ALPHA = 0.33f; // post-smoothing steps
 
+	// maximum number of V-cycles per grid level. May be reset using
+	// setMaximumCycles()
+	private static int _maxVCycles = VCYCLES;
+
+	// maximum number of sweeps for the coarsest grid solution
+	private static int _maxCoarsestSweeps = NSOLVE;
+
+	// number of V-cycles and coarsest grid sweeps used in the last solve
+	private static int _vCyclesUsed;
+
+	private static int _coarsestSweepsUsed;
+
+	// type of cycle and number of smoothing sweeps on each grid. May be reset
+	// using setCycleStrategy()
+	private static CycleStrategy _cycleStrategy = new CycleStrategy(
+			CycleStrategy.V_CYCLE);
+
+	// method used to solve the coarsest grid. May be reset using
+	// setCoarsestSolver()
+	private static int _coarsestSolver = COARSEST_NEWTON;
+
+	// number of Newton iterations on the coarsest grid used in the last solve
+	private static int _coarsestNewtonStepsUsed;
+
+	// time integration of the solutes. May be reset using
+	// setTimeIntegration()
+	private static int _timeIntegration = TIME_STEADY_STATE;
+
+	// time elapsed since the previous solve, for the transient modes (0 if
+	// the next solve is for the pseudo-steady state)
+	private static float _transientTimeStep = 0;
+
+	// coefficients of the time derivative in the present solve: the term
+	// -_timeCoefficient * u is added to the rates, and the right hand side
+	// of the finest grid is -(_previousCoefficient * u(n) +
+	// _olderCoefficient * u(n-1)). All are 0 for the pseudo-steady state
+	private static float _timeCoefficient = 0;
+
+	private static float _previousCoefficient = 0;
+
+	private static float _olderCoefficient = 0;
+
+	// precision of the solver. May be reset using setPrecision()
+	private static int _precision = PRECISION_SINGLE;
+
+	// smoother used on grids finer than the coarsest. May be reset using
+	// setSmoother()
+	private static int _smoother = SMOOTHING_SWEEPS;
+
+	// size of the tiles of the tiled smoother. May be reset using
+	// setTiling()
+	private static int _tilePlanes = TILE_PLANES;
+
+	private static int _tileSweeps = TILE_SWEEPS;
+
+	// false if any coarsest grid solution of the last solve did not converge
+	private static boolean _coarsestConverged;
+
+	// number of relaxation sweeps on grids finer than the coarsest used in
+	// the last solve
+	private static int _relaxationSweepsUsed;
+
+	// wall time [ns] of each phase of the last solve: smoothing, transfer
+	// between grids, coarsest grid solution and convergence checks
+	private static long _smoothingTime;
+
+	private static long _transferTime;
+
+	private static long _coarsestTime;
+
+	private static long _residualTime;
+
+	// wall time [ns] of the last solve
+	private static long _solveTime;
+
+	// if true, solve starts from the solution of the previous solve
+	private static boolean _warmStart = false;
+
+	// finest grid of the boundary layer used in the previous solve
+	private static float[] _previousBoundaryLayer;
+
 	private static final float PRECISION = 1e-6f; // required precision
 
 	protected String _name;
 
 	// holds the multi-grid values for a variable
 	// set access control to public when boundary layers where placed on
-	// a different package
-	public float[][][][] _mg;
+	// a different package. The values of each grid order are stored in a
+	// contiguous array with the layout of _levels
+	public float[][] _mg;
+
+	// layout of the values of each grid order
+	protected static GridLevel[] _levels;
 
 	// sizes of finest grid
 	protected static int _l;
@@ -63,6 +218,10 @@ public class MultigridVariable implements Serializable {
 
 	protected static int _n; // vertical size
 
+	// vertical size of a grid covering the whole system, larger than _n if
+	// the grid was cropped vertically (see cropGridVertically)
+	protected static int _nSystem;
+
 	// multigrid order
 	protected static int _order;
 
@@ -89,11 +248,34 @@ public class MultigridVariable implements Serializable {
 	// grid is set lock
 	private static boolean _gridIsSet = false;
 
-	// a static 3D array for neighborhood computations in relax
-	private static final float[][][] _diff = new float[3][3][3];
+	// cursor used by the serial computations of the solver
+	private static final VoxelCursor _serialCursor = new VoxelCursor();
+
+	// cursor mirroring the present location (_g, _i, _j, _k)
+	private static final VoxelCursor _currentVoxel = new VoxelCursor();
+
+	// fork/join pool for relaxation (null if relaxation is serial)
+	private static ForkJoinPool _pool;
+
+	// a voxel cursor for each slab relaxed in the pool
+	private static VoxelCursor[] _slabCursors;
+
+	// true if the present solve relaxes slabs in the pool
+	private static boolean _relaxInParallel = false;
+
+	private static boolean _warnedSerialRelaxation = false;
+
+	// kernel computing the rates of all solutes at once during relaxation
+	// (null if the rates are computed for each solute separately)
+	private static ReactionKernel _ratesKernel;
 
-	// a static array for rate and rate derivative computations in relax
-	private static final float[] _rDr = new float[2];
+	// true if the solutes of a voxel are relaxed together, solving the
+	// coupled Newton update (may be set using setCoupledRelaxation())
+	private static boolean _coupledRelaxation = false;
+
+	// kernel evaluating the diffusion operator for runs of voxels (null if
+	// the scalar code is used). May be set using setVectorStencil()
+	private static StencilKernel _stencil;
 
 	// an auxiliry variable
 	private static final DiscreteCoordinate _auxDiscreteCoordinate = new DiscreteCoordinate();
@@ -104,6 +286,9 @@ public class MultigridVariable implements Serializable {
 	// the boundary conditions
 	protected static BoundaryConditions _boundaryConditions;
 
+	// incremented each time the boundary conditions are set
+	static int _boundaryConditionsVersion;
+
 	// the reference to model (static)
 	protected static Model _model = Model.model();
 
@@ -116,38 +301,103 @@ public class MultigridVariable implements Serializable {
 	public MultigridVariable() throws MultigridSystemNotSetException {
 		if (!_gridIsSet)
 			throw new MultigridSystemNotSetException();
-		_mg = new float[_order][][][];
+		_mg = new float[_order][];
 		for (int i = 0; i < _order; i++) {
-			int n = MultigridUtils.coarserSize(_n, _order - i - 1);
-			int m = MultigridUtils.coarserSize(_m, _order - i - 1);
-			int l = MultigridUtils.coarserSize(_l, _order - i - 1);
 			// with padding for boundary conditions
-			_mg[i] = new float[n + 2][m + 2][l + 2];
+			_mg[i] = new float[_levels[i].length];
+		}
+	}
+
+	/**
+	 * Create the layout of each grid order from the size of the finest grid,
+	 * setting _order. Each direction is coarsened independently (see
+	 * GridLevel.coarserSize) while it has more than MIN_COARSENED_SIZE
+	 * elements. Of these directions, only those with a spacing less than
+	 * twice the smallest spacing are coarsened (semi-coarsening), so that the
+	 * coarser grids do not become more anisotropic than needed. For grids of
+	 * equal sizes all directions are coarsened together, down to 3 elements
+	 * along each direction if the size is 2^i + 1. The coarsest grid is
+	 * whatever remains when no direction can be coarsened further.
+	 */
+	private static void createLevels() {
+		// spacing of the finest grid
+		float h = _referenceSystemSide / ((float) _m - 1);
+		// each grid order halves at least one direction
+		GridLevel[] levels = new GridLevel[3 * 32];
+		levels[0] = new GridLevel(_n, _m, _l, h, 1, 1, 1, 1, 1, 1);
+		int nLevels = 1;
+		// spacing along each direction, in units of h
+		int ti = 1;
+		int tj = 1;
+		int tk = 1;
+		while (true) {
+			GridLevel f = levels[nLevels - 1];
+			// directions that may be coarsened and their smallest spacing
+			boolean ci = f.n > MIN_COARSENED_SIZE;
+			boolean cj = f.m > MIN_COARSENED_SIZE;
+			boolean ck = f.l > MIN_COARSENED_SIZE;
+			if (!(ci | cj | ck))
+				break;
+			int tMin = Integer.MAX_VALUE;
+			if (ci)
+				tMin = Math.min(tMin, ti);
+			if (cj)
+				tMin = Math.min(tMin, tj);
+			if (ck)
+				tMin = Math.min(tMin, tk);
+			ci &= ti < 2 * tMin;
+			cj &= tj < 2 * tMin;
+			ck &= tk < 2 * tMin;
+			int fi = (ci ? 2 : 1);
+			int fj = (cj ? 2 : 1);
+			int fk = (ck ? 2 : 1);
+			ti *= fi;
+			tj *= fj;
+			tk *= fk;
+			levels[nLevels++] = new GridLevel((ci ? GridLevel
+					.coarserSize(f.n) : f.n), (cj ? GridLevel
+					.coarserSize(f.m) : f.m), (ck ? GridLevel
+					.coarserSize(f.l) : f.l), h, ti, tj, tk, fi, fj, fk);
 		}
+		// grid order 0 is the coarsest
+		_order = nLevels;
+		_levels = new GridLevel[_order];
+		for (int g = 0; g < _order; g++)
+			_levels[g] = levels[_order - 1 - g];
+	}
+
+	/**
+	 * @param g
+	 *            grid order
+	 * @return the layout of the values of grid order g
+	 */
+	public static GridLevel getGridLevel(int g) {
+		return _levels[g];
 	}
 
 	/**
-	 * Set the discrete grid properties. The grid size must be of the for n =
-	 * 2^i + 1, where i is an integer. This implementation is for 3D cubic and
-	 * 2D square systems.
+	 * Set the discrete grid properties. The sizes may differ and need not be
+	 * of the form 2^i + 1, since each direction is coarsened independently
+	 * (see createLevels). The voxels of the finest grid are cubic, with side
+	 * set by the horizontal size m, so that n sets the height of the system.
+	 * Sizes of the form 2^i + 1 give the best coarsening. For 2D systems l is
+	 * 1.
 	 * 
 	 * @param n
-	 *            grid size
+	 *            vertical grid size
+	 * @param m
+	 *            horizontal grid size
+	 * @param l
+	 *            horizontal grid size (1 for 2D)
 	 * @throws InvalidValueException
-	 *             in case n is not of the form n = 2^i + 1
+	 *             in case a size is smaller than 1, or m smaller than 2
 	 */
 	static public void setGrid(int n, int m, int l)
 			throws InvalidValueException {
-		// compute orders and check validity of grid
-		int on = MultigridUtils.order(n);
-		int om = MultigridUtils.order(m);
-		// determine the order of the system
-		_order = Math.min(on, om);
-		if (l != 1) {
-			// 3D
-			int ol = MultigridUtils.order(l);
-			_order = Math.min(_order, ol);
-		}
+		// check validity of grid
+		if ((n < 1) || (m < 2) || (l < 1))
+			throw new InvalidValueException("invalid grid size (" + n + ", "
+					+ m + ", " + l + ")");
 		// compute the volume of one finest grid element
 		_referenceSystemSide = _model.referenceSystemSide;
 		_voxelSide = _referenceSystemSide / m;
@@ -156,10 +406,73 @@ public class MultigridVariable implements Serializable {
 		_n = n;
 		_m = m;
 		_l = l;
+		_nSystem = n;
+		createLevels();
+		// solutions from a previous grid can not be used for warm start
+		_previousBoundaryLayer = null;
 		// open the lock, so new variables can be created
 		_gridIsSet = true;
 	}
 
+	/**
+	 * Crop the grid vertically to the n lower planes of the grid covering the
+	 * whole system (or restore it, if n is the vertical size of the whole
+	 * system), keeping the other sizes. The finest grid of the variables
+	 * created before must be mapped to the new grid by adaptToGrid.
+	 * 
+	 * @param n
+	 *            vertical size of the cropped grid (2^i + 1)
+	 * @throws InvalidValueException
+	 *             if n is not valid or larger than the vertical size of the
+	 *             whole system
+	 */
+	public static void cropGridVertically(int n) throws InvalidValueException {
+		if (n > _nSystem)
+			throw new InvalidValueException("cropped grid size (" + n
+					+ ") larger than system grid size (" + _nSystem + ")");
+		int nSystem = _nSystem;
+		setGrid(n, _m, _l);
+		_nSystem = nSystem;
+	}
+
+	/**
+	 * @return vertical size of the finest grid
+	 */
+	public static int getVerticalGridSize() {
+		return _n;
+	}
+
+	/**
+	 * @return vertical size of a finest grid covering the whole system,
+	 *         which is larger than getVerticalGridSize() if the grid is
+	 *         cropped
+	 */
+	public static int getSystemVerticalGridSize() {
+		return _nSystem;
+	}
+
+	/**
+	 * Allocate the grids of this variable again after the grid was cropped
+	 * (see cropGridVertically), keeping the values of the finest grid in the
+	 * planes present in both grids. Since the first index is vertical, these
+	 * are the first entries of the contiguous array. The other planes of the
+	 * finest grid are set to value and the coarser grids to 0.
+	 * 
+	 * @param value
+	 *            value of the planes not present in the previous grid
+	 */
+	public void adaptToGrid(float value) {
+		float[] previous = _mg[_mg.length - 1];
+		_mg = new float[_order][];
+		for (int i = 0; i < _order; i++)
+			_mg[i] = new float[_levels[i].length];
+		float[] u = _mg[_order - 1];
+		int kept = Math.min(previous.length, u.length);
+		System.arraycopy(previous, 0, u, 0, kept);
+		for (int p = kept; p < u.length; p++)
+			u[p] = value;
+	}
+
 	/**
 	 * Convert continuous coordinate into indexes of the discrete grid
 	 * 
@@ -177,7 +490,7 @@ public class MultigridVariable implements Serializable {
 
 	public static int snapToDiscreteI(float x) {
 		// NOTE + 1 acounts for padding
-		return (int) ((x / _model.systemSize.x) * (float) _n) + 1;
+		return (int) ((x / _model.systemSize.x) * (float) _nSystem) + 1;
 	}
 
 	public static int snapToDiscreteJ(float y) {
@@ -213,7 +526,7 @@ public class MultigridVariable implements Serializable {
 	}
 
 	public static float convertDiscreteToContinuousX(int i) {
-		return (((float) i) - 0.5f) * _model.systemSize.x / ((float) _n);
+		return (((float) i) - 0.5f) * _model.systemSize.x / ((float) _nSystem);
 	}
 
 	public static float convertDiscreteToContinuousY(int j) {
@@ -247,6 +560,30 @@ public class MultigridVariable implements Serializable {
 		return _presentLocation;
 	}
 
+	/**
+	 * Set the present grid and indexes to those of a voxel cursor
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 */
+	public static void setCurrentVoxel(VoxelCursor v) {
+		_g = v.g;
+		_i = v.i;
+		_j = v.j;
+		_k = v.k;
+	}
+
+	/**
+	 * Get a cursor pointing to the present grid and indexes. The cursor
+	 * returned is shared, so it may only be used by serial computations.
+	 * 
+	 * @return voxel cursor for the present location
+	 */
+	public static VoxelCursor getCurrentVoxel() {
+		_currentVoxel.set(_g, _i, _j, _k);
+		return _currentVoxel;
+	}
+
 	
 	/**
 	 * Get the current value
@@ -254,7 +591,18 @@ public class MultigridVariable implements Serializable {
 	 * @return value for current multigrid entry
 	 */
 	public float getValue() {
-		return _mg[_g][_i][_j][_k];
+		return _mg[_g][_levels[_g].index(_i, _j, _k)];
+	}
+
+	/**
+	 * Get the value at the voxel pointed to by a cursor
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return value for multigrid entry at v
+	 */
+	public float getValue(VoxelCursor v) {
+		return _mg[v.g][v.index];
 	}
 
 	/**
@@ -266,7 +614,7 @@ public class MultigridVariable implements Serializable {
 	 */
 	public float getValueAt(ContinuousCoordinate c) {
 		DiscreteCoordinate dc = snapToDiscrete(c);
-		return _mg[_order - 1][dc.i][dc.j][dc.k];
+		return _mg[_order - 1][_levels[_order - 1].index(dc.i, dc.j, dc.k)];
 	}
 
 	/**
@@ -278,7 +626,7 @@ public class MultigridVariable implements Serializable {
 	 * @return value at location i, j, k in finest grid
 	 */
 	public float getValueAt(int i, int j, int k) {
-		return _mg[_order - 1][i][j][k];
+		return _mg[_order - 1][_levels[_order - 1].index(i, j, k)];
 	}
 
 	/**
@@ -287,7 +635,7 @@ public class MultigridVariable implements Serializable {
 	 * @return maximum concentration of solute in system
 	 */
 	public float getMaximumValue() {
-		return MultigridUtils.max(_mg[_order - 1]);
+		return MultigridUtils.max(_mg[_order - 1], _levels[_order - 1]);
 	}
 
 	/**
@@ -296,7 +644,7 @@ public class MultigridVariable implements Serializable {
 	 * @return minimum concentration of solute in system
 	 */
 	public float getMinimumValue() {
-		return MultigridUtils.min(_mg[_order - 1]);
+		return MultigridUtils.min(_mg[_order - 1], _levels[_order - 1]);
 	}
 
 	/**
@@ -309,7 +657,7 @@ public class MultigridVariable implements Serializable {
 	 */
 	void incrementValueAt(ContinuousCoordinate c, float f) {
 		DiscreteCoordinate dc = snapToDiscrete(c);
-		_mg[_order - 1][dc.i][dc.j][dc.k] += f;
+		_mg[_order - 1][_levels[_order - 1].index(dc.i, dc.j, dc.k)] += f;
 	}
 
 	/**
@@ -328,7 +676,8 @@ public class MultigridVariable implements Serializable {
 	 */
 	protected void updateMultigridCopies() {
 		for (int i = _order - 1; i > COARSEST; i--) {
-			MultigridUtils.restrict(_mg[i], _mg[i - 1], _boundaryConditions);
+			MultigridUtils.restrict(_mg[i], _levels[i], _mg[i - 1],
+					_levels[i - 1], _boundaryConditions);
 		}
 	}
 
@@ -337,7 +686,8 @@ public class MultigridVariable implements Serializable {
 	 * final result, the concentrations of chemical species are updated. The
 	 * algorithm starts by udating the matrices of discrete data for the
 	 * bacteria species, after which it solves the rection diffusion equations
-	 * for all chemical sepcies using multigrid.
+	 * for all chemical sepcies using multigrid. A new workspace is allocated
+	 * for this solve.
 	 * 
 	 * @param chem
 	 * @param bac
@@ -347,416 +697,1952 @@ public class MultigridVariable implements Serializable {
 	 */
 	public static void solve(SoluteSpecies[] chem, ParticulateSpecies[] bac,
 			BoundaryLayer bl) throws MultigridSystemNotSetException {
-		// two temporary multigrid variables are needed for the
-		// computation, are initialized with 0 allover
-		MultigridVariable itemp = new MultigridVariable();
-		MultigridVariable itau = new MultigridVariable();
-		// create a relative diffusion data, so far it is 1 everywhere
-		RelativeDiffusion relDiff = new RelativeDiffusion();
+		solve(chem, bac, bl, new SolverWorkspace());
+	}
+
+	/**
+	 * Solve the reaction and diffusion equations to pseudo- steady state,
+	 * reusing the temporary variables and relative diffusivity of a workspace
+	 * 
+	 * @param chem
+	 * @param bac
+	 * @param bl
+	 * @param w
+	 *            the workspace of the solver
+	 * @throws MultigridSystemNotSetException
+	 */
+	public static void solve(SoluteSpecies[] chem, ParticulateSpecies[] bac,
+			BoundaryLayer bl, SolverWorkspace w)
+			throws MultigridSystemNotSetException {
+		long solveStart = System.nanoTime();
+		resetStatistics();
+		setUpRelaxation(chem);
 		bl.setBoundaryLayer(bac, _boundaryConditions);
-		relDiff.computeValues(bac, bl, _boundaryConditions);
-		// create multigrid copies of biomass and relative
-		// diffusion
+		// two temporary multigrid variables are needed for the
+		// computation, are set to 0 allover, and the relative diffusion
+		// data is computed if the grid or boundary conditions changed
+		w.prepare(bac, bl);
+		// a transient solve starts from the previous solution
+		boolean transientSolve = (_order > 1)
+				&& (_previousBoundaryLayer != null)
+				&& computeTimeCoefficients(chem, w);
+		MultigridVariable itemp = w.itemp;
+		MultigridVariable itau = w.itau;
+		RelativeDiffusion relDiff = w.relativeDiffusion;
+		// create multigrid copies of biomass
 		for (int i = 0; i < bac.length; i++) {
 			bac[i].updateMultigridCopies();
 		}
-		relDiff.updateMultigridCopies();
 		bl.updateMultigridCopies();
-		// Initialize concentration of all chemicals to value of
-		// bulk concentration
-		for (int i = 0; i < chem.length; i++) {
-			chem[i].resetMultigridCopies();
+		boolean warm = (_warmStart || transientSolve) && (_order > 1)
+				&& (_previousBoundaryLayer != null);
+		int firstOuter;
+		if (warm) {
+			// start from the previous solution, restricted to all grids
+			for (int i = 0; i < chem.length; i++) {
+				chem[i].warmStartMultigridCopies(bl, _previousBoundaryLayer);
+			}
+			// go straight to the V-cycles on the finest grid
+			firstOuter = _order - 1;
+		} else {
+			// Initialize concentration of all chemicals to value of
+			// bulk concentration
+			for (int i = 0; i < chem.length; i++) {
+				chem[i].resetMultigridCopies();
+			}
+			// solve chemical concentrations on coarsest grid
+			solveCoarsest(chem, relDiff, bl, w, true);
+			firstOuter = 1;
 		}
-		// solve chemical concentrations on coarsest grid
-		solveCoarsest(chem, relDiff, bl);
 		// nested iteration loop
-		for (int outer = 1; outer < _order; outer++) {
+		for (int outer = firstOuter; outer < _order; outer++) {
 			_g = outer;
+			long t = System.nanoTime();
 			for (int i = 0; i < chem.length; i++) {
-				MultigridUtils.interpolateBoundaryLayer(chem[i]._mg[_g],
-						chem[i]._mg[_g - 1], bl._mg[_g], _boundaryConditions);
-				// set each chemical's r.h.s. to 0
-				MultigridUtils.setValues(chem[i].rhs._mg[_g], 0.0f);
+				if (!warm)
+					MultigridUtils.interpolateBoundaryLayer(chem[i]._mg[_g],
+							_levels[_g], chem[i]._mg[_g - 1], _levels[_g - 1],
+							bl._mg[_g], _boundaryConditions);
+				// set each chemical's r.h.s. to 0, or to the terms of the
+				// previous solutions in the time derivative
+				if (transientSolve && (_g == _order - 1))
+					setTransientRightHandSide(chem[i], bl,
+							w.previousSolution[i], w.olderSolution[i]);
+				else
+					MultigridUtils.setValues(chem[i].rhs._mg[_g], 0.0f);
 			}
-			// V-cycle loop
-			for (int v = 0; v < VCYCLES; v++) {
-				// downward stroke of V
-				while (_g > 0) {
-					// pre-smoothing
-					for (int j = 0; j < nPreSteps; j++) {
-						relax(chem, relDiff, bl);
-					}
-					for (int j = 0; j < chem.length; j++) {
-						// restrict uh to uH
-						MultigridUtils.restrictBoundaryLayer(chem[j]._mg[_g],
-								chem[j]._mg[_g - 1], bl._mg[_g - 1],
-								_boundaryConditions);
-						//
-						lop(itemp, chem[j], relDiff, bl);
-						//
-						MultigridUtils.restrictBoundaryLayer(itemp._mg[_g],
-								itemp._mg[_g - 1], bl._mg[_g - 1],
-								_boundaryConditions);
-						// reduce grid value _g temporarily
-						_g--;
-						lop(itau, chem[j], relDiff, bl);
-						MultigridUtils.subtractTo(itau._mg[_g], itemp._mg[_g]);
-						// sum tau to rhs of _g - 1
-						MultigridUtils.restrictBoundaryLayer(
-								chem[j].rhs._mg[_g + 1], chem[j].rhs._mg[_g],
-								bl._mg[_g], _boundaryConditions);
-						MultigridUtils.addTo(chem[j].rhs._mg[_g], itau._mg[_g]);
-						// compute the truncation error for this V-cycle
-						// for all chemicals
-						if (_g + 1 == outer)
-							chem[j].truncationError = ALPHA
-									* MultigridUtils.computeNorm(itau._mg[_g]);
-						// put _g value back for remaining solutes
-						_g++;
-					}
-					// reduce grid value _g for good
-					_g--;
-				}
-				// bottom of V
-				solveCoarsest(chem, relDiff, bl);
-				// upward stroke of V
-				while (_g < outer) {
-					_g++;
-					for (int j = 0; j < chem.length; j++) {
-						MultigridUtils.restrictBoundaryLayer(chem[j]._mg[_g],
-								itemp._mg[_g - 1], bl._mg[_g - 1],
-								_boundaryConditions);
-						MultigridUtils.subtractTo(chem[j]._mg[_g - 1],
-								itemp._mg[_g - 1]);
-						MultigridUtils.interpolateBoundaryLayer(itau._mg[_g],
-								chem[j]._mg[_g - 1], bl._mg[_g],
-								_boundaryConditions);
-						MultigridUtils.addTo(chem[j]._mg[_g], itau._mg[_g]);
-					}
-					truncatePresentSoluteValuesToZero(chem, bl);
-					// post-smoothing
-					for (int j = 0; j < nPosSteps; j++) {
-						relax(chem, relDiff, bl);
-					}
-				}
+			_transferTime += System.nanoTime() - t;
+			// cycle loop (the type of cycle is set by the cycle strategy)
+			for (int v = 0; v < _maxVCycles; v++) {
+				_vCyclesUsed++;
+				cycle(chem, relDiff, bl, w, outer, _cycleStrategy.getType(),
+						!warm);
 				// break the V-cycles if remaining error is dominated
 				// by local truncation error (see p. 884 of Numerical Recipes)
+				// or is below the tolerance set for the solute.
+				// On the finest grid the residuals of all solutes are
+				// computed, to be reported by getResidual
+				t = System.nanoTime();
 				boolean breakVCycle = true;
 				for (int i = 0; i < chem.length; i++) {
 					// compute the residue for this solute species
-					lop(itemp, chem[i], relDiff, bl);
-					MultigridUtils.subtractTo(itemp._mg[_g],
-							chem[i].rhs._mg[_g]);
-					float res = MultigridUtils.computeNorm(itemp._mg[_g]);
-					// confirm that criterium is met for each solute
-					if (v > 0) {
-						System.out.println("grid " + _g + "; v " + v + "; "
-								+ chem[i]._name + " res " + res + "; truncerr "
-								+ chem[i].truncationError);
+					float res;
+					if (_precision == PRECISION_MIXED)
+						res = computeResidualNorm(chem[i], relDiff, bl);
+					else {
+						lop(itemp, chem[i], relDiff, bl);
+						MultigridUtils.subtractTo(itemp._mg[_g],
+								chem[i].rhs._mg[_g]);
+						res = MultigridUtils.computeNorm(itemp._mg[_g],
+								_levels[_g]);
 					}
+					chem[i].setResidual(res);
 					// confirm that criterium is met for each solute
-					if (res > chem[i].truncationError) {
+					if (!chem[i].hasConverged(res)) {
 						breakVCycle = false;
-						break;
+						if (outer < _order - 1)
+							break;
 					}
 				}
+				_residualTime += System.nanoTime() - t;
 				if (breakVCycle)
 					break;
 			}
 		}
+		// keep the boundary layer for warm starting the next solve
+		float[] blf = bl._mg[_order - 1];
+		if (_previousBoundaryLayer == null
+				|| _previousBoundaryLayer.length != blf.length)
+			_previousBoundaryLayer = new float[blf.length];
+		MultigridUtils.copyTo(blf, _previousBoundaryLayer);
+		// keep the solution for the time derivative of the next solve
+		if (_timeIntegration == TIME_STEADY_STATE)
+			w.clearSolutions();
+		else
+			w.storeSolution(chem, (transientSolve ? _transientTimeStep : 0));
+		_transientTimeStep = 0;
+		_timeCoefficient = 0;
+		_solveTime = System.nanoTime() - solveStart;
 	}
 
 	/**
-	 * Find solution for the coarsest grid. Sets the current grid to coarsest,
-	 * solutes values to 0 and relaxes NSOLVE times.
+	 * Correct the solution of the previous solve with a single cycle on the
+	 * finest grid, starting from the previous solution (as in warm start
+	 * mode). Used when the inputs of the solver changed little since the last
+	 * solve, so that the solution only needs a cheap correction. If there is
+	 * no previous solution a cold solve limited to one cycle per grid is done
+	 * instead.
+	 * 
+	 * @param chem
+	 * @param bac
+	 * @param bl
+	 * @param w
+	 *            the workspace of the solver
+	 * @throws MultigridSystemNotSetException
 	 */
-	private static void solveCoarsest(SoluteSpecies[] c, RelativeDiffusion d,
-			BoundaryLayer bl) {
-		_g = COARSEST;
-		float err = 0;
-		// reset coarsest grid to bulk concentration
-		for (int i = 0; i < c.length; i++) {
-			c[i].setValueCoarsestToBulk();
+	public static void correct(SoluteSpecies[] chem, ParticulateSpecies[] bac,
+			BoundaryLayer bl, SolverWorkspace w)
+			throws MultigridSystemNotSetException {
+		boolean warmStart = _warmStart;
+		int maxVCycles = _maxVCycles;
+		_warmStart = true;
+		_maxVCycles = 1;
+		try {
+			solve(chem, bac, bl, w);
+		} finally {
+			_warmStart = warmStart;
+			_maxVCycles = maxVCycles;
 		}
-		// relax NSOLVE times
-		for (int j = 0; j < NSOLVE; j++) {
-			relax(c, d, bl);
+	}
+
+	/**
+	 * Compute the coefficients of the time derivative for the present solve
+	 * from the time step set by setTransientTimeStep and the solutions stored
+	 * in the workspace. BDF2 falls back to backward Euler if only one
+	 * previous solution is known.
+	 * 
+	 * @param chem
+	 * @param w
+	 *            the workspace of the solver
+	 * @return true if the present solve is transient
+	 */
+	private static boolean computeTimeCoefficients(SoluteSpecies[] chem,
+			SolverWorkspace w) {
+		_timeCoefficient = 0;
+		_previousCoefficient = 0;
+		_olderCoefficient = 0;
+		float dt = _transientTimeStep;
+		if ((_timeIntegration == TIME_STEADY_STATE) || !(dt > 0)
+				|| (w.getNumberOfStoredSolutions(chem) == 0))
+			return false;
+		if ((_timeIntegration == TIME_BDF2)
+				&& (w.getNumberOfStoredSolutions(chem) == 2)
+				&& (w.previousTimeStep > 0)) {
+			// ratio of the present to the previous time step
+			float omega = dt / w.previousTimeStep;
+			_timeCoefficient = (1 + 2 * omega) / ((1 + omega) * dt);
+			_previousCoefficient = (1 + omega) / dt;
+			_olderCoefficient = -omega * omega / ((1 + omega) * dt);
+		} else {
+			_timeCoefficient = 1 / dt;
+			_previousCoefficient = 1 / dt;
 		}
+		return true;
 	}
 
 	/**
-	 * Make sure all solute concentration values for the present are not lower
-	 * than 0
+	 * Set the right hand side of a solute in the finest grid to the terms of
+	 * the time derivative with the previous solutions, inside the boundary
+	 * layer (0 elsewhere)
 	 * 
 	 * @param c
-	 *            array of the solute species in the system
 	 * @param bl
-	 *            the boundary layer
+	 * @param previous
+	 *            finest grid of the previous solution
+	 * @param older
+	 *            finest grid of the solution before the previous one
 	 */
-	private static void truncatePresentSoluteValuesToZero(SoluteSpecies[] c,
-			BoundaryLayer bl) {
-		int n = c[0]._mg[_g].length - 2;
-		int m = c[0]._mg[_g][0].length - 2;
-		int l = c[0]._mg[_g][0][0].length - 2;
-		float v;
-		for (_i = 1; _i <= n; _i++) {
-			for (_j = 1; _j <= m; _j++) {
-				for (_k = 1; _k <= l; _k++) {
-					for (int chem = 0; chem < c.length; chem++) {
-						if (bl._mg[_g][_i][_j][_k] < BLTHRESH) {
-							v = c[chem]._mg[_g][_i][_j][_k];
-							c[chem]._mg[_g][_i][_j][_k] = (v < 0 ? 0 : v);
-						}
-					}
-				}
+	private static void setTransientRightHandSide(SoluteSpecies c,
+			BoundaryLayer bl, float[] previous, float[] older) {
+		int f = _order - 1;
+		float[] rhs = c.rhs._mg[f];
+		MultigridUtils.setValues(rhs, 0.0f);
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(f, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(f, colour);
+			for (int q = 0; q < nVoxels; q++) {
+				int p = voxels[q];
+				rhs[p] = -_previousCoefficient * previous[p];
+				if (_olderCoefficient != 0)
+					rhs[p] -= _olderCoefficient * older[p];
 			}
 		}
 	}
 
 	/**
-	 * Perform relaxation for concentration of cehmical species at the current
-	 * grid order
+	 * Reset the counters and timers of the solver. Done at the start of each
+	 * solve, and by the model when a solve is skipped, so that the statistics
+	 * are not those of an earlier solve.
+	 */
+	public static void resetStatistics() {
+		_vCyclesUsed = 0;
+		_relaxationSweepsUsed = 0;
+		_coarsestSweepsUsed = 0;
+		_coarsestNewtonStepsUsed = 0;
+		_coarsestConverged = true;
+		_smoothingTime = 0;
+		_transferTime = 0;
+		_coarsestTime = 0;
+		_residualTime = 0;
+		_solveTime = 0;
+	}
+
+	/**
+	 * Perform one cycle of the full approximation scheme starting at the
+	 * current grid order, which is the same when the method returns. The
+	 * coarser grid is visited once (V_CYCLE), twice (W_CYCLE) or by an F-cycle
+	 * followed by a V-cycle (F_CYCLE), and the number of smoothing sweeps on
+	 * each grid order is given by the cycle strategy (see setCycleStrategy).
+	 * 
+	 * @param chem
+	 *            array of the solute species in the system
+	 * @param relDiff
+	 * @param bl
+	 * @param w
+	 *            the workspace of the solver, with the temporary multigrid
+	 *            variables
+	 * @param outer
+	 *            finest grid order of the present nested iteration
+	 * @param type
+	 *            type of cycle
+	 * @param reset
+	 *            if true, the coarsest grid is reset to bulk concentration
+	 *            before it is solved
+	 */
+	private static void cycle(SoluteSpecies[] chem, RelativeDiffusion relDiff,
+			BoundaryLayer bl, SolverWorkspace w, int outer, int type,
+			boolean reset) {
+		if (_g == COARSEST) {
+			// bottom of the cycle (when warm starting, begin from the
+			// restricted solution instead of the bulk concentration)
+			solveCoarsest(chem, relDiff, bl, w, reset);
+			return;
+		}
+		MultigridVariable itemp = w.itemp;
+		MultigridVariable itau = w.itau;
+		// pre-smoothing
+		long t = System.nanoTime();
+		int nPre = _cycleStrategy.getPreSmoothingSteps(_g);
+		smooth(chem, relDiff, bl, nPre);
+		_relaxationSweepsUsed += nPre;
+		_smoothingTime += System.nanoTime() - t;
+		t = System.nanoTime();
+		for (int j = 0; j < chem.length; j++) {
+			// restrict uh to uH
+			MultigridUtils.restrictBoundaryLayer(chem[j]._mg[_g], _levels[_g],
+					chem[j]._mg[_g - 1], _levels[_g - 1], bl._mg[_g - 1],
+					_boundaryConditions);
+			//
+			lop(itemp, chem[j], relDiff, bl);
+			//
+			MultigridUtils.restrictBoundaryLayer(itemp._mg[_g], _levels[_g],
+					itemp._mg[_g - 1], _levels[_g - 1], bl._mg[_g - 1],
+					_boundaryConditions);
+			// reduce grid value _g temporarily
+			_g--;
+			lop(itau, chem[j], relDiff, bl);
+			MultigridUtils.subtractTo(itau._mg[_g], itemp._mg[_g]);
+			// sum tau to rhs of _g - 1
+			MultigridUtils.restrictBoundaryLayer(chem[j].rhs._mg[_g + 1],
+					_levels[_g + 1], chem[j].rhs._mg[_g], _levels[_g],
+					bl._mg[_g], _boundaryConditions);
+			MultigridUtils.addTo(chem[j].rhs._mg[_g], itau._mg[_g]);
+			// compute the truncation error for this cycle
+			// for all chemicals
+			if (_g + 1 == outer)
+				chem[j].truncationError = ALPHA
+						* (_precision == PRECISION_MIXED ? MultigridUtils
+								.computeNormInDouble(itau._mg[_g], _levels[_g])
+								: MultigridUtils.computeNorm(itau._mg[_g],
+										_levels[_g]));
+			// put _g value back for remaining solutes
+			_g++;
+		}
+		_transferTime += System.nanoTime() - t;
+		// solve the coarser grid
+		_g--;
+		if (_g == COARSEST || type == CycleStrategy.V_CYCLE) {
+			cycle(chem, relDiff, bl, w, outer, type, reset);
+		} else if (type == CycleStrategy.W_CYCLE) {
+			cycle(chem, relDiff, bl, w, outer, type, reset);
+			cycle(chem, relDiff, bl, w, outer, type, reset);
+		} else {
+			cycle(chem, relDiff, bl, w, outer, CycleStrategy.F_CYCLE, reset);
+			cycle(chem, relDiff, bl, w, outer, CycleStrategy.V_CYCLE, reset);
+		}
+		_g++;
+		// correct with the coarser grid solution
+		t = System.nanoTime();
+		for (int j = 0; j < chem.length; j++) {
+			MultigridUtils.restrictBoundaryLayer(chem[j]._mg[_g], _levels[_g],
+					itemp._mg[_g - 1], _levels[_g - 1], bl._mg[_g - 1],
+					_boundaryConditions);
+			MultigridUtils.subtractTo(chem[j]._mg[_g - 1], itemp._mg[_g - 1]);
+			MultigridUtils.interpolateBoundaryLayer(itau._mg[_g], _levels[_g],
+					chem[j]._mg[_g - 1], _levels[_g - 1], bl._mg[_g],
+					_boundaryConditions);
+			MultigridUtils.addTo(chem[j]._mg[_g], itau._mg[_g]);
+		}
+		truncatePresentSoluteValuesToZero(chem, bl);
+		_transferTime += System.nanoTime() - t;
+		// post-smoothing
+		t = System.nanoTime();
+		int nPos = _cycleStrategy.getPostSmoothingSteps(_g);
+		smooth(chem, relDiff, bl, nPos);
+		_relaxationSweepsUsed += nPos;
+		_smoothingTime += System.nanoTime() - t;
+	}
+
+	/**
+	 * Find solution for the coarsest grid. Sets the current grid to coarsest
+	 * and solutes values to bulk (if reset is true). If the coarsest solver is
+	 * COARSEST_NEWTON, Newton iterations are tried first (see
+	 * solveCoarsestByNewton). Otherwise, or if they fail, relaxes until the
+	 * largest change in a sweep is below PRECISION times the largest
+	 * concentration, for all solutes, or until the maximum number of sweeps is
+	 * reached.
 	 * 
 	 * @param c
+	 *            array of the solute species in the system
 	 * @param d
 	 * @param bl
+	 * @param w
+	 *            the workspace of the solver, with the buffers of the solve
+	 * @param reset
+	 *            if true, the solutes are reset to bulk concentration
 	 */
-	private static void relax(SoluteSpecies[] c, RelativeDiffusion d,
-			BoundaryLayer bl) {
-		float r, dr;
-		int n = d._mg[_g].length - 2;
-		int m = d._mg[_g][0].length - 2;
-		int l = d._mg[_g][0][0].length - 2;
-		float h = _referenceSystemSide / ((float) n - 1);
-		float h2i = 0.5f / (h * h);
-		// red-black relaxation
-		// iterate through system
-		// isw, jsw and ksw alternate between values 1 and 2
-		int isw = 1;
-		int jsw, ksw;
-		for (int pass = 1; pass <= 2; pass++, isw = 3 - isw) {
-			jsw = isw;
-			for (_i = 1; _i <= n; _i++, jsw = 3 - jsw) {
-				ksw = jsw;
-				for (_j = 1; _j <= m; _j++, ksw = 3 - ksw) {
-					for (_k = ksw; _k <= l; _k += 2) {
-						for (int chem = 0; chem < c.length; chem++) {
-							if (bl._mg[_g][_i][_j][_k] < BLTHRESH) {
-								// Case: Inside boundary layer
-								// Equations must be solved here
-								float[][][] u = c[chem]._mg[_g];
-								//
-								c[chem]
-										.updateValuesForRateAndRateDerivative(_rDr);
-								r = _rDr[0];
-								dr = _rDr[1];
-								// compute diffusivity values
-								// and that of surrounding neighbors
-								float dc = c[chem].getDiffusivity();
-								_diff[0][1][1] = dc * d._mg[_g][_i - 1][_j][_k];
-								_diff[2][1][1] = dc * d._mg[_g][_i + 1][_j][_k];
-								_diff[1][0][1] = dc * d._mg[_g][_i][_j - 1][_k];
-								_diff[1][2][1] = dc * d._mg[_g][_i][_j + 1][_k];
-								_diff[1][1][0] = dc * d._mg[_g][_i][_j][_k - 1];
-								_diff[1][1][2] = dc * d._mg[_g][_i][_j][_k + 1];
-								_diff[1][1][1] = dc * d._mg[_g][_i][_j][_k];
-								// compute L operator
-								float lop = ((_diff[2][1][1] + _diff[1][1][1])
-										* (u[_i + 1][_j][_k] - u[_i][_j][_k])
-										+ (_diff[0][1][1] + _diff[1][1][1])
-										* (u[_i - 1][_j][_k] - u[_i][_j][_k])
-										+ (_diff[1][2][1] + _diff[1][1][1])
-										* (u[_i][_j + 1][_k] - u[_i][_j][_k])
-										+ (_diff[1][0][1] + _diff[1][1][1])
-										* (u[_i][_j - 1][_k] - u[_i][_j][_k])
-										+ (_diff[1][1][2] + _diff[1][1][1])
-										* (u[_i][_j][_k + 1] - u[_i][_j][_k]) + (_diff[1][1][0] + _diff[1][1][1])
-										* (u[_i][_j][_k - 1] - u[_i][_j][_k]))
-										* h2i + r;
-								// compute derivative of L operator
-								float dlop = -h2i
-										* (6.0f * _diff[1][1][1]
-												+ _diff[2][1][1]
-												+ _diff[0][1][1]
-												+ _diff[1][2][1]
-												+ _diff[1][0][1]
-												+ _diff[1][1][2] + _diff[1][1][0])
-										+ dr;
-								// compute residual
-								float res = (lop - c[chem].rhs._mg[_g][_i][_j][_k])
-										/ dlop;
-								// update concentration (test for NaN)
-								if (res != res) {
-									System.out.println("---------------------");
-									System.out.println("Multigrid problem:");
-									System.out.println("_g = " + _g);
-									System.out.println("_i = " + _i);
-									System.out.println("_j = " + _j);
-									System.out.println("_k = " + _k);
-									System.out.println("r = " + r);
-									System.out.println("dr = " + dr);
-									System.out.println("concentration rhs = "
-											+ c[chem].rhs._mg[_g][_i][_j][_k]);
-									System.out.println("dlop = " + dlop);
-									System.out
-											.println("rhs/dlop= "
-													+ (c[chem].rhs._mg[_g][_i][_j][_k] / dlop));
-									System.out.println("solute species:");
-									for (int s = 0; s < c.length; s++) {
-										System.out.println(c[s]._name
-												+ " (local) = "
-												+ c[s]._mg[_g][_i][_j][_k]);
-										System.out.println(c[s]._name
-												+ " (bulk) = "
-												+ c[s].getBulkConcentration());
-									}
-									// particulates:
-									System.out.println("particulate species:");
-									Collection ps = Model.model()
-											.getParticulateSpecies();
-									for (Iterator iter = ps.iterator(); iter
-											.hasNext();) {
-										ParticulateSpecies p = (ParticulateSpecies) iter
-												.next();
-										System.out.println(p._name + " = "
-												+ p._mg[_g][_i][_j][_k]);
-									}
-									System.out.println("---------------------");
-									String str = "NaN generated in multigrid solver "
-											+ "while computing rate for "
-											+ c[chem]._name;
-									throw new ModelRuntimeException(str);
-								}
-								u[_i][_j][_k] -= res;
-								// if negative concentrations, put 0 value
-								u[_i][_j][_k] = (u[_i][_j][_k] < 0 ? 0
-										: u[_i][_j][_k]);
-							}
-						}
-					}
-				}
-			}
-			// refresh the padding elements to enforce
-			// boundary conditions for all solutes
+	private static void solveCoarsest(SoluteSpecies[] c, RelativeDiffusion d,
+			BoundaryLayer bl, SolverWorkspace w, boolean reset) {
+		long t = System.nanoTime();
+		_g = COARSEST;
+		// reset coarsest grid to bulk concentration
+		if (reset)
 			for (int i = 0; i < c.length; i++)
-				_boundaryConditions.refreshBoundaryConditions(c[i]._mg[_g]);
+				c[i].setValueCoarsestToBulk();
+		w.prepareCoarsestPrevious(c.length);
+		float[][] previous = w.coarsestPrevious;
+		if ((_coarsestSolver == COARSEST_NEWTON)
+				&& solveCoarsestByNewton(c, d, bl, w)) {
+			_coarsestTime += System.nanoTime() - t;
+			return;
 		}
+		// relax until convergence
+		boolean converged = false;
+		for (int j = 0; (j < _maxCoarsestSweeps) && !converged; j++) {
+			for (int i = 0; i < c.length; i++)
+				MultigridUtils.copyTo(c[i]._mg[COARSEST], previous[i]);
+			relax(c, d, bl, j == 0);
+			_coarsestSweepsUsed++;
+			converged = hasCoarsestChangeConverged(c, previous);
+		}
+		if (!converged)
+			_coarsestConverged = false;
+		_coarsestTime += System.nanoTime() - t;
 	}
 
 	/**
-	 * Compute the L-operator
+	 * Check if the largest change of the coarsest grid values of every solute
+	 * is below PRECISION times its largest concentration
+	 * 
+	 * @param c
+	 *            array of the solute species in the system
+	 * @param previous
+	 *            the values of each solute before the change
+	 * @return true if the change is below the precision for all solutes
+	 */
+	private static boolean hasCoarsestChangeConverged(SoluteSpecies[] c,
+			float[][] previous) {
+		GridLevel lv = _levels[COARSEST];
+		for (int i = 0; i < c.length; i++) {
+			float[] u = c[i]._mg[COARSEST];
+			if (MultigridUtils.maxDifference(u, previous[i], lv) > PRECISION
+					* MultigridUtils.max(u, lv))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Solve the coarsest grid by Newton iterations. At each iteration the
+	 * L-operator is linearised about the present concentrations, using the
+	 * rate derivative of each solute with respect to its own concentration,
+	 * and the banded linear system of each solute is solved directly. The
+	 * dependence of the padding elements on the voxels they are copied from by
+	 * the boundary conditions is included in the linearisation (see
+	 * findPaddingSources). Iterates until the change is below the precision
+	 * used for the relaxation sweeps, or at most NNEWTON times. The arrays
+	 * used are the buffers of the workspace, and the padding sources are found
+	 * again only if the grid or the boundary conditions were changed.
 	 * 
-	 * @param res
 	 * @param c
+	 *            array of the solute species in the system
 	 * @param d
 	 * @param bl
-	 *            boundary layer definition
+	 * @param ws
+	 *            the workspace of the solver, with the buffers of the solve
+	 * @return true if converged, false if the relaxation sweeps should be
+	 *         used instead (the solutes are then set back to the values
+	 *         they had before the Newton solve)
 	 */
-	private static void lop(MultigridVariable res, SoluteSpecies c,
-			RelativeDiffusion d, BoundaryLayer bl) {
-		int n = d._mg[_g].length - 2;
-		int m = d._mg[_g][0].length - 2;
-		int l_ = d._mg[_g][0][0].length - 2;
-		float h = _referenceSystemSide / ((float) n - 1);
-		float h2i = 0.5f / (h * h);
-		float lop; // temporary variable for L-operator
-		// iterate through system
-		for (_k = 1; _k <= l_; _k++) {
-			for (_j = 1; _j <= m; _j++) {
-				for (_i = 1; _i <= n; _i++)
-					// compute lop only inside boundary layer
-					if (bl._mg[_g][_i][_j][_k] < BLTHRESH) {
-						// for simplification and easier access to
-						// the current solute data:
-						float[][][] u = c._mg[_g];
-						// current rate for this solute
-						float r = c.getRate();
-						// compute diffusivity values
-						// and that of surrounding neighbors
-						float dc = c.getDiffusivity();
-						_diff[0][1][1] = dc * d._mg[_g][_i - 1][_j][_k];
-						_diff[2][1][1] = dc * d._mg[_g][_i + 1][_j][_k];
-						_diff[1][0][1] = dc * d._mg[_g][_i][_j - 1][_k];
-						_diff[1][2][1] = dc * d._mg[_g][_i][_j + 1][_k];
-						_diff[1][1][0] = dc * d._mg[_g][_i][_j][_k - 1];
-						_diff[1][1][2] = dc * d._mg[_g][_i][_j][_k + 1];
-						_diff[1][1][1] = dc * d._mg[_g][_i][_j][_k];
-						// compute L operator
-						lop = ((_diff[2][1][1] + _diff[1][1][1])
-								* (u[_i + 1][_j][_k] - u[_i][_j][_k])
-								+ (_diff[0][1][1] + _diff[1][1][1])
-								* (u[_i - 1][_j][_k] - u[_i][_j][_k])
-								+ (_diff[1][2][1] + _diff[1][1][1])
-								* (u[_i][_j + 1][_k] - u[_i][_j][_k])
-								+ (_diff[1][0][1] + _diff[1][1][1])
-								* (u[_i][_j - 1][_k] - u[_i][_j][_k])
-								+ (_diff[1][1][2] + _diff[1][1][1])
-								* (u[_i][_j][_k + 1] - u[_i][_j][_k]) + (_diff[1][1][0] + _diff[1][1][1])
-								* (u[_i][_j][_k - 1] - u[_i][_j][_k]))
-								* h2i + r;
-						// update concentration (test for NaN)
-						if (lop != lop) {
-							System.out.println("---------------------");
-							System.out
-									.println("Multigrid problem (computing lop):");
-							System.out.println("_g = " + _g);
-							System.out.println("_i = " + _i);
-							System.out.println("_j = " + _j);
-							System.out.println("_k = " + _k);
-							System.out.println("r = " + r);
-							System.out.println("solute species:");
-							Collection ss = Model.model().getSoluteSpecies();
-							for (Iterator iter = ss.iterator(); iter.hasNext();) {
-								SoluteSpecies s = (SoluteSpecies) iter.next();
-								System.out.println(s._name + " = "
-										+ s._mg[_g][_i][_j][_k]);
-							}
-							// particulates:
-							System.out.println("particulate species:");
-							Collection ps = Model.model()
-									.getParticulateSpecies();
-							for (Iterator iter = ps.iterator(); iter.hasNext();) {
-								ParticulateSpecies p = (ParticulateSpecies) iter
-										.next();
-								System.out.println(p._name + " = "
-										+ p._mg[_g][_i][_j][_k]);
-							}
-							System.out.println("---------------------");
-							String str = "NaN generated in multigrid solver "
-									+ "while computing rate for " + c._name;
-							throw new ModelRuntimeException(str);
-						}
-						res._mg[_g][_i][_j][_k] = lop;
+	private static boolean solveCoarsestByNewton(SoluteSpecies[] c,
+			RelativeDiffusion d, BoundaryLayer bl, SolverWorkspace ws) {
+		GridLevel lv = _levels[COARSEST];
+		int si = lv.si;
+		int sj = lv.sj;
+		float h2i = lv.h2i;
+		float[] dg = d._mg[COARSEST];
+		float[] blg = bl._mg[COARSEST];
+		// number the unknowns in order of position, so that the matrix of
+		// each solute is banded
+		int[] row = ws.newtonRow;
+		int[] position = ws.newtonPosition;
+		int nRows = 0;
+		for (int p = 0; p < lv.length; p++)
+			row[p] = -1;
+		for (int i = 1; i <= lv.n; i++)
+			for (int j = 1; j <= lv.m; j++)
+				for (int k = 1, p = lv.index(i, j, 1); k <= lv.l; k++, p++)
+					if (blg[p] < BLTHRESH) {
+						row[p] = nRows;
+						position[nRows++] = p;
+					}
+		if (nRows == 0)
+			return true;
+		int[] offsets = { -si, si, -sj, sj, -1, 1 };
+		// 0.5/h^2 along the direction of each offset
+		float[] h2iOffset = { h2i * lv.wi, h2i * lv.wi, h2i * lv.wj,
+				h2i * lv.wj, h2i * lv.wk, h2i * lv.wk };
+		int[] source = ws.paddingSource;
+		float[] weight = ws.paddingWeight;
+		if (!ws.paddingSourcesFound) {
+			findPaddingSources(lv, source, weight);
+			ws.paddingSourcesFound = true;
+		}
+		// the column coupled to each neighbor of each row (-1 if the neighbor
+		// is constant) and the half bandwidth
+		int[] column = ws.newtonColumn;
+		int b = 0;
+		for (int r = 0; r < nRows; r++) {
+			for (int o = 0; o < 6; o++) {
+				int q = position[r] + offsets[o];
+				if (source[q] >= 0)
+					q = source[q];
+				column[r * 6 + o] = row[q];
+				if (row[q] >= 0)
+					b = Math.max(b, Math.abs(row[q] - r));
+			}
+		}
+		int w = 2 * b + 1;
+		ws.prepareNewtonSystems(c.length, nRows, w);
+		double[][] a = ws.newtonMatrix;
+		double[][] f = ws.newtonRightHandSide;
+		float[][] previous = ws.coarsestPrevious;
+		// keep the values Newton starts from, to be restored if it fails
+		float[][] start = ws.coarsestStart;
+		for (int s = 0; s < c.length; s++)
+			MultigridUtils.copyTo(c[s]._mg[COARSEST], start[s]);
+		VoxelCursor v = _serialCursor;
+		float[] rDr = v.rDr;
+		ReactionKernel kernel = _ratesKernel;
+		float[] allRDr = v.getRatesAndRateDerivatives(c.length);
+		v.g = COARSEST;
+		for (int step = 0; step < NNEWTON; step++) {
+			for (int s = 0; s < c.length; s++) {
+				MultigridUtils.copyTo(c[s]._mg[COARSEST], previous[s]);
+				java.util.Arrays.fill(a[s], 0, nRows * w, 0);
+			}
+			// assemble the linearised system of all solutes, evaluating the
+			// rates once per voxel
+			for (int r = 0; r < nRows; r++) {
+				int p = position[r];
+				v.setIndex(p);
+				if (kernel != null)
+					kernel.computeRatesAndRateDerivatives(allRDr, v);
+				for (int s = 0; s < c.length; s++) {
+					float rate, dRate;
+					if (kernel != null) {
+						rate = allRDr[2 * s];
+						dRate = allRDr[2 * s + 1];
+					} else {
+						c[s].updateValuesForRateAndRateDerivative(rDr, v);
+						rate = rDr[0];
+						dRate = rDr[1];
 					}
+					float[] u = c[s]._mg[COARSEST];
+					if (_timeCoefficient != 0) {
+						rate -= _timeCoefficient * u[p];
+						dRate -= _timeCoefficient;
+					}
+					float dc = c[s].getDiffusivity();
+					float d0 = dc * dg[p];
+					double lop = rate;
+					a[s][r * w + b] += dRate;
+					for (int o = 0; o < 6; o++) {
+						int q = p + offsets[o];
+						double coupling = (dc * dg[q] + d0) * h2iOffset[o];
+						lop += coupling * (u[q] - u[p]);
+						a[s][r * w + b] -= coupling;
+						int col = column[r * 6 + o];
+						if (col >= 0)
+							a[s][r * w + col - r + b] += coupling
+									* (source[q] >= 0 ? weight[q] : 1);
+					}
+					f[s][r] = lop - c[s].rhs._mg[COARSEST][p];
+				}
+			}
+			// solve for the Newton step of each solute and update
+			for (int s = 0; s < c.length; s++) {
+				if (!MultigridUtils.solveBanded(a[s], f[s], nRows, b)) {
+					restoreCoarsest(c, start);
+					return false;
+				}
+				float[] u = c[s]._mg[COARSEST];
+				for (int r = 0; r < nRows; r++) {
+					float u0 = (float) (u[position[r]] - f[s][r]);
+					if (u0 != u0) {
+						restoreCoarsest(c, start);
+						return false;
+					}
+					// if negative concentrations, put 0 value
+					u[position[r]] = (u0 < 0 ? 0 : u0);
+				}
+				_boundaryConditions.refreshBoundaryConditions(u, lv);
 			}
+			_coarsestNewtonStepsUsed++;
+			if (hasCoarsestChangeConverged(c, previous))
+				return true;
 		}
-		_boundaryConditions.refreshBoundaryConditions(res._mg[_g]);
+		restoreCoarsest(c, start);
+		return false;
 	}
 
 	/**
-	 * Solves the reaction-diffusion equation by relaxation. Slower alternative
-	 * to using method solve. NOTE: this method is to be used for testing
-	 * purposes.
+	 * Set the coarsest grid of every solute back to the values it had before
+	 * the Newton solve, refreshing the boundary conditions
 	 * 
-	 * @param chem
-	 * @param bac
+	 * @param c
+	 *            array of the solute species in the system
+	 * @param start
+	 *            the values of each solute before the Newton solve
 	 */
-	public static void solveByRelax(SoluteSpecies[] chem,
-			ParticulateSpecies[] bac, BoundaryLayer bl)
-			throws MultigridSystemNotSetException {
-		_g = _order - 1;
-		// create a relative diffusion data
-		RelativeDiffusion relDiff = new RelativeDiffusion();
-		bl.setBoundaryLayer(bac, _boundaryConditions);
-		relDiff.computeValues(bac, bl, _boundaryConditions);
+	private static void restoreCoarsest(SoluteSpecies[] c, float[][] start) {
+		GridLevel lv = _levels[COARSEST];
+		for (int s = 0; s < c.length; s++) {
+			MultigridUtils.copyTo(start[s], c[s]._mg[COARSEST]);
+			_boundaryConditions.refreshBoundaryConditions(c[s]._mg[COARSEST],
+					lv);
+		}
+	}
+
+	/**
+	 * Find how the boundary conditions set each padding element of a grid. All
+	 * boundary conditions set a padding element to an affine function, a + w *
+	 * u[s], of the value of one voxel s of the grid (or to a constant). These
+	 * are found by refreshing the boundary conditions of arrays with known
+	 * values.
+	 * 
+	 * @param lv
+	 *            layout of the grid
+	 * @param source
+	 *            receives, for each padding element, the position of the
+	 *            voxel it depends on, or -1 if it is constant or not a padding
+	 *            element
+	 * @param weight
+	 *            receives, for each padding element, the weight w of the
+	 *            voxel it depends on
+	 */
+	private static void findPaddingSources(GridLevel lv, int[] source,
+			float[] weight) {
+		float[] zero = new float[lv.length];
+		float[] one = new float[lv.length];
+		float[] id = new float[lv.length];
+		for (int i = 1; i <= lv.n; i++)
+			for (int j = 1; j <= lv.m; j++)
+				for (int k = 1, p = lv.index(i, j, 1); k <= lv.l; k++, p++) {
+					one[p] = 1;
+					id[p] = p;
+				}
+		_boundaryConditions.refreshBoundaryConditions(zero, lv);
+		_boundaryConditions.refreshBoundaryConditions(one, lv);
+		_boundaryConditions.refreshBoundaryConditions(id, lv);
+		for (int i = 0; i <= lv.n + 1; i++)
+			for (int j = 0; j <= lv.m + 1; j++)
+				for (int k = 0, p = lv.index(i, j, 0); k <= lv.l + 1; k++, p++) {
+					source[p] = -1;
+					weight[p] = 0;
+					if (!lv.isPadding(i, j, k))
+						continue;
+					float w = one[p] - zero[p];
+					if (w == 0)
+						continue;
+					int s = Math.round((id[p] - zero[p]) / w);
+					if ((s > 0) && (s < lv.length) && (one[s] == 1)) {
+						source[p] = s;
+						weight[p] = w;
+					}
+				}
+	}
+
+	/**
+	 * Make sure all solute concentration values for the present are not lower
+	 * than 0
+	 * 
+	 * @param c
+	 *            array of the solute species in the system
+	 * @param bl
+	 *            the boundary layer
+	 */
+	private static void truncatePresentSoluteValuesToZero(SoluteSpecies[] c,
+			BoundaryLayer bl) {
+		float v;
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(_g, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+			for (int chem = 0; chem < c.length; chem++) {
+				float[] u = c[chem]._mg[_g];
+				for (int q = 0; q < nVoxels; q++) {
+					int p = voxels[q];
+					v = u[p];
+					u[p] = (v < 0 ? 0 : v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Perform a number of relaxation sweeps at the current grid order with the
+	 * smoother set by setSmoother. The first sweep is always done over the
+	 * whole grid, refreshing all the padding.
+	 * 
+	 * @param c
+	 * @param d
+	 * @param bl
+	 * @param nSweeps
+	 *            number of sweeps
+	 */
+	private static void smooth(SoluteSpecies[] c, RelativeDiffusion d,
+			BoundaryLayer bl, int nSweeps) {
+		if (nSweeps <= 0)
+			return;
+		relax(c, d, bl, true);
+		int j = 1;
+		while (j < nSweeps) {
+			if (_smoother == SMOOTHING_TILED) {
+				int n = Math.min(_tileSweeps, nSweeps - j);
+				relaxTiled(c, d, bl, n);
+				j += n;
+			} else {
+				relax(c, d, bl, false);
+				j++;
+			}
+		}
+	}
+
+	/**
+	 * Perform relaxation for concentration of cehmical species at the current
+	 * grid order. Only the voxels inside the boundary layer are visited, using
+	 * the lists of active voxels of the boundary layer. The list of each of the
+	 * red and black passes is split into slabs which are relaxed concurrently
+	 * if more than one thread is set (see setNumberOfThreads) and the rates of
+	 * all solutes may be computed concurrently. After each pass, only the
+	 * padding elements whose value is taken from a voxel of the colour just
+	 * relaxed are refreshed, since the other padding elements are still up to
+	 * date. This holds only if the padding was up to date before the sweep,
+	 * so the full padding must be refreshed after the first pass of a
+	 * sequence of sweeps, when the values may have been changed by other
+	 * operations (restriction, interpolation, etc.).
+	 * 
+	 * @param c
+	 * @param d
+	 * @param bl
+	 * @param refreshAll
+	 *            if true, refresh all the padding after the first pass
+	 */
+	private static void relax(SoluteSpecies[] c, RelativeDiffusion d,
+			BoundaryLayer bl, boolean refreshAll) {
+		float h2i = _levels[_g].h2i;
+		// red-black relaxation
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(_g, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+			relaxPass(c, d, voxels, 0, nVoxels, h2i);
+			// refresh the padding elements to enforce
+			// boundary conditions for all solutes
+			for (int i = 0; i < c.length; i++)
+				if (refreshAll && (colour == BoundaryLayer.RED))
+					_boundaryConditions.refreshBoundaryConditions(
+							c[i]._mg[_g], _levels[_g]);
+				else
+					_boundaryConditions.refreshBoundaryConditions(
+							c[i]._mg[_g], _levels[_g], colour, 1,
+							_levels[_g].n);
+		}
+	}
+
+	/**
+	 * Perform nSweeps relaxation sweeps at the current grid order, tiled in
+	 * space and time. The grid is divided in tiles of _tilePlanes planes
+	 * (voxels with the same first index). All 2 * nSweeps red and black passes
+	 * are done on a tile before moving to the next one, shifting the tile one
+	 * plane down at each pass so that a pass only uses values of the
+	 * neighbouring planes that are already updated by the previous pass, and
+	 * not yet by the next. The result is the same as that of nSweeps sweeps
+	 * over the whole grid, provided that the padding of each plane only
+	 * depends on voxels of the same plane or, at the bottom and top, of the
+	 * first and last planes. For boundary conditions cyclic along the first
+	 * direction (GranuleBoundaryConditions) the first and last planes see
+	 * each other at different passes, which still gives a valid smoother.
+	 * The padding must be up to date before the call.
+	 * 
+	 * @param c
+	 * @param d
+	 * @param bl
+	 * @param nSweeps
+	 *            number of sweeps
+	 */
+	private static void relaxTiled(SoluteSpecies[] c, RelativeDiffusion d,
+			BoundaryLayer bl, int nSweeps) {
+		GridLevel lv = _levels[_g];
+		int n = lv.n;
+		float h2i = lv.h2i;
+		int[][] voxels = { bl.getActiveVoxels(_g, BoundaryLayer.RED),
+				bl.getActiveVoxels(_g, BoundaryLayer.BLACK) };
+		int[][] offsets = { bl.getPlaneOffsets(_g, BoundaryLayer.RED),
+				bl.getPlaneOffsets(_g, BoundaryLayer.BLACK) };
+		int nPasses = 2 * nSweeps;
+		int b = _tilePlanes;
+		// top is the last plane of the tile at the first pass
+		for (int top = b; top - b + 2 - nPasses <= n; top += b) {
+			for (int s = 0; s < nPasses; s++) {
+				int colour = s & 1;
+				int i0 = Math.max(1, top - b + 1 - s);
+				int i1 = Math.min(n, top - s);
+				if (i0 > i1)
+					continue;
+				relaxPass(c, d, voxels[colour], offsets[colour][i0],
+						offsets[colour][i1 + 1], h2i);
+				for (int i = 0; i < c.length; i++)
+					_boundaryConditions.refreshBoundaryConditions(
+							c[i]._mg[_g], lv, colour, i0, i1);
+			}
+		}
+	}
+
+	/**
+	 * Relax the voxels at entries q0 to q1 (exclusive) of a list of voxels of
+	 * one colour of the current grid order, split into slabs relaxed
+	 * concurrently if more than one thread is set
+	 * 
+	 * @param c
+	 * @param d
+	 * @param voxels
+	 *            positions of the voxels of one colour inside the boundary
+	 *            layer
+	 * @param q0
+	 *            first entry
+	 * @param q1
+	 *            entry after the last entry
+	 * @param h2i
+	 *            0.5/h^2 for the current grid order
+	 */
+	private static void relaxPass(SoluteSpecies[] c, RelativeDiffusion d,
+			int[] voxels, int q0, int q1, float h2i) {
+		int nVoxels = q1 - q0;
+		if (_relaxInParallel && (nVoxels >= _slabCursors.length)) {
+			int nSlabs = _slabCursors.length;
+			RelaxSlab[] slabs = new RelaxSlab[nSlabs];
+			for (int s = 0; s < nSlabs; s++)
+				slabs[s] = new RelaxSlab(_slabCursors[s], c, d, voxels, q0 + s
+						* nVoxels / nSlabs, q0 + (s + 1) * nVoxels / nSlabs,
+						h2i);
+			_pool.invoke(new RelaxPass(slabs));
+		} else {
+			relaxSlab(_serialCursor, c, d, voxels, q0, q1, h2i);
+		}
+	}
+
+	/**
+	 * Relax the voxels at entries q0 to q1 (exclusive) of a list of voxels of
+	 * one colour of the current grid order. Only the cursor v is used to
+	 * locate voxels and to hold temporary values, so slabs that do not overlap
+	 * may be relaxed concurrently.
+	 * 
+	 * @param v
+	 *            the voxel cursor of the thread performing the relaxation
+	 * @param c
+	 * @param d
+	 * @param voxels
+	 *            positions of the voxels of one colour inside the boundary
+	 *            layer
+	 * @param q0
+	 *            first entry of the slab
+	 * @param q1
+	 *            entry after the last entry of the slab
+	 * @param h2i
+	 *            0.5/h^2 for the current grid order
+	 */
+	private static void relaxSlab(VoxelCursor v, SoluteSpecies[] c,
+			RelativeDiffusion d, int[] voxels, int q0, int q1, float h2i) {
+		float r, dr;
+		int g = _g;
+		GridLevel lv = _levels[g];
+		int si = lv.si;
+		int sj = lv.sj;
+		float[] dg = d._mg[g];
+		float[] rDr = v.rDr;
+		ReactionKernel kernel = _ratesKernel;
+		if (!lv.isotropic) {
+			relaxSlabAnisotropic(v, c, d, voxels, q0, q1, h2i);
+			return;
+		}
+		if (_coupledRelaxation && (kernel != null) && (c.length > 1)) {
+			relaxSlabCoupled(v, c, d, voxels, q0, q1, h2i);
+			return;
+		}
+		if ((_stencil != null) && (kernel != null)) {
+			relaxSlabByRuns(v, c, d, voxels, q0, q1, h2i);
+			return;
+		}
+		float[] allRDr = v.getRatesAndRateDerivatives(c.length);
+		v.g = g;
+		for (int q = q0; q < q1; q++) {
+			int p = voxels[q];
+			v.setIndex(p);
+			// evaluate each reaction once for all solutes
+			if (kernel != null)
+				kernel.computeRatesAndRateDerivatives(allRDr, v);
+			for (int chem = 0; chem < c.length; chem++) {
+				float[] u = c[chem]._mg[g];
+				//
+				if (kernel != null) {
+					r = allRDr[2 * chem];
+					dr = allRDr[2 * chem + 1];
+				} else {
+					c[chem].updateValuesForRateAndRateDerivative(rDr, v);
+					r = rDr[0];
+					dr = rDr[1];
+				}
+				// term of the time derivative
+				if (_timeCoefficient != 0) {
+					r -= _timeCoefficient * u[p];
+					dr -= _timeCoefficient;
+				}
+				// compute diffusivity values
+				// and that of surrounding neighbors
+				float dc = c[chem].getDiffusivity();
+				float dim = dc * dg[p - si];
+				float dip = dc * dg[p + si];
+				float djm = dc * dg[p - sj];
+				float djp = dc * dg[p + sj];
+				float dkm = dc * dg[p - 1];
+				float dkp = dc * dg[p + 1];
+				float d0 = dc * dg[p];
+				// compute L operator
+				float u0 = u[p];
+				float lop = ((dip + d0) * (u[p + si] - u0)
+						+ (dim + d0) * (u[p - si] - u0)
+						+ (djp + d0) * (u[p + sj] - u0)
+						+ (djm + d0) * (u[p - sj] - u0)
+						+ (dkp + d0) * (u[p + 1] - u0) + (dkm + d0)
+						* (u[p - 1] - u0))
+						* h2i + r;
+				// compute derivative of L operator
+				float dlop = -h2i
+						* (6.0f * d0 + dip + dim + djp + djm + dkp + dkm)
+						+ dr;
+				// compute residual
+				float res = (lop - c[chem].rhs._mg[g][p]) / dlop;
+				// update concentration (test for NaN)
+				if (res != res)
+					throwRelaxationNaN(v, c, chem, p, r, dr, dlop);
+				u0 -= res;
+				// if negative concentrations, put 0 value
+				u[p] = (u0 < 0 ? 0 : u0);
+			}
+		}
+	}
+
+	/**
+	 * Relax the voxels at entries q0 to q1 (exclusive) of a list of voxels of
+	 * one colour of a grid order with different spacings along each
+	 * direction (see createLevels), weighting the fluxes along each direction
+	 * by the weights of the grid layout. Otherwise the same as relaxSlab,
+	 * without the coupled and vectorised variants, since these grids are
+	 * coarse.
+	 * 
+	 * @param v
+	 *            the voxel cursor of the thread performing the relaxation
+	 * @param c
+	 * @param d
+	 * @param voxels
+	 *            positions of the voxels of one colour inside the boundary
+	 *            layer
+	 * @param q0
+	 *            first entry of the slab
+	 * @param q1
+	 *            entry after the last entry of the slab
+	 * @param h2i
+	 *            0.5/h^2 for the smallest spacing of the current grid order
+	 */
+	private static void relaxSlabAnisotropic(VoxelCursor v, SoluteSpecies[] c,
+			RelativeDiffusion d, int[] voxels, int q0, int q1, float h2i) {
+		float r, dr;
+		int g = _g;
+		GridLevel lv = _levels[g];
+		int si = lv.si;
+		int sj = lv.sj;
+		float wi = lv.wi;
+		float wj = lv.wj;
+		float wk = lv.wk;
+		float[] dg = d._mg[g];
+		float[] rDr = v.rDr;
+		ReactionKernel kernel = _ratesKernel;
+		float[] allRDr = v.getRatesAndRateDerivatives(c.length);
+		v.g = g;
+		for (int q = q0; q < q1; q++) {
+			int p = voxels[q];
+			v.setIndex(p);
+			// evaluate each reaction once for all solutes
+			if (kernel != null)
+				kernel.computeRatesAndRateDerivatives(allRDr, v);
+			for (int chem = 0; chem < c.length; chem++) {
+				float[] u = c[chem]._mg[g];
+				if (kernel != null) {
+					r = allRDr[2 * chem];
+					dr = allRDr[2 * chem + 1];
+				} else {
+					c[chem].updateValuesForRateAndRateDerivative(rDr, v);
+					r = rDr[0];
+					dr = rDr[1];
+				}
+				// term of the time derivative
+				if (_timeCoefficient != 0) {
+					r -= _timeCoefficient * u[p];
+					dr -= _timeCoefficient;
+				}
+				float dc = c[chem].getDiffusivity();
+				float d0 = dc * dg[p];
+				// conductances of the faces along each direction
+				float cim = (dc * dg[p - si] + d0) * wi;
+				float cip = (dc * dg[p + si] + d0) * wi;
+				float cjm = (dc * dg[p - sj] + d0) * wj;
+				float cjp = (dc * dg[p + sj] + d0) * wj;
+				float ckm = (dc * dg[p - 1] + d0) * wk;
+				float ckp = (dc * dg[p + 1] + d0) * wk;
+				float u0 = u[p];
+				float lop = (cip * (u[p + si] - u0) + cim * (u[p - si] - u0)
+						+ cjp * (u[p + sj] - u0) + cjm * (u[p - sj] - u0)
+						+ ckp * (u[p + 1] - u0) + ckm * (u[p - 1] - u0))
+						* h2i + r;
+				float dlop = -h2i * (cip + cim + cjp + cjm + ckp + ckm) + dr;
+				float res = (lop - c[chem].rhs._mg[g][p]) / dlop;
+				if (res != res)
+					throwRelaxationNaN(v, c, chem, p, r, dr, dlop);
+				u0 -= res;
+				// if negative concentrations, put 0 value
+				u[p] = (u0 < 0 ? 0 : u0);
+			}
+		}
+	}
+
+	/**
+	 * Relax the voxels at entries q0 to q1 (exclusive) of a list of voxels of
+	 * one colour, updating all solutes of a voxel at once (see
+	 * setCoupledRelaxation). The values of all solutes at the voxel, their
+	 * diffusion operators and right hand sides are gathered side by side and
+	 * the Newton update is found by solving the small linear system with the
+	 * Jacobian of the rates. The relative diffusivities of the neighbours are
+	 * read once for all solutes. If the system is singular the solutes are
+	 * updated separately, as in relaxSlab.
+	 * 
+	 * @param v
+	 *            the voxel cursor of the thread performing the relaxation
+	 * @param c
+	 * @param d
+	 * @param voxels
+	 *            positions of the voxels of one colour inside the boundary
+	 *            layer
+	 * @param q0
+	 *            first entry of the slab
+	 * @param q1
+	 *            entry after the last entry of the slab
+	 * @param h2i
+	 *            0.5/h^2 for the current grid order
+	 */
+	private static void relaxSlabCoupled(VoxelCursor v, SoluteSpecies[] c,
+			RelativeDiffusion d, int[] voxels, int q0, int q1, float h2i) {
+		int g = _g;
+		GridLevel lv = _levels[g];
+		int si = lv.si;
+		int sj = lv.sj;
+		int n = c.length;
+		float[] dg = d._mg[g];
+		ReactionKernel kernel = _ratesKernel;
+		float[] rates = v.getRates(n);
+		float[] jacobian = v.getJacobian(n);
+		double[] system = v.getLinearSystem(n);
+		// residual and derivative of the L operator of solute s at entries
+		// 2s and 2s + 1, for the update of each solute separately
+		float[] pointwise = v.getRatesAndRateDerivatives(n);
+		int f = n * n;
+		v.g = g;
+		for (int q = q0; q < q1; q++) {
+			int p = voxels[q];
+			v.setIndex(p);
+			kernel.computeRatesAndJacobian(rates, jacobian, v);
+			// term of the time derivative
+			if (_timeCoefficient != 0)
+				for (int chem = 0; chem < n; chem++) {
+					rates[chem] -= _timeCoefficient * c[chem]._mg[g][p];
+					jacobian[chem * n + chem] -= _timeCoefficient;
+				}
+			float gim = dg[p - si];
+			float gip = dg[p + si];
+			float gjm = dg[p - sj];
+			float gjp = dg[p + sj];
+			float gkm = dg[p - 1];
+			float gkp = dg[p + 1];
+			float g0 = dg[p];
+			for (int chem = 0; chem < n; chem++) {
+				float[] u = c[chem]._mg[g];
+				float dc = c[chem].getDiffusivity();
+				float dim = dc * gim;
+				float dip = dc * gip;
+				float djm = dc * gjm;
+				float djp = dc * gjp;
+				float dkm = dc * gkm;
+				float dkp = dc * gkp;
+				float d0 = dc * g0;
+				// compute L operator
+				float u0 = u[p];
+				float lop = ((dip + d0) * (u[p + si] - u0)
+						+ (dim + d0) * (u[p - si] - u0)
+						+ (djp + d0) * (u[p + sj] - u0)
+						+ (djm + d0) * (u[p - sj] - u0)
+						+ (dkp + d0) * (u[p + 1] - u0) + (dkm + d0)
+						* (u[p - 1] - u0))
+						* h2i + rates[chem];
+				// row of the Jacobian of the L operator
+				for (int t = 0; t < n; t++)
+					system[chem * n + t] = jacobian[chem * n + t];
+				float dlop = -h2i
+						* (6.0f * d0 + dip + dim + djp + djm + dkp + dkm)
+						+ jacobian[chem * n + chem];
+				system[chem * n + chem] = dlop;
+				system[f + chem] = lop - c[chem].rhs._mg[g][p];
+				pointwise[2 * chem] = lop - c[chem].rhs._mg[g][p];
+				pointwise[2 * chem + 1] = dlop;
+			}
+			if (!MultigridUtils.solveDense(system, n)) {
+				// update each solute separately
+				for (int chem = 0; chem < n; chem++)
+					system[f + chem] = pointwise[2 * chem]
+							/ pointwise[2 * chem + 1];
+			}
+			for (int chem = 0; chem < n; chem++) {
+				float[] u = c[chem]._mg[g];
+				float res = (float) system[f + chem];
+				// update concentration (test for NaN)
+				if (res != res)
+					throwRelaxationNaN(v, c, chem, p, rates[chem],
+							jacobian[chem * n + chem], pointwise[2 * chem + 1]);
+				float u0 = u[p] - res;
+				// if negative concentrations, put 0 value
+				u[p] = (u0 < 0 ? 0 : u0);
+			}
+		}
+	}
+
+	/**
+	 * Relax the voxels at entries q0 to q1 (exclusive) of a list of voxels of
+	 * one colour with the stencil kernel set by setVectorStencil. The list is
+	 * split into runs of voxels two positions apart in the same row. The rates
+	 * of all solutes are computed for all voxels of a run, and then the
+	 * kernel updates each solute over the run. The values are the same as
+	 * those of relaxSlab, since the rates only depend on values at the voxel
+	 * and voxels of the same colour are not neighbours.
+	 * 
+	 * @param v
+	 *            the voxel cursor of the thread performing the relaxation
+	 * @param c
+	 * @param d
+	 * @param voxels
+	 *            positions of the voxels of one colour inside the boundary
+	 *            layer
+	 * @param q0
+	 *            first entry of the slab
+	 * @param q1
+	 *            entry after the last entry of the slab
+	 * @param h2i
+	 *            0.5/h^2 for the current grid order
+	 */
+	private static void relaxSlabByRuns(VoxelCursor v, SoluteSpecies[] c,
+			RelativeDiffusion d, int[] voxels, int q0, int q1, float h2i) {
+		int g = _g;
+		GridLevel lv = _levels[g];
+		float[] dg = d._mg[g];
+		ReactionKernel kernel = _ratesKernel;
+		float[] allRDr = v.getRatesAndRateDerivatives(c.length);
+		v.g = g;
+		int q = q0;
+		while (q < q1) {
+			// find the run starting at entry q
+			int qe = q + 1;
+			while ((qe < q1) && (voxels[qe] == voxels[qe - 1] + 2))
+				qe++;
+			int n = qe - q;
+			float[][] r = v.getRunRates(c.length, 2 * n);
+			float[][] dr = v.getRunRateDerivatives(c.length, 2 * n);
+			// evaluate each reaction once for all solutes
+			for (int t = 0; t < n; t++) {
+				v.setIndex(voxels[q + t]);
+				kernel.computeRatesAndRateDerivatives(allRDr, v);
+				for (int chem = 0; chem < c.length; chem++) {
+					r[chem][2 * t] = allRDr[2 * chem];
+					dr[chem][2 * t] = allRDr[2 * chem + 1];
+					// term of the time derivative
+					if (_timeCoefficient != 0) {
+						r[chem][2 * t] -= _timeCoefficient
+								* c[chem]._mg[g][voxels[q + t]];
+						dr[chem][2 * t] -= _timeCoefficient;
+					}
+				}
+			}
+			int p = voxels[q];
+			for (int chem = 0; chem < c.length; chem++) {
+				float dc = c[chem].getDiffusivity();
+				int nan = _stencil.relax(c[chem]._mg[g], c[chem].rhs._mg[g],
+						dg, dc, p, n, r[chem], dr[chem], lv.si, lv.sj, h2i);
+				if (nan >= 0) {
+					int pn = p + 2 * nan;
+					v.setIndex(pn);
+					float dlop = -h2i
+							* (6.0f * dc * dg[pn] + dc * dg[pn + lv.si] + dc
+									* dg[pn - lv.si] + dc * dg[pn + lv.sj]
+									+ dc * dg[pn - lv.sj] + dc * dg[pn + 1] + dc
+									* dg[pn - 1]) + dr[chem][2 * nan];
+					throwRelaxationNaN(v, c, chem, pn, r[chem][2 * nan],
+							dr[chem][2 * nan], dlop);
+				}
+			}
+			q = qe;
+		}
+	}
+
+	/**
+	 * Print the state of a voxel where relaxation gave a NaN concentration
+	 * and throw an exception
+	 * 
+	 * @param v
+	 *            cursor pointing to the voxel
+	 * @param c
+	 * @param chem
+	 *            index of the solute
+	 * @param p
+	 *            position of the voxel
+	 * @param r
+	 * @param dr
+	 * @param dlop
+	 */
+	private static void throwRelaxationNaN(VoxelCursor v, SoluteSpecies[] c,
+			int chem, int p, float r, float dr, float dlop) {
+		int g = v.g;
+		System.out.println("---------------------");
+		System.out.println("Multigrid problem:");
+		System.out.println("_g = " + g);
+		System.out.println("_i = " + v.i);
+		System.out.println("_j = " + v.j);
+		System.out.println("_k = " + v.k);
+		System.out.println("r = " + r);
+		System.out.println("dr = " + dr);
+		System.out.println("concentration rhs = " + c[chem].rhs._mg[g][p]);
+		System.out.println("dlop = " + dlop);
+		System.out.println("rhs/dlop= " + (c[chem].rhs._mg[g][p] / dlop));
+		System.out.println("solute species:");
+		for (int s = 0; s < c.length; s++) {
+			System.out.println(c[s]._name + " (local) = " + c[s]._mg[g][p]);
+			System.out.println(c[s]._name + " (bulk) = "
+					+ c[s].getBulkConcentration());
+		}
+		// particulates:
+		System.out.println("particulate species:");
+		Collection ps = Model.model().getParticulateSpecies();
+		for (Iterator iter = ps.iterator(); iter.hasNext();) {
+			ParticulateSpecies ps_ = (ParticulateSpecies) iter.next();
+			System.out.println(ps_._name + " = " + ps_._mg[g][p]);
+		}
+		System.out.println("---------------------");
+		String str = "NaN generated in multigrid solver "
+				+ "while computing rate for " + c[chem]._name;
+		throw new ModelRuntimeException(str);
+	}
+
+	/**
+	 * Compute the L-operator
+	 * 
+	 * @param res
+	 * @param c
+	 * @param d
+	 * @param bl
+	 *            boundary layer definition
+	 */
+	private static void lop(MultigridVariable res, SoluteSpecies c,
+			RelativeDiffusion d, BoundaryLayer bl) {
+		GridLevel lv = _levels[_g];
+		int n = lv.n;
+		int si = lv.si;
+		int sj = lv.sj;
+		float h2i = lv.h2i;
+		// weights of the fluxes along each direction (see createLevels)
+		float wi = lv.wi;
+		float wj = lv.wj;
+		float wk = lv.wk;
+		float lop; // temporary variable for L-operator
+		VoxelCursor v = _serialCursor;
+		float[] u = c._mg[_g];
+		float[] dg = d._mg[_g];
+		float[] resg = res._mg[_g];
+		float dc = c.getDiffusivity();
+		v.g = _g;
+		if (_precision == PRECISION_MIXED) {
+			for (int colour = 0; colour < 2; colour++) {
+				int[] voxels = bl.getActiveVoxels(_g, colour);
+				int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+				for (int q = 0; q < nVoxels; q++)
+					resg[voxels[q]] = (float) lopInDouble(v, c, dg,
+							voxels[q]);
+			}
+			_boundaryConditions.refreshBoundaryConditions(resg, lv);
+			return;
+		}
+		if ((_stencil != null) && lv.isotropic) {
+			lopByRuns(v, resg, c, dg, bl, h2i);
+			_boundaryConditions.refreshBoundaryConditions(resg, lv);
+			return;
+		}
+		// iterate through the voxels inside the boundary layer
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(_g, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+			for (int q = 0; q < nVoxels; q++) {
+				int p = voxels[q];
+				v.setIndex(p);
+				// current rate for this solute
+				float r = c.getRate(v);
+				if (_timeCoefficient != 0)
+					r -= _timeCoefficient * u[p];
+				// compute diffusivity values
+				// and that of surrounding neighbors
+				float dim = dc * dg[p - si];
+				float dip = dc * dg[p + si];
+				float djm = dc * dg[p - sj];
+				float djp = dc * dg[p + sj];
+				float dkm = dc * dg[p - 1];
+				float dkp = dc * dg[p + 1];
+				float d0 = dc * dg[p];
+				// compute L operator
+				float u0 = u[p];
+				if (lv.isotropic)
+					lop = ((dip + d0) * (u[p + si] - u0)
+							+ (dim + d0) * (u[p - si] - u0)
+							+ (djp + d0) * (u[p + sj] - u0)
+							+ (djm + d0) * (u[p - sj] - u0)
+							+ (dkp + d0) * (u[p + 1] - u0) + (dkm + d0)
+							* (u[p - 1] - u0))
+							* h2i + r;
+				else
+					lop = ((dip + d0) * wi * (u[p + si] - u0)
+							+ (dim + d0) * wi * (u[p - si] - u0)
+							+ (djp + d0) * wj * (u[p + sj] - u0)
+							+ (djm + d0) * wj * (u[p - sj] - u0)
+							+ (dkp + d0) * wk * (u[p + 1] - u0) + (dkm + d0)
+							* wk * (u[p - 1] - u0))
+							* h2i + r;
+				// update concentration (test for NaN)
+				if (lop != lop)
+					throwLopNaN(v, c, p, r);
+				resg[p] = lop;
+			}
+		}
+		_boundaryConditions.refreshBoundaryConditions(resg, lv);
+	}
+
+	/**
+	 * Compute the L-operator of a solute at one voxel of the current grid in
+	 * double precision (for PRECISION_MIXED)
+	 * 
+	 * @param v
+	 *            voxel cursor, with the grid order set
+	 * @param c
+	 * @param dg
+	 *            relative diffusivity of the current grid
+	 * @param p
+	 *            position of the voxel
+	 * @return the value of the L-operator
+	 */
+	private static double lopInDouble(VoxelCursor v, SoluteSpecies c,
+			float[] dg, int p) {
+		GridLevel lv = _levels[_g];
+		int si = lv.si;
+		int sj = lv.sj;
+		double h = _referenceSystemSide / ((double) _m - 1) * lv.spacing;
+		double h2i = 0.5 / (h * h);
+		float[] u = c._mg[_g];
+		double dc = c.getDiffusivity();
+		v.setIndex(p);
+		// current rate for this solute
+		float r = c.getRate(v);
+		if (_timeCoefficient != 0)
+			r -= _timeCoefficient * u[p];
+		double dim = dc * dg[p - si];
+		double dip = dc * dg[p + si];
+		double djm = dc * dg[p - sj];
+		double djp = dc * dg[p + sj];
+		double dkm = dc * dg[p - 1];
+		double dkp = dc * dg[p + 1];
+		double d0 = dc * dg[p];
+		double u0 = u[p];
+		double lop;
+		if (lv.isotropic)
+			lop = ((dip + d0) * (u[p + si] - u0) + (dim + d0)
+					* (u[p - si] - u0) + (djp + d0) * (u[p + sj] - u0)
+					+ (djm + d0) * (u[p - sj] - u0) + (dkp + d0)
+					* (u[p + 1] - u0) + (dkm + d0) * (u[p - 1] - u0))
+					* h2i + r;
+		else
+			lop = ((dip + d0) * lv.wi * (u[p + si] - u0) + (dim + d0)
+					* lv.wi * (u[p - si] - u0) + (djp + d0) * lv.wj
+					* (u[p + sj] - u0) + (djm + d0) * lv.wj
+					* (u[p - sj] - u0) + (dkp + d0) * lv.wk
+					* (u[p + 1] - u0) + (dkm + d0) * lv.wk * (u[p - 1] - u0))
+					* h2i + r;
+		if (lop != lop)
+			throwLopNaN(v, c, p, r);
+		return lop;
+	}
+
+	/**
+	 * Compute the norm of the residual of a solute in the current grid in
+	 * double precision (for PRECISION_MIXED), without rounding the L-operator
+	 * to single precision before subtracting the right hand side
+	 * 
+	 * @param c
+	 * @param d
+	 * @param bl
+	 * @return the norm of the residual
+	 */
+	private static float computeResidualNorm(SoluteSpecies c,
+			RelativeDiffusion d, BoundaryLayer bl) {
+		VoxelCursor v = _serialCursor;
+		float[] dg = d._mg[_g];
+		float[] rhs = c.rhs._mg[_g];
+		v.g = _g;
+		double norm = 0;
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(_g, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+			for (int q = 0; q < nVoxels; q++) {
+				int p = voxels[q];
+				double res = lopInDouble(v, c, dg, p) - rhs[p];
+				norm += res * res;
+			}
+		}
+		return (float) Math.sqrt(norm);
+	}
+
+	/**
+	 * Compute the L-operator with the stencil kernel set by setVectorStencil,
+	 * for runs of voxels two positions apart in the same row of the lists of
+	 * voxels inside the boundary layer (see relaxSlabByRuns)
+	 * 
+	 * @param v
+	 *            the voxel cursor
+	 * @param resg
+	 *            values of the current grid order where the L-operator is
+	 *            written
+	 * @param c
+	 * @param dg
+	 *            relative diffusivity of the current grid order
+	 * @param bl
+	 *            boundary layer definition
+	 * @param h2i
+	 *            0.5/h^2 for the current grid order
+	 */
+	private static void lopByRuns(VoxelCursor v, float[] resg,
+			SoluteSpecies c, float[] dg, BoundaryLayer bl, float h2i) {
+		GridLevel lv = _levels[_g];
+		float[] u = c._mg[_g];
+		float dc = c.getDiffusivity();
+		for (int colour = 0; colour < 2; colour++) {
+			int[] voxels = bl.getActiveVoxels(_g, colour);
+			int nVoxels = bl.getNumberOfActiveVoxels(_g, colour);
+			int q = 0;
+			while (q < nVoxels) {
+				// find the run starting at entry q
+				int qe = q + 1;
+				while ((qe < nVoxels) && (voxels[qe] == voxels[qe - 1] + 2))
+					qe++;
+				int n = qe - q;
+				float[] r = v.getRunRates(1, 2 * n)[0];
+				for (int t = 0; t < n; t++) {
+					v.setIndex(voxels[q + t]);
+					// current rate for this solute
+					r[2 * t] = c.getRate(v);
+					if (_timeCoefficient != 0)
+						r[2 * t] -= _timeCoefficient * u[voxels[q + t]];
+				}
+				int nan = _stencil.lop(resg, u, dg, dc, voxels[q], n, r,
+						lv.si, lv.sj, h2i);
+				if (nan >= 0) {
+					v.setIndex(voxels[q + nan]);
+					throwLopNaN(v, c, voxels[q + nan], r[2 * nan]);
+				}
+				q = qe;
+			}
+		}
+	}
+
+	/**
+	 * Print the state of a voxel where the L-operator is NaN and throw an
+	 * exception
+	 * 
+	 * @param v
+	 *            cursor pointing to the voxel
+	 * @param c
+	 * @param p
+	 *            position of the voxel
+	 * @param r
+	 */
+	private static void throwLopNaN(VoxelCursor v, SoluteSpecies c, int p,
+			float r) {
+		System.out.println("---------------------");
+		System.out.println("Multigrid problem (computing lop):");
+		System.out.println("_g = " + _g);
+		System.out.println("_i = " + v.i);
+		System.out.println("_j = " + v.j);
+		System.out.println("_k = " + v.k);
+		System.out.println("r = " + r);
+		System.out.println("solute species:");
+		Collection ss = Model.model().getSoluteSpecies();
+		for (Iterator iter = ss.iterator(); iter.hasNext();) {
+			SoluteSpecies s = (SoluteSpecies) iter.next();
+			System.out.println(s._name + " = " + s._mg[_g][p]);
+		}
+		// particulates:
+		System.out.println("particulate species:");
+		Collection ps = Model.model().getParticulateSpecies();
+		for (Iterator iter = ps.iterator(); iter.hasNext();) {
+			ParticulateSpecies pa = (ParticulateSpecies) iter.next();
+			System.out.println(pa._name + " = " + pa._mg[_g][p]);
+		}
+		System.out.println("---------------------");
+		String str = "NaN generated in multigrid solver "
+				+ "while computing rate for " + c._name;
+		throw new ModelRuntimeException(str);
+	}
+
+	/**
+	 * A slab of a list of active voxels relaxed by one worker of the fork/join
+	 * pool
+	 */
+	private static class RelaxSlab extends RecursiveAction {
+		private final VoxelCursor _v;
+
+		private final SoluteSpecies[] _c;
+
+		private final RelativeDiffusion _d;
+
+		private final int[] _voxels;
+
+		private final int _q0;
+
+		private final int _q1;
+
+		private final float _h2i;
+
+		RelaxSlab(VoxelCursor v, SoluteSpecies[] c, RelativeDiffusion d,
+				int[] voxels, int q0, int q1, float h2i) {
+			_v = v;
+			_c = c;
+			_d = d;
+			_voxels = voxels;
+			_q0 = q0;
+			_q1 = q1;
+			_h2i = h2i;
+		}
+
+		protected void compute() {
+			relaxSlab(_v, _c, _d, _voxels, _q0, _q1, _h2i);
+		}
+	}
+
+	/**
+	 * One red or black pass, relaxing all its slabs in the fork/join pool
+	 */
+	private static class RelaxPass extends RecursiveAction {
+		private final RelaxSlab[] _slabs;
+
+		RelaxPass(RelaxSlab[] slabs) {
+			_slabs = slabs;
+		}
+
+		protected void compute() {
+			invokeAll(_slabs);
+		}
+	}
+
+	/**
+	 * Decide if the relaxation of the solutes in c may use the fork/join
+	 * pool. This is only the case if more than one thread was set and the
+	 * rates of all solutes may be computed concurrently. Also decide if the
+	 * rates of all solutes are computed at once by their reaction kernel, in
+	 * which case the solutes at a voxel are all updated from the same
+	 * evaluation of the reactions.
+	 * 
+	 * @param c
+	 *            array of the solute species in the system
+	 */
+	private static void setUpRelaxation(SoluteSpecies[] c) {
+		// the rates of all solutes are computed at once if they were
+		// compiled together, in the same order
+		_ratesKernel = c[0].getReactionKernel();
+		for (int i = 0; i < c.length; i++)
+			if ((c[i].getReactionKernel() != _ratesKernel)
+					|| (c[i].getReactionKernelIndex() != i))
+				_ratesKernel = null;
+		_relaxInParallel = false;
+		if (_pool == null)
+			return;
+		for (int i = 0; i < c.length; i++)
+			if (!c[i].hasThreadSafeProcesses()) {
+				if (!_warnedSerialRelaxation) {
+					System.out.println("Rates of " + c[i]._name
+							+ " may not be computed concurrently, "
+							+ "relaxation will be serial");
+					_warnedSerialRelaxation = true;
+				}
+				return;
+			}
+		_relaxInParallel = true;
+	}
+
+	/**
+	 * Set warm start mode. If true, each solve starts from the solution of
+	 * the previous solve instead of from the bulk concentrations, skipping
+	 * the nested iteration from the coarsest grid. Default is false.
+	 * 
+	 * @param b
+	 *            true to warm start
+	 */
+	public static void setWarmStart(boolean b) {
+		_warmStart = b;
+	}
+
+	/**
+	 * Set the maximum number of cycles (V-cycles by default, see
+	 * setCycleStrategy) per grid level and the maximum number of relaxation
+	 * sweeps used to solve the coarsest grid. The solver stops before these
+	 * numbers are reached if it converges.
+	 * 
+	 * @param nVCycles
+	 *            maximum number of V-cycles per grid level
+	 * @param nCoarsestSweeps
+	 *            maximum number of sweeps for the coarsest grid
+	 * @throws InvalidValueException
+	 *             if a number is lower than 1
+	 */
+	public static void setMaximumCycles(int nVCycles, int nCoarsestSweeps) {
+		if ((nVCycles < 1) || (nCoarsestSweeps < 1))
+			throw new InvalidValueException("invalid maximum number of cycles ("
+					+ nVCycles + ") or of coarsest grid sweeps ("
+					+ nCoarsestSweeps + ")");
+		_maxVCycles = nVCycles;
+		_maxCoarsestSweeps = nCoarsestSweeps;
+	}
+
+	/**
+	 * @return the total number of cycles used in the last solve, summed over
+	 *         all grid levels
+	 */
+	public static int getNumberOfVCyclesUsed() {
+		return _vCyclesUsed;
+	}
+
+	/**
+	 * @return the total number of relaxation sweeps on the coarsest grid in
+	 *         the last solve
+	 */
+	public static int getNumberOfCoarsestSweepsUsed() {
+		return _coarsestSweepsUsed;
+	}
+
+	/**
+	 * @return the total number of relaxation sweeps on grids finer than the
+	 *         coarsest in the last solve
+	 */
+	public static int getNumberOfRelaxationSweepsUsed() {
+		return _relaxationSweepsUsed;
+	}
+
+	/**
+	 * @return the wall time [ms] spent by the last solve in smoothing
+	 *         (relaxation sweeps on grids finer than the coarsest)
+	 */
+	public static float getSmoothingTime() {
+		return _smoothingTime * 1e-6f;
+	}
+
+	/**
+	 * @return the wall time [ms] spent by the last solve in the transfer of
+	 *         values between grids (restriction, interpolation and the
+	 *         computation of the coarse grid right hand sides)
+	 */
+	public static float getTransferTime() {
+		return _transferTime * 1e-6f;
+	}
+
+	/**
+	 * @return the wall time [ms] spent by the last solve in the solution of
+	 *         the coarsest grid
+	 */
+	public static float getCoarsestSolveTime() {
+		return _coarsestTime * 1e-6f;
+	}
+
+	/**
+	 * @return the wall time [ms] spent by the last solve computing residuals
+	 *         to check convergence
+	 */
+	public static float getResidualTime() {
+		return _residualTime * 1e-6f;
+	}
+
+	/**
+	 * @return the wall time [ms] of the last solve, including the set up of
+	 *         the boundary layer and diffusivity
+	 */
+	public static float getSolveTime() {
+		return _solveTime * 1e-6f;
+	}
+
+	/**
+	 * Set the type of cycle and the number of smoothing sweeps on each grid
+	 * order used by the solver. The default is a V-cycle with the number of
+	 * sweeps set by setSteps.
+	 * 
+	 * @param s
+	 *            the cycle strategy
+	 */
+	public static void setCycleStrategy(CycleStrategy s) {
+		_cycleStrategy = s;
+	}
+
+	/**
+	 * @return the cycle strategy used by the solver
+	 */
+	public static CycleStrategy getCycleStrategy() {
+		return _cycleStrategy;
+	}
+
+	/**
+	 * Set the method used to solve the coarsest grid, COARSEST_NEWTON (the
+	 * default) or COARSEST_RELAXATION
+	 * 
+	 * @param solver
+	 *            the coarsest grid solver
+	 */
+	public static void setCoarsestSolver(int solver) {
+		if ((solver != COARSEST_NEWTON) && (solver != COARSEST_RELAXATION))
+			throw new ModelRuntimeException("Invalid coarsest grid solver "
+					+ solver);
+		_coarsestSolver = solver;
+	}
+
+	/**
+	 * Set the time integration of the solutes, TIME_STEADY_STATE (the
+	 * default), TIME_BACKWARD_EULER or TIME_BDF2. In the transient modes each
+	 * solve integrates the solutes over the time set by setTransientTimeStep,
+	 * starting from the solution of the previous solve, with the time
+	 * derivative added to the operator on all grids. A solve without a time
+	 * step, or the first solve after the grid was changed, computes the
+	 * pseudo-steady state. Only used by solve (not by solveByRelax).
+	 * 
+	 * @param integration
+	 *            the time integration of the solutes
+	 */
+	public static void setTimeIntegration(int integration) {
+		if ((integration != TIME_STEADY_STATE)
+				&& (integration != TIME_BACKWARD_EULER)
+				&& (integration != TIME_BDF2))
+			throw new ModelRuntimeException("Invalid time integration "
+					+ integration);
+		_timeIntegration = integration;
+	}
+
+	/**
+	 * @return the time integration of the solutes
+	 */
+	public static int getTimeIntegration() {
+		return _timeIntegration;
+	}
+
+	/**
+	 * Set the time elapsed since the previous solve, over which the next
+	 * solve integrates the solutes if a transient mode is set (see
+	 * setTimeIntegration). Only used by the next solve.
+	 * 
+	 * @param dt
+	 *            the time step [h]
+	 */
+	public static void setTransientTimeStep(float dt) {
+		_transientTimeStep = dt;
+	}
+
+	/**
+	 * Set the precision of the solver, PRECISION_SINGLE (the default) or
+	 * PRECISION_MIXED. Mixed precision avoids extra cycles when the residual
+	 * computed in single precision is dominated by round-off and does not
+	 * fall below the truncation error.
+	 * 
+	 * @param precision
+	 *            the precision of the solver
+	 */
+	public static void setPrecision(int precision) {
+		if ((precision != PRECISION_SINGLE) && (precision != PRECISION_MIXED))
+			throw new ModelRuntimeException("Invalid solver precision "
+					+ precision);
+		_precision = precision;
+	}
+
+	/**
+	 * Set the smoother used on the grids finer than the coarsest,
+	 * SMOOTHING_SWEEPS (the default) or SMOOTHING_TILED
+	 * 
+	 * @param smoother
+	 *            the smoother
+	 */
+	public static void setSmoother(int smoother) {
+		if ((smoother != SMOOTHING_SWEEPS) && (smoother != SMOOTHING_TILED))
+			throw new ModelRuntimeException("Invalid smoother " + smoother);
+		_smoother = smoother;
+	}
+
+	/**
+	 * Set the size of the tiles of the tiled smoother. The values of about
+	 * planes + 2 * sweeps planes of all solutes, particulates and auxiliary
+	 * variables should fit in cache. Larger numbers of sweeps give more reuse
+	 * of each tile but more planes in cache.
+	 * 
+	 * @param planes
+	 *            number of planes of each tile
+	 * @param sweeps
+	 *            maximum number of consecutive sweeps performed on a tile
+	 */
+	public static void setTiling(int planes, int sweeps) {
+		if ((planes < 1) || (sweeps < 1))
+			throw new ModelRuntimeException("Invalid tiling " + planes
+					+ " planes, " + sweeps + " sweeps");
+		_tilePlanes = planes;
+		_tileSweeps = sweeps;
+	}
+
+	/**
+	 * Set coupled relaxation of the solutes. If true, all solutes of a voxel
+	 * are updated at once, solving the small linear system of the Newton
+	 * update with the derivatives of the rate of each solute in respect to
+	 * every other solute (block relaxation with one block per voxel). Each
+	 * sweep is more expensive than the relaxation of each solute separately,
+	 * and whether fewer cycles are needed depends on the coupling of the
+	 * solutes by the reactions. Only used if the rates of all
+	 * solutes are computed by the same reaction kernel, and if there is more
+	 * than one solute. Default is false (each solute updated separately).
+	 * 
+	 * @param b
+	 *            true to relax the solutes of a voxel together
+	 */
+	public static void setCoupledRelaxation(boolean b) {
+		_coupledRelaxation = b;
+	}
+
+	/**
+	 * Set the use of the vectorised stencil kernel (see VectorStencilKernel),
+	 * which evaluates the diffusion operator, the residual and the Newton
+	 * update for several voxels at once with the vector API of the JDK. The
+	 * kernel is only used if the module jdk.incubator.vector is available
+	 * (--add-modules jdk.incubator.vector) and the processor supports vectors
+	 * of at least 4 floats, otherwise the scalar code is used. Gives the same
+	 * results as the scalar code. It is only faster for 3D grids, since it
+	 * processes voxels of the same row (along the third index). Default is
+	 * false.
+	 * 
+	 * @param b
+	 *            true to use the vectorised kernel if available
+	 */
+	public static void setVectorStencil(boolean b) {
+		_stencil = null;
+		if (!b)
+			return;
+		try {
+			StencilKernel s = (StencilKernel) Class.forName(
+					"nl.tudelft.bt.model.multigrid.VectorStencilKernel")
+					.getDeclaredConstructor().newInstance();
+			if (s.getVectorLength() >= 4)
+				_stencil = s;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// the vector API is not available
+		}
+		if (_stencil == null)
+			System.out.println("Vector API not available, "
+					+ "the solver will use scalar code");
+	}
+
+	/**
+	 * @return true if the solver uses the vectorised stencil kernel
+	 */
+	public static boolean isVectorStencilInUse() {
+		return _stencil != null;
+	}
+
+	/**
+	 * @return the total number of Newton iterations on the coarsest grid in
+	 *         the last solve
+	 */
+	public static int getNumberOfCoarsestNewtonStepsUsed() {
+		return _coarsestNewtonStepsUsed;
+	}
+
+	/**
+	 * @return true if every coarsest grid solution in the last solve
+	 *         converged before reaching the maximum number of Newton
+	 *         iterations or relaxation sweeps
+	 */
+	public static boolean hasCoarsestGridConverged() {
+		return _coarsestConverged;
+	}
+
+	/**
+	 * Set the number of threads used for the relaxation of solute
+	 * concentrations. With 1 thread (the default) relaxation is serial. If n
+	 * is 0 or less, the number of available processors is used.
+	 * 
+	 * @param n
+	 *            number of threads
+	 */
+	public static void setNumberOfThreads(int n) {
+		if (n <= 0)
+			n = Runtime.getRuntime().availableProcessors();
+		if (_pool != null)
+			_pool.shutdown();
+		if (n == 1) {
+			_pool = null;
+			_slabCursors = null;
+			return;
+		}
+		_pool = new ForkJoinPool(n);
+		_slabCursors = new VoxelCursor[n];
+		for (int i = 0; i < n; i++)
+			_slabCursors[i] = new VoxelCursor();
+		_warnedSerialRelaxation = false;
+	}
+
+	/**
+	 * Solves the reaction-diffusion equation by relaxation. Slower alternative
+	 * to using method solve. NOTE: this method is to be used for testing
+	 * purposes.
+	 * 
+	 * @param chem
+	 * @param bac
+	 */
+	public static void solveByRelax(SoluteSpecies[] chem,
+			ParticulateSpecies[] bac, BoundaryLayer bl)
+			throws MultigridSystemNotSetException {
+		solveByRelax(chem, bac, bl, new SolverWorkspace());
+	}
+
+	/**
+	 * Solve by relaxation, reusing the relative diffusivity of a workspace
+	 * 
+	 * @param chem
+	 * @param bac
+	 * @param bl
+	 * @param w
+	 *            the workspace of the solver
+	 * @throws MultigridSystemNotSetException
+	 */
+	public static void solveByRelax(SoluteSpecies[] chem,
+			ParticulateSpecies[] bac, BoundaryLayer bl, SolverWorkspace w)
+			throws MultigridSystemNotSetException {
+		long solveStart = System.nanoTime();
+		resetStatistics();
+		setUpRelaxation(chem);
+		_g = _order - 1;
+		bl.setBoundaryLayer(bac, _boundaryConditions);
+		bl.updateMultigridCopies();
+		// the relative diffusion data
+		w.prepare(bac, bl);
+		RelativeDiffusion relDiff = w.relativeDiffusion;
 		// Initialize concentration of all solutes to value of
 		// bulk concentration
 		for (int i = 0; i < chem.length; i++) {
 			chem[i].resetMultigridCopies();
 		}
 		// iterate for a guiven number of iterations
+		long t = System.nanoTime();
 		for (int i = 0; i < 5000; i++)
-			relax(chem, relDiff, bl);
+			relax(chem, relDiff, bl, i == 0);
+		_relaxationSweepsUsed = 5000;
+		_smoothingTime = System.nanoTime() - t;
+		_solveTime = System.nanoTime() - solveStart;
 	}
 
 	/**
@@ -787,14 +2673,15 @@ public class MultigridVariable implements Serializable {
 	 * @return string output
 	 */
 	public String gridToString(int g) {
-		return MultigridUtils.coreMatrixToString(_mg[g]);
+		return MultigridUtils.coreMatrixToString(_levels[g].toMatrix(_mg[g]));
 	}
 
 	/**
-	 * @return the value of the finest grid
+	 * @return a copy of the values of the finest grid as a 3D matrix
+	 *         (including padding)
 	 */
 	public float[][][] getFinestGrid() {
-		return _mg[_order - 1];
+		return _levels[_order - 1].toMatrix(_mg[_order - 1]);
 	}
 
 	/**
@@ -865,11 +2752,12 @@ public class MultigridVariable implements Serializable {
 	 * @param lambda
 	 */
 	public static void imposeProfile(SoluteSpecies chem, float lambda) {
-		float[][][] profile = chem._mg[_order - 1];
+		float[] profile = chem._mg[_order - 1];
+		GridLevel f = _levels[_order - 1];
 		float cbulk = chem.getBulkConcentration();
-		int n = profile.length;
-		int m = profile[0].length;
-		int l = profile[0][0].length;
+		int n = f.n + 2;
+		int m = f.m + 2;
+		int l = f.l + 2;
 		// find the boundary layer height
 		int h = (int) (_model.getCurrentBiofilmHeight() / _voxelSide) + 1;
 		for (int i = 0; i < n; i++) {
@@ -879,7 +2767,7 @@ public class MultigridVariable implements Serializable {
 					* cbulk;
 			for (int j = 0; j < m; j++)
 				for (int k = 0; k < l; k++)
-					profile[i][j][k] = v;
+					profile[f.index(i, j, k)] = v;
 		}
 	}
 
@@ -894,12 +2782,13 @@ public class MultigridVariable implements Serializable {
 	public static float computeBiovolume(ParticulateSpecies[] bac) {
 		// count the voxels occupied by the biofilm
 		int n = 0;
+		GridLevel f = _levels[_order - 1];
 		// get the information concerning all the biomass
 		for (int i = 1; i < _n + 1; i++)
 			for (int j = 1; j < _m + 1; j++)
 				for (int k = 1; k < _l + 1; k++)
 					for (int sp = 0; sp < bac.length; sp++)
-						if (bac[sp]._mg[_order - 1][i + 1][j + 1][k + 1] > 0) {
+						if (bac[sp]._mg[_order - 1][f.index(i + 1, j + 1, k + 1)] > 0) {
 							n++;
 							break;
 						}
@@ -925,6 +2814,7 @@ public class MultigridVariable implements Serializable {
 		os.writeInt(_l);
 		os.writeInt(_m);
 		os.writeInt(_n);
+		os.writeInt(_nSystem);
 		os.writeInt(_order);
 		os.writeFloat(_voxelVolume);
 		os.writeFloat(_voxelSide);
@@ -936,6 +2826,19 @@ public class MultigridVariable implements Serializable {
 		os.writeBoolean(_gridIsSet);
 		os.writeObject(_boundaryConditions);
 		os.writeObject(_model);
+		os.writeInt(_timeIntegration);
+		os.writeFloat(_transientTimeStep);
+		// solver settings
+		os.writeInt(_maxVCycles);
+		os.writeInt(_maxCoarsestSweeps);
+		os.writeBoolean(_warmStart);
+		os.writeObject(_cycleStrategy);
+		os.writeInt(_coarsestSolver);
+		os.writeInt(_smoother);
+		os.writeInt(_tilePlanes);
+		os.writeInt(_tileSweeps);
+		os.writeBoolean(_coupledRelaxation);
+		os.writeInt(_precision);
 	}
 
 	/**
@@ -950,6 +2853,7 @@ public class MultigridVariable implements Serializable {
 		_l = os.readInt();
 		_m = os.readInt();
 		_n = os.readInt();
+		_nSystem = os.readInt();
 		_order = os.readInt();
 		_voxelVolume = os.readFloat();
 		_voxelSide = os.readFloat();
@@ -960,7 +2864,22 @@ public class MultigridVariable implements Serializable {
 		_k = os.readInt();
 		_gridIsSet = os.readBoolean();
 		_boundaryConditions = (BoundaryConditions) (os.readObject());
+		_boundaryConditionsVersion++;
 		_model = (Model) (os.readObject());
+		_timeIntegration = os.readInt();
+		_transientTimeStep = os.readFloat();
+		// solver settings
+		_maxVCycles = os.readInt();
+		_maxCoarsestSweeps = os.readInt();
+		_warmStart = os.readBoolean();
+		_cycleStrategy = (CycleStrategy) (os.readObject());
+		_coarsestSolver = os.readInt();
+		_smoother = os.readInt();
+		_tilePlanes = os.readInt();
+		_tileSweeps = os.readInt();
+		_coupledRelaxation = os.readBoolean();
+		_precision = os.readInt();
+		createLevels();
 	}
 
 	/**
@@ -971,6 +2890,7 @@ public class MultigridVariable implements Serializable {
 	 */
 	public static void setBoundaryConditions(BoundaryConditions bc) {
 		_boundaryConditions = bc;
+		_boundaryConditionsVersion++;
 	}
 
 	/**
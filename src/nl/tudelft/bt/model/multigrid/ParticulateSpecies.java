@@ -98,6 +98,14 @@ public class ParticulateSpecies extends Species {
 	 */
 	public void setProcesses(NetReaction stoichiometry) {
 		_processes = stoichiometry;
+		ReactionKernel.reactionsChanged();
+	}
+
+	/**
+	 * @return the net reaction for this species
+	 */
+	public NetReaction getProcesses() {
+		return _processes;
 	}
 
 	/**
@@ -111,7 +119,8 @@ public class ParticulateSpecies extends Species {
 	 * Refresh the data padding for boudary consitions
 	 */
 	public void refreshBoundaryConditions() {
-		_boundaryConditions.refreshBoundaryConditions(_mg[_order - 1]);
+		_boundaryConditions.refreshBoundaryConditions(_mg[_order - 1],
+				_levels[_order - 1]);
 	}
 
 	/**
@@ -182,7 +191,8 @@ public class ParticulateSpecies extends Species {
 	 */
 	public float getTotalMass() {
 		//
-		float concentrationSum = MultigridUtils.computeSum(_mg[_order - 1]);
+		float concentrationSum = MultigridUtils.computeSum(_mg[_order - 1],
+				_levels[_order - 1]);
 		//
 		return _voxelVolume * concentrationSum;
 	}
@@ -268,9 +278,10 @@ public class ParticulateSpecies extends Species {
 		resetDiscreteMatrix();
 		// copy the 2D matrix read from file into the finest grid
 		float[][] m = MultigridUtils.readSquareMatrixFromFile(f);
+		GridLevel g = _levels[_order - 1];
 		for (int i = _n; i >= 1; i--) {
 			for (int j = 1; j <= _m; j++) {
-				_mg[_order - 1][i][j][1] = m[i - 1][j - 1];
+				_mg[_order - 1][g.index(i, j, 1)] = m[i - 1][j - 1];
 			}
 		}
 		//
@@ -20,7 +20,9 @@ public class RelativeDiffusion extends MultigridVariable {
 
 	/**
 	 * For now, diffusivity is the same throughout the space. Lower diffusivity
-	 * values may be set by changing this functions
+	 * values may be set by changing this functions. Note that the solver
+	 * workspace (SolverWorkspace) only calls this method again when the grid
+	 * or the boundary conditions change.
 	 * 
 	 * @param bac
 	 * @param bl
@@ -28,15 +30,16 @@ public class RelativeDiffusion extends MultigridVariable {
 	protected void computeValues(ParticulateSpecies[] bac, BoundaryLayer bl,
 			BoundaryConditions bc) {
 		//set the value of the finner grid
-		float[][][] d = _mg[_order - 1];
+		float[] d = _mg[_order - 1];
+		GridLevel f = _levels[_order - 1];
 		MultigridUtils.setValues(d, 1.0f);
-		for (int i = 0; i < d.length; i++)
-			for (int j = 0; j < d[i].length; j++)
-				for (int k = 0; k < d[i][j].length; k++)
+		for (int i = 0; i < f.n + 2; i++)
+			for (int j = 0; j < f.m + 2; j++)
+				for (int k = 0; k < f.l + 2; k++)
 					// if inside carrier, relative diffusivity should be
 					// very close to 0
 					if (bc.isCarrier(i, j, k)) {
-						d[i][j][k] = 1.0e-20f;
+						d[f.index(i, j, k)] = 1.0e-20f;
 					}
 		//update corser grid copies
 		updateMultigridCopies();
@@ -38,34 +38,33 @@ public class RelativeViscosity extends MultigridVariable {
 			particulates[p++] = (ParticulateSpecies) iter.next();
 		}
 		//set the value of the finner grid
-		float[][][] d = _mg[_order - 1];
+		float[] d = _mg[_order - 1];
+		GridLevel f = _levels[_order - 1];
 		MultigridUtils.setValues(d, 1.0f);
-		for (int i = 0; i < d.length; i++)
-			for (int j = 0; j < d[i].length; j++)
-				for (int k = 0; k < d[i][j].length; k++)
+		for (int i = 0; i < f.n + 2; i++)
+			for (int j = 0; j < f.m + 2; j++)
+				for (int k = 0; k < f.l + 2; k++)
 					// if inside carrier or biofilm, relative diffusivity should
 					// be very high (0 velocity flux)
 					if (bc.isCarrier(i, j, k)
-							| hasBiomass(particulates, i, j, k)) {
-						d[i][j][k] = 1.0e20f;
+							| hasBiomass(particulates, f.index(i, j, k))) {
+						d[f.index(i, j, k)] = 1.0e20f;
 					}
 		//update corser grid copies
 		updateMultigridCopies();
 	}
 
 	/**
-	 * Check if there is any biomass in location i, j, k
+	 * Check if there is any biomass in location p of the finest grid
 	 * 
 	 * @param particulates
-	 * @param i
-	 * @param j
-	 * @param k
+	 * @param p
+	 *            position in the finest grid
 	 * @return true if there is biomass at this location
 	 */
-	private boolean hasBiomass(ParticulateSpecies[] particulates, int i, int j,
-			int k) {
+	private boolean hasBiomass(ParticulateSpecies[] particulates, int p) {
 		for (int index = 0; index < particulates.length; index++) {
-			if (particulates[index]._mg[_order - 1][i][j][k] > 0)
+			if (particulates[index]._mg[_order - 1][p] > 0)
 				return true;
 		}
 		return false;
@@ -3,6 +3,7 @@ package nl.tudelft.bt.model.multigrid;
 import nl.tudelft.bt.model.apps.output.VariableSeries;
 import nl.tudelft.bt.model.bulkconcentrations.BulkConcentration;
 import nl.tudelft.bt.model.exceptions.MultigridSystemNotSetException;
+import nl.tudelft.bt.model.multigrid.boundary_layers.BoundaryLayer;
 import nl.tudelft.bt.model.reaction.*;
 import nl.tudelft.bt.model.timeconstraint.TimeStepConstraint;
 
@@ -20,8 +21,21 @@ public class SoluteSpecies extends Species {
 
 	private NetReaction _processes;
 
+	// kernel compiled from the processes of all solutes (null if the
+	// processes are not compiled)
+	private ReactionKernel _kernel;
+
+	// index of this solute in _kernel
+	private int _kernelIndex;
+
 	protected float truncationError; // used in MG
 
+	// norm of the residual at the last convergence check of the solver
+	private float _residual;
+
+	// residual below which the multigrid solution is accepted
+	private float _solverTolerance = 0;
+
 	/**
 	 * Create a chemical species
 	 * 
@@ -50,6 +64,16 @@ public class SoluteSpecies extends Species {
 		_bulkConcentration.setSpecies(this);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.MultigridVariable#adaptToGrid(float)
+	 */
+	public void adaptToGrid(float value) {
+		super.adaptToGrid(value);
+		rhs.adaptToGrid(0);
+	}
+
 	/**
 	 * @return the time step constraint
 	 */
@@ -103,6 +127,65 @@ public class SoluteSpecies extends Species {
 		return _bulkConcentration.getBulkConcentrationTimeSeries();
 	}
 
+	/**
+	 * Set the tolerance for the norm of the residual of this solute. The
+	 * multigrid solver stops cycling when the residual is below the
+	 * truncation error or below this tolerance. The default, 0, means only
+	 * the truncation error is used.
+	 * 
+	 * @param tol
+	 *            the residual norm tolerance
+	 */
+	public void setSolverTolerance(float tol) {
+		_solverTolerance = tol;
+	}
+
+	/**
+	 * @return the residual norm tolerance for the multigrid solver
+	 */
+	public float getSolverTolerance() {
+		return _solverTolerance;
+	}
+
+	/**
+	 * Check the convergence criterium of the multigrid solver
+	 * 
+	 * @param res
+	 *            the norm of the residual of this solute
+	 * @return true if the residual is below the truncation error or the
+	 *         tolerance
+	 */
+	boolean hasConverged(float res) {
+		return (res <= truncationError) | (res <= _solverTolerance);
+	}
+
+	/**
+	 * Store the norm of the residual of this solute, computed by the solver
+	 * to check convergence
+	 * 
+	 * @param res
+	 *            the norm of the residual
+	 */
+	void setResidual(float res) {
+		_residual = res;
+	}
+
+	/**
+	 * @return the norm of the residual of this solute at the end of the last
+	 *         solve
+	 */
+	public float getResidual() {
+		return _residual;
+	}
+
+	/**
+	 * @return the estimate of the truncation error of this solute used by the
+	 *         last solve to check convergence
+	 */
+	public float getTruncationError() {
+		return truncationError;
+	}
+
 	/**
 	 * Set all values in the _mg matrices to the bulk
 	 */
@@ -112,6 +195,50 @@ public class SoluteSpecies extends Species {
 		}
 	}
 
+	/**
+	 * Keep the finest grid values as initial guess for a new solve and
+	 * restrict them to the coarser grids. Voxels outside the boundary layer
+	 * and padding elements are set to the present bulk concentration, as are
+	 * voxels that were outside the boundary layer in the previous solve (held
+	 * the previous bulk concentration). Voxels newly covered by biomass were
+	 * already inside the boundary layer, and keep their previous value.
+	 * 
+	 * @param bl
+	 *            the boundary layer for the present solve
+	 * @param previousBl
+	 *            finest grid of the boundary layer of the previous solve
+	 */
+	void warmStartMultigridCopies(BoundaryLayer bl, float[] previousBl) {
+		float bulk = _bulkConcentration.getValue();
+		int f = _order - 1;
+		float[] u = _mg[f];
+		float[] b = bl._mg[f];
+		GridLevel lf = _levels[f];
+		for (int i = 0; i < lf.n + 2; i++)
+			for (int j = 0; j < lf.m + 2; j++)
+				for (int k = 0; k < lf.l + 2; k++) {
+					int p = lf.index(i, j, k);
+					if ((b[p] >= BLTHRESH) | (previousBl[p] >= BLTHRESH)
+							| lf.isPadding(i, j, k))
+						u[p] = bulk;
+				}
+		_boundaryConditions.refreshBoundaryConditions(u, lf);
+		for (int g = f; g > COARSEST; g--) {
+			float[] uc = _mg[g - 1];
+			float[] bc = bl._mg[g - 1];
+			GridLevel lc = _levels[g - 1];
+			for (int i = 0; i < lc.n + 2; i++)
+				for (int j = 0; j < lc.m + 2; j++)
+					for (int k = 0; k < lc.l + 2; k++) {
+						int p = lc.index(i, j, k);
+						if ((bc[p] >= BLTHRESH) | lc.isPadding(i, j, k))
+							uc[p] = bulk;
+					}
+			MultigridUtils.restrictBoundaryLayer(_mg[g], _levels[g], uc, lc,
+					bc, _boundaryConditions);
+		}
+	}
+
 	/**
 	 * Set value of coarsest grid to the bulk concnetration
 	 */
@@ -124,6 +251,44 @@ public class SoluteSpecies extends Species {
 	 */
 	public void setProcesses(NetReaction stoichiometry) {
 		_processes = stoichiometry;
+		// rates are computed from the new processes until compiled again
+		_kernel = null;
+		ReactionKernel.reactionsChanged();
+	}
+
+	/**
+	 * @return the net reaction for this solute
+	 */
+	public NetReaction getProcesses() {
+		return _processes;
+	}
+
+	/**
+	 * Set the reaction kernel used by the solver to compute the rate of this
+	 * solute. This method is called by the kernel when it is compiled.
+	 * 
+	 * @param k
+	 *            the reaction kernel
+	 * @param s
+	 *            index of this solute in the kernel
+	 */
+	public void setReactionKernel(ReactionKernel k, int s) {
+		_kernel = k;
+		_kernelIndex = s;
+	}
+
+	/**
+	 * @return the reaction kernel bound to this solute (null if none)
+	 */
+	ReactionKernel getReactionKernel() {
+		return _kernel;
+	}
+
+	/**
+	 * @return the index of this solute in its reaction kernel
+	 */
+	int getReactionKernelIndex() {
+		return _kernelIndex;
 	}
 
 	/**
@@ -179,6 +344,19 @@ public class SoluteSpecies extends Species {
 		return _processes.getRate();
 	}
 
+	/**
+	 * Get the net rate at the voxel pointed by cursor v
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return net rate [g/um^3/h]
+	 */
+	public float getRate(VoxelCursor v) {
+		if (_kernel != null)
+			return _kernel.computeRate(_kernelIndex, v);
+		return _processes.getRate(v);
+	}
+
 
 	/**
 	 * Update the array with values of the rate and rate derivative
@@ -188,6 +366,31 @@ public class SoluteSpecies extends Species {
 	public void updateValuesForRateAndRateDerivative(float [] rDr) {
 		_processes.updateValuesForRateAndRateDerivative(this, rDr);
 	}
+
+	/**
+	 * Update the array with values of the rate and rate derivative at the
+	 * voxel pointed by cursor v
+	 * 
+	 * @param rDr [rate, rateDerivative]
+	 * @param v voxel cursor
+	 */
+	public void updateValuesForRateAndRateDerivative(float[] rDr,
+			VoxelCursor v) {
+		if (_kernel != null)
+			_kernel.computeRateAndRateDerivative(_kernelIndex, rDr, v);
+		else
+			_processes.updateValuesForRateAndRateDerivative(this, rDr, v);
+	}
+
+	/**
+	 * @return true if the rates of this solute may be computed concurrently
+	 *         for different voxels
+	 */
+	public boolean hasThreadSafeProcesses() {
+		if (_kernel != null)
+			return _kernel.isThreadSafe();
+		return _processes.isThreadSafe();
+	}
 	
 	/**
 	 * Return a formatted string with rate for this chemical
@@ -0,0 +1,293 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+import nl.tudelft.bt.model.exceptions.MultigridSystemNotSetException;
+import nl.tudelft.bt.model.multigrid.boundary_layers.BoundaryLayer;
+
+/**
+ * Multigrid variables used as temporary storage by the solver, together with
+ * the relative diffusivity and the buffers of the solve of the coarsest grid.
+ * A workspace may be reused by successive solves, so that these are not
+ * allocated again at each solve. The variables are allocated again only if
+ * the grid was changed (by setGrid, e.g. when the system is expanded
+ * vertically) and the relative diffusivity and the padding sources of the
+ * coarsest grid are computed again only if the grid or the boundary
+ * conditions were changed.
+ *
+ * @author jxavier
+ */
+public class SolverWorkspace {
+	// layout of the grids for which the variables were allocated
+	private GridLevel[] _levels;
+
+	// version of the boundary conditions used to compute _relativeDiffusion
+	private int _boundaryConditionsVersion = -1;
+
+	// finest grid of each solute at the end of the two previous solves, for
+	// the transient modes of the solver
+	float[][] previousSolution;
+
+	float[][] olderSolution;
+
+	// time step of the solve that gave previousSolution (0 if it was the
+	// pseudo-steady state)
+	float previousTimeStep;
+
+	private int _nStoredSolutions = 0;
+
+	// finest grid of each particulate species and bulk concentration of each
+	// solute at the last full solve, for the lazy solve of Model
+	private float[][] _solvedParticulates;
+
+	private float[] _solvedBulkConcentrations;
+
+	MultigridVariable itemp;
+
+	MultigridVariable itau;
+
+	RelativeDiffusion relativeDiffusion;
+
+	// values of each solute in the coarsest grid before an iteration
+	float[][] coarsestPrevious;
+
+	// values of each solute in the coarsest grid before the Newton solve,
+	// restored if it fails
+	float[][] coarsestStart;
+
+	// buffers of the Newton solve of the coarsest grid: row of each position,
+	// position of each row, column coupled to each neighbor of each row and
+	// the banded system of each solute
+	int[] newtonRow;
+
+	int[] newtonPosition;
+
+	int[] newtonColumn;
+
+	double[][] newtonMatrix;
+
+	double[][] newtonRightHandSide;
+
+	// how the boundary conditions set each padding element of the coarsest
+	// grid (see MultigridVariable.findPaddingSources)
+	int[] paddingSource;
+
+	float[] paddingWeight;
+
+	// false until the padding sources are found for the present grid and
+	// boundary conditions
+	boolean paddingSourcesFound;
+
+	/**
+	 * Create a new workspace for the present grid
+	 *
+	 * @throws MultigridSystemNotSetException
+	 */
+	public SolverWorkspace() throws MultigridSystemNotSetException {
+		allocate();
+	}
+
+	/**
+	 * Allocate the variables for the present grid
+	 *
+	 * @throws MultigridSystemNotSetException
+	 */
+	private void allocate() throws MultigridSystemNotSetException {
+		itemp = new MultigridVariable();
+		itau = new MultigridVariable();
+		relativeDiffusion = new RelativeDiffusion();
+		_levels = MultigridVariable._levels;
+		int n = _levels[MultigridVariable.COARSEST].length;
+		coarsestPrevious = null;
+		coarsestStart = null;
+		newtonRow = new int[n];
+		newtonPosition = new int[n];
+		newtonColumn = new int[n * 6];
+		newtonMatrix = null;
+		newtonRightHandSide = null;
+		paddingSource = new int[n];
+		paddingWeight = new float[n];
+		_boundaryConditionsVersion = -1;
+		// solutions of a different grid may not be used
+		_nStoredSolutions = 0;
+		_solvedParticulates = null;
+	}
+
+	/**
+	 * Make sure coarsestPrevious and coarsestStart hold the coarsest grid of
+	 * nSolutes solutes
+	 * 
+	 * @param nSolutes
+	 */
+	void prepareCoarsestPrevious(int nSolutes) {
+		if ((coarsestPrevious == null) || (coarsestPrevious.length != nSolutes)) {
+			int n = _levels[MultigridVariable.COARSEST].length;
+			coarsestPrevious = new float[nSolutes][n];
+			coarsestStart = new float[nSolutes][n];
+		}
+	}
+
+	/**
+	 * Make sure the buffers of the banded systems of the Newton solve of the
+	 * coarsest grid hold nSolutes systems of nRows unknowns with band width
+	 * w
+	 * 
+	 * @param nSolutes
+	 * @param nRows
+	 * @param w
+	 */
+	void prepareNewtonSystems(int nSolutes, int nRows, int w) {
+		if ((newtonMatrix == null) || (newtonMatrix.length != nSolutes)
+				|| ((nSolutes > 0) && ((newtonMatrix[0].length < nRows * w)
+						|| (newtonRightHandSide[0].length < nRows)))) {
+			newtonMatrix = new double[nSolutes][nRows * w];
+			newtonRightHandSide = new double[nSolutes][nRows];
+		}
+	}
+
+	/**
+	 * Store the finest grid of each solute at the end of a solve, keeping the
+	 * one previously stored as the older solution
+	 * 
+	 * @param c
+	 *            the solutes
+	 * @param dt
+	 *            time step of the solve (0 if it was the pseudo-steady state)
+	 */
+	void storeSolution(SoluteSpecies[] c, float dt) {
+		if ((previousSolution == null) || (previousSolution.length != c.length)) {
+			previousSolution = new float[c.length][];
+			olderSolution = new float[c.length][];
+			_nStoredSolutions = 0;
+		}
+		float[][] aux = olderSolution;
+		olderSolution = previousSolution;
+		previousSolution = aux;
+		for (int s = 0; s < c.length; s++) {
+			float[] u = c[s]._mg[c[s]._mg.length - 1];
+			if ((previousSolution[s] == null)
+					|| (previousSolution[s].length != u.length))
+				previousSolution[s] = new float[u.length];
+			MultigridUtils.copyTo(u, previousSolution[s]);
+		}
+		previousTimeStep = dt;
+		_nStoredSolutions = Math.min(_nStoredSolutions + 1, 2);
+	}
+
+	/**
+	 * Forget the stored solutions
+	 */
+	void clearSolutions() {
+		_nStoredSolutions = 0;
+	}
+
+	/**
+	 * @param c
+	 *            the solutes
+	 * @return number of solutions of the solutes stored (0, 1 or 2)
+	 */
+	int getNumberOfStoredSolutions(SoluteSpecies[] c) {
+		if ((previousSolution == null) || (previousSolution.length != c.length))
+			return 0;
+		return _nStoredSolutions;
+	}
+
+	/**
+	 * Store the finest grid of each particulate species and the bulk
+	 * concentration of each solute, as the inputs of the solve just done
+	 * 
+	 * @param c
+	 *            the solutes
+	 * @param b
+	 *            the particulate species
+	 */
+	public void storeSolveInputs(SoluteSpecies[] c, ParticulateSpecies[] b) {
+		if ((_solvedParticulates == null)
+				|| (_solvedParticulates.length != b.length))
+			_solvedParticulates = new float[b.length][];
+		for (int s = 0; s < b.length; s++) {
+			float[] u = b[s]._mg[b[s]._mg.length - 1];
+			if ((_solvedParticulates[s] == null)
+					|| (_solvedParticulates[s].length != u.length))
+				_solvedParticulates[s] = new float[u.length];
+			MultigridUtils.copyTo(u, _solvedParticulates[s]);
+		}
+		_solvedBulkConcentrations = new float[c.length];
+		for (int s = 0; s < c.length; s++)
+			_solvedBulkConcentrations[s] = c[s].getBulkConcentration();
+	}
+
+	/**
+	 * Compute the change of the inputs of the solver since they were stored
+	 * by storeSolveInputs, as the largest relative change of a particulate
+	 * species (sum of the changes of its finest grid relative to the sum of
+	 * its concentrations) or of the bulk concentration of a solute
+	 * 
+	 * @param c
+	 *            the solutes
+	 * @param b
+	 *            the particulate species
+	 * @return the relative change, or infinity if no inputs were stored for
+	 *         these species and the present grid
+	 */
+	public float computeChangeOfSolveInputs(SoluteSpecies[] c,
+			ParticulateSpecies[] b) {
+		if ((_solvedParticulates == null)
+				|| (_solvedParticulates.length != b.length)
+				|| (_solvedBulkConcentrations.length != c.length)
+				|| (_levels != MultigridVariable._levels))
+			return Float.POSITIVE_INFINITY;
+		float change = 0;
+		for (int s = 0; s < b.length; s++) {
+			float[] u = b[s]._mg[b[s]._mg.length - 1];
+			float[] old = _solvedParticulates[s];
+			if (old.length != u.length)
+				return Float.POSITIVE_INFINITY;
+			float diff = 0;
+			float total = 0;
+			for (int p = 0; p < u.length; p++) {
+				diff += Math.abs(u[p] - old[p]);
+				total += Math.abs(old[p]);
+			}
+			if (diff > 0)
+				change = Math.max(change, (total > 0 ? diff / total
+						: Float.POSITIVE_INFINITY));
+		}
+		for (int s = 0; s < c.length; s++) {
+			float old = _solvedBulkConcentrations[s];
+			float diff = Math.abs(c[s].getBulkConcentration() - old);
+			if (diff > 0)
+				change = Math.max(change, (old != 0 ? diff / Math.abs(old)
+						: Float.POSITIVE_INFINITY));
+		}
+		return change;
+	}
+
+	/**
+	 * Prepare the workspace for a solve: allocate the variables again if the
+	 * grid was changed, compute the relative diffusivity if needed and set the
+	 * temporary variables to 0
+	 *
+	 * @param bac
+	 *            particulate species
+	 * @param bl
+	 *            the boundary layer
+	 * @throws MultigridSystemNotSetException
+	 */
+	void prepare(ParticulateSpecies[] bac, BoundaryLayer bl)
+			throws MultigridSystemNotSetException {
+		if (_levels != MultigridVariable._levels)
+			allocate();
+		if (_boundaryConditionsVersion != MultigridVariable._boundaryConditionsVersion) {
+			relativeDiffusion.computeValues(bac, bl,
+					MultigridVariable._boundaryConditions);
+			_boundaryConditionsVersion = MultigridVariable._boundaryConditionsVersion;
+			paddingSourcesFound = false;
+		}
+		for (int g = 0; g < itemp._mg.length; g++) {
+			MultigridUtils.setValues(itemp._mg[g], 0f);
+			MultigridUtils.setValues(itau._mg[g], 0f);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+/**
+ * Evaluates the 7-point variable coefficient diffusion operator of the
+ * multigrid solver for a run of voxels of the same colour of red-black
+ * relaxation, at positions p, p + 2, ..., p + 2 * (n - 1) of the same row of
+ * a grid. The rates (and rate derivatives) of the voxels are given in arrays
+ * with the value of voxel t of the run at entry 2 * t. Implementations may
+ * process several voxels at once, but must give the same values as the
+ * scalar code of MultigridVariable.
+ *
+ * @author jxavier
+ */
+interface StencilKernel {
+	/**
+	 * @return number of voxels processed at once (1 if the kernel is not
+	 *         vectorised)
+	 */
+	public int getVectorLength();
+
+	/**
+	 * Relax a run of voxels of one solute: compute the diffusion operator, the
+	 * residual and the Newton update, setting negative concentrations to 0
+	 *
+	 * @param u
+	 *            concentration of the solute
+	 * @param rhs
+	 *            right hand side of the solute
+	 * @param dg
+	 *            relative diffusivity
+	 * @param dc
+	 *            diffusivity of the solute
+	 * @param p
+	 *            position of the first voxel of the run
+	 * @param n
+	 *            number of voxels in the run
+	 * @param r
+	 *            rates of the voxels of the run
+	 * @param dr
+	 *            rate derivatives of the voxels of the run
+	 * @param si
+	 *            stride of the first index
+	 * @param sj
+	 *            stride of the second index
+	 * @param h2i
+	 *            0.5/h^2 for the grid
+	 * @return -1, or the index in the run of a voxel for which the update is
+	 *         NaN (in which case the update of the run is incomplete)
+	 */
+	public int relax(float[] u, float[] rhs, float[] dg, float dc, int p,
+			int n, float[] r, float[] dr, int si, int sj, float h2i);
+
+	/**
+	 * Compute the L-operator of one solute for a run of voxels
+	 *
+	 * @param res
+	 *            where the values are written
+	 * @param u
+	 *            concentration of the solute
+	 * @param dg
+	 *            relative diffusivity
+	 * @param dc
+	 *            diffusivity of the solute
+	 * @param p
+	 *            position of the first voxel of the run
+	 * @param n
+	 *            number of voxels in the run
+	 * @param r
+	 *            rates of the voxels of the run
+	 * @param si
+	 *            stride of the first index
+	 * @param sj
+	 *            stride of the second index
+	 * @param h2i
+	 *            0.5/h^2 for the grid
+	 * @return -1, or the index in the run of a voxel for which the value is NaN
+	 *         (in which case the run is incomplete)
+	 */
+	public int lop(float[] res, float[] u, float[] dg, float dc, int p, int n,
+			float[] r, int si, int sj, float h2i);
+}
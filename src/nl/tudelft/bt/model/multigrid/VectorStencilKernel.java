@@ -0,0 +1,192 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Stencil kernel using the vector API of the JDK (module
+ * jdk.incubator.vector), which must be added when compiling and running (
+ * --add-modules jdk.incubator.vector). The values of a run of voxels are
+ * loaded as contiguous vectors of the grid, covering the voxels of the run
+ * (even lanes) and the voxels of the other colour between them (odd lanes),
+ * which are computed but not written. Operations are done in the same order
+ * as in the scalar code, so the results are the same. Only created through
+ * MultigridVariable.setVectorStencil, which falls back to the scalar code if
+ * this class may not be loaded.
+ *
+ * @author jxavier
+ */
+class VectorStencilKernel implements StencilKernel {
+	// at most 256 bits, since wider vectors were not faster for the short
+	// runs of a row of voxels
+	private static final VectorSpecies<Float> SPECIES = (FloatVector.SPECIES_PREFERRED
+			.vectorBitSize() > 256 ? FloatVector.SPECIES_256
+			: FloatVector.SPECIES_PREFERRED);
+
+	// lanes 0, 2, 4, ... which hold the voxels of a run
+	private static final VectorMask<Float> EVEN_LANES;
+
+	static {
+		boolean[] even = new boolean[SPECIES.length()];
+		for (int i = 0; i < even.length; i++)
+			even[i] = (i % 2 == 0);
+		EVEN_LANES = VectorMask.fromArray(SPECIES, even, 0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see nl.tudelft.bt.model.multigrid.StencilKernel#getVectorLength()
+	 */
+	public int getVectorLength() {
+		return SPECIES.length();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see nl.tudelft.bt.model.multigrid.StencilKernel#relax(float[],
+	 *      float[], float[], float, int, int, float[], float[], int, int,
+	 *      float)
+	 */
+	public int relax(float[] u, float[] rhs, float[] dg, float dc, int p,
+			int n, float[] r, float[] dr, int si, int sj, float h2i) {
+		int span = 2 * n - 1;
+		int t = 0;
+		for (; t + SPECIES.length() <= span; t += SPECIES.length()) {
+			int q = p + t;
+			FloatVector d0 = FloatVector.fromArray(SPECIES, dg, q).mul(dc);
+			FloatVector dim = FloatVector.fromArray(SPECIES, dg, q - si)
+					.mul(dc);
+			FloatVector dip = FloatVector.fromArray(SPECIES, dg, q + si)
+					.mul(dc);
+			FloatVector djm = FloatVector.fromArray(SPECIES, dg, q - sj)
+					.mul(dc);
+			FloatVector djp = FloatVector.fromArray(SPECIES, dg, q + sj)
+					.mul(dc);
+			FloatVector dkm = FloatVector.fromArray(SPECIES, dg, q - 1)
+					.mul(dc);
+			FloatVector dkp = FloatVector.fromArray(SPECIES, dg, q + 1)
+					.mul(dc);
+			FloatVector u0 = FloatVector.fromArray(SPECIES, u, q);
+			FloatVector lop = lop(u, q, si, sj, u0, d0, dim, dip, djm, djp,
+					dkm, dkp).mul(h2i).add(
+					FloatVector.fromArray(SPECIES, r, t));
+			FloatVector dlop = d0.mul(6.0f).add(dip).add(dim).add(djp).add(
+					djm).add(dkp).add(dkm).mul(-h2i).add(
+					FloatVector.fromArray(SPECIES, dr, t));
+			FloatVector res = lop.sub(FloatVector.fromArray(SPECIES, rhs, q))
+					.div(dlop);
+			VectorMask<Float> nan = res.compare(VectorOperators.NE, res).and(
+					EVEN_LANES);
+			if (nan.anyTrue())
+				return (t + nan.firstTrue()) / 2;
+			FloatVector un = u0.sub(res);
+			// if negative concentrations, put 0 value
+			un = un.blend(0f, un.lt(0f));
+			u0.blend(un, EVEN_LANES).intoArray(u, q);
+		}
+		// remaining voxels of the run
+		for (; t < span; t += 2) {
+			int q = p + t;
+			float dim = dc * dg[q - si];
+			float dip = dc * dg[q + si];
+			float djm = dc * dg[q - sj];
+			float djp = dc * dg[q + sj];
+			float dkm = dc * dg[q - 1];
+			float dkp = dc * dg[q + 1];
+			float d0 = dc * dg[q];
+			float u0 = u[q];
+			float lop = ((dip + d0) * (u[q + si] - u0) + (dim + d0)
+					* (u[q - si] - u0) + (djp + d0) * (u[q + sj] - u0)
+					+ (djm + d0) * (u[q - sj] - u0) + (dkp + d0)
+					* (u[q + 1] - u0) + (dkm + d0) * (u[q - 1] - u0))
+					* h2i + r[t];
+			float dlop = -h2i
+					* (6.0f * d0 + dip + dim + djp + djm + dkp + dkm) + dr[t];
+			float res = (lop - rhs[q]) / dlop;
+			if (res != res)
+				return t / 2;
+			u0 -= res;
+			u[q] = (u0 < 0 ? 0 : u0);
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see nl.tudelft.bt.model.multigrid.StencilKernel#lop(float[], float[],
+	 *      float[], float, int, int, float[], int, int, float)
+	 */
+	public int lop(float[] res, float[] u, float[] dg, float dc, int p, int n,
+			float[] r, int si, int sj, float h2i) {
+		int span = 2 * n - 1;
+		int t = 0;
+		for (; t + SPECIES.length() <= span; t += SPECIES.length()) {
+			int q = p + t;
+			FloatVector lop = lop(u, q, si, sj, FloatVector.fromArray(
+					SPECIES, u, q), FloatVector.fromArray(SPECIES, dg, q)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q - si)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q + si)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q - sj)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q + sj)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q - 1)
+					.mul(dc), FloatVector.fromArray(SPECIES, dg, q + 1)
+					.mul(dc)).mul(h2i).add(
+					FloatVector.fromArray(SPECIES, r, t));
+			VectorMask<Float> nan = lop.compare(VectorOperators.NE, lop).and(
+					EVEN_LANES);
+			if (nan.anyTrue())
+				return (t + nan.firstTrue()) / 2;
+			FloatVector.fromArray(SPECIES, res, q).blend(lop, EVEN_LANES)
+					.intoArray(res, q);
+		}
+		// remaining voxels of the run
+		for (; t < span; t += 2) {
+			int q = p + t;
+			float dim = dc * dg[q - si];
+			float dip = dc * dg[q + si];
+			float djm = dc * dg[q - sj];
+			float djp = dc * dg[q + sj];
+			float dkm = dc * dg[q - 1];
+			float dkp = dc * dg[q + 1];
+			float d0 = dc * dg[q];
+			float u0 = u[q];
+			float lop = ((dip + d0) * (u[q + si] - u0) + (dim + d0)
+					* (u[q - si] - u0) + (djp + d0) * (u[q + sj] - u0)
+					+ (djm + d0) * (u[q - sj] - u0) + (dkp + d0)
+					* (u[q + 1] - u0) + (dkm + d0) * (u[q - 1] - u0))
+					* h2i + r[t];
+			if (lop != lop)
+				return t / 2;
+			res[q] = lop;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sum of the fluxes to the voxels at q to q + SPECIES.length() - 1
+	 * (before multiplying by h2i)
+	 */
+	private static FloatVector lop(float[] u, int q, int si, int sj,
+			FloatVector u0, FloatVector d0, FloatVector dim, FloatVector dip,
+			FloatVector djm, FloatVector djp, FloatVector dkm, FloatVector dkp) {
+		return dip.add(d0).mul(FloatVector.fromArray(SPECIES, u, q + si).sub(u0))
+				.add(dim.add(d0).mul(
+						FloatVector.fromArray(SPECIES, u, q - si).sub(u0)))
+				.add(djp.add(d0).mul(
+						FloatVector.fromArray(SPECIES, u, q + sj).sub(u0)))
+				.add(djm.add(d0).mul(
+						FloatVector.fromArray(SPECIES, u, q - sj).sub(u0)))
+				.add(dkp.add(d0).mul(
+						FloatVector.fromArray(SPECIES, u, q + 1).sub(u0)))
+				.add(dkm.add(d0).mul(
+						FloatVector.fromArray(SPECIES, u, q - 1).sub(u0)));
+	}
+}
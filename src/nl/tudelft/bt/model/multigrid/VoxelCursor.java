@@ -0,0 +1,230 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.multigrid;
+
+/**
+ * Location of a voxel in the multigrid hierarchy, together with the scratch
+ * space needed to evaluate rates at that voxel. Each thread that relaxes the
+ * solute concentrations carries its own cursor, so that rate evaluations
+ * (ProcessFactor, Reaction and NetReaction) do not depend on the static
+ * location stored in MultigridVariable.
+ *
+ * @author jxavier
+ */
+public class VoxelCursor {
+	// grid order
+	public int g;
+
+	// indexes of the voxel in grid g
+	public int i;
+
+	public int j;
+
+	public int k;
+
+	// position of the voxel in the contiguous array of grid g
+	public int index;
+
+	// [rate, rateDerivative] for a net reaction
+	public final float[] rDr = new float[2];
+
+	// [rate, rateDerivative] for a single reaction
+	public final float[] reactionRDr = new float[2];
+
+	// values of the process factors of the reaction being computed
+	private float[] _factorValues = new float[4];
+
+	// values of the species read by a reaction kernel
+	private float[] _variableValues = new float[8];
+
+	// values of the reactions computed by a reaction kernel
+	private float[] _reactionValues = new float[8];
+
+	// [rate, rateDerivative] of all solutes
+	private float[] _ratesAndRateDerivatives = new float[8];
+
+	// rates of all solutes and their Jacobian, for coupled relaxation
+	private float[] _rates = new float[4];
+
+	private float[] _jacobian = new float[16];
+
+	// matrix and right hand side of the coupled update of a voxel
+	private double[] _system = new double[20];
+
+	// rates and rate derivatives of each solute for a run of voxels
+	private float[][] _runRates = new float[0][0];
+
+	private float[][] _runRateDerivatives = new float[0][0];
+
+	/**
+	 * Get an array to store values of process factors, with at least n
+	 * entries
+	 *
+	 * @param n
+	 *            number of process factors
+	 * @return array to hold the values of the factors
+	 */
+	public float[] getFactorValues(int n) {
+		if (_factorValues.length < n)
+			_factorValues = new float[n];
+		return _factorValues;
+	}
+
+	/**
+	 * Get an array to store the values of the species read by a reaction
+	 * kernel, with at least n entries
+	 * 
+	 * @param n
+	 *            number of species
+	 * @return array to hold the values of the species
+	 */
+	public float[] getVariableValues(int n) {
+		if (_variableValues.length < n)
+			_variableValues = new float[n];
+		return _variableValues;
+	}
+
+	/**
+	 * Get an array to store values of the reactions computed by a reaction
+	 * kernel, with at least n entries
+	 * 
+	 * @param n
+	 *            number of reactions
+	 * @return array to hold the values of the reactions
+	 */
+	public float[] getReactionValues(int n) {
+		if (_reactionValues.length < n)
+			_reactionValues = new float[n];
+		return _reactionValues;
+	}
+
+	/**
+	 * Get an array to store the rate and rate derivative of n solutes, with
+	 * the values of solute s at entries 2s and 2s + 1
+	 * 
+	 * @param n
+	 *            number of solutes
+	 * @return array to hold the rates and rate derivatives
+	 */
+	public float[] getRatesAndRateDerivatives(int n) {
+		if (_ratesAndRateDerivatives.length < 2 * n)
+			_ratesAndRateDerivatives = new float[2 * n];
+		return _ratesAndRateDerivatives;
+	}
+
+	/**
+	 * Get an array to store the rates of n solutes, with at least n entries
+	 * 
+	 * @param n
+	 *            number of solutes
+	 * @return array to hold the rates
+	 */
+	public float[] getRates(int n) {
+		if (_rates.length < n)
+			_rates = new float[n];
+		return _rates;
+	}
+
+	/**
+	 * Get an array to store the derivatives of the rates of n solutes in
+	 * respect to each solute, with at least n * n entries
+	 * 
+	 * @param n
+	 *            number of solutes
+	 * @return array to hold the Jacobian of the rates
+	 */
+	public float[] getJacobian(int n) {
+		if (_jacobian.length < n * n)
+			_jacobian = new float[n * n];
+		return _jacobian;
+	}
+
+	/**
+	 * Get an array to store a linear system of n equations, the n * n entries
+	 * of the matrix followed by the n entries of the right hand side
+	 * 
+	 * @param n
+	 *            number of equations
+	 * @return array to hold the linear system
+	 */
+	public double[] getLinearSystem(int n) {
+		if (_system.length < n * (n + 1))
+			_system = new double[n * (n + 1)];
+		return _system;
+	}
+
+	/**
+	 * Get arrays to store the rates of n solutes for a run of voxels (see
+	 * StencilKernel), with at least length entries each
+	 * 
+	 * @param n
+	 *            number of solutes
+	 * @param length
+	 *            number of entries
+	 * @return array with the rates of each solute
+	 */
+	public float[][] getRunRates(int n, int length) {
+		_runRates = resize(_runRates, n, length);
+		return _runRates;
+	}
+
+	/**
+	 * Get arrays to store the rate derivatives of n solutes for a run of
+	 * voxels (see StencilKernel), with at least length entries each
+	 * 
+	 * @param n
+	 *            number of solutes
+	 * @param length
+	 *            number of entries
+	 * @return array with the rate derivatives of each solute
+	 */
+	public float[][] getRunRateDerivatives(int n, int length) {
+		_runRateDerivatives = resize(_runRateDerivatives, n, length);
+		return _runRateDerivatives;
+	}
+
+	/**
+	 * @return a, or new arrays if a has less than n arrays or less than
+	 *         length entries each
+	 */
+	private static float[][] resize(float[][] a, int n, int length) {
+		if ((a.length < n) || ((n > 0) && (a[0].length < length)))
+			return new float[Math.max(n, a.length)][Math.max(length,
+					(a.length > 0 ? a[0].length : 0))];
+		return a;
+	}
+
+	/**
+	 * Point this cursor to a voxel
+	 *
+	 * @param g
+	 *            grid order
+	 * @param i
+	 * @param j
+	 * @param k
+	 */
+	public void set(int g, int i, int j, int k) {
+		this.g = g;
+		this.i = i;
+		this.j = j;
+		this.k = k;
+		index = MultigridVariable._levels[g].index(i, j, k);
+	}
+
+	/**
+	 * Point this cursor to a voxel of the present grid order, given its
+	 * position in the contiguous array of that grid order
+	 * 
+	 * @param p
+	 *            position of the voxel
+	 */
+	public void setIndex(int p) {
+		GridLevel lv = MultigridVariable._levels[g];
+		index = p;
+		i = p / lv.si;
+		p -= i * lv.si;
+		j = p / lv.sj;
+		k = p - j * lv.sj;
+	}
+}
@@ -3,6 +3,8 @@
  */
 package nl.tudelft.bt.model.multigrid.boundary_conditions;
 
+import nl.tudelft.bt.model.multigrid.GridLevel;
+
 /**
  * Interface for the boundary conditions to be used in the multigrid method
  * 
@@ -12,9 +14,27 @@ public interface BoundaryConditions {
 	/**
 	 * Refreshes the boundary conditions during multigrid computatioin
 	 * 
-	 * @param u a 3D matrix to update boundary conditions in.
+	 * @param u a grid to update boundary conditions in.
+	 * @param g layout of the grid
+	 */
+	public void refreshBoundaryConditions(float u[], GridLevel g);
+
+	/**
+	 * Refreshes only the padding elements that depend on voxels of one colour
+	 * of red-black relaxation (see GridLevel.colour) with first index from i0
+	 * to i1. Used by the relaxation after the voxels of that colour in those
+	 * planes are updated, when the remaining padding elements are already up
+	 * to date.
+	 * 
+	 * @param u a grid to update boundary conditions in.
+	 * @param g layout of the grid
+	 * @param colour 0 (red) or 1 (black)
+	 * @param i0 first plane (1 for the whole grid)
+	 * @param i1 last plane (g.n for the whole grid)
 	 */
-	public void refreshBoundaryConditions(float u[][][]);
+	public void refreshBoundaryConditions(float u[], GridLevel g, int colour,
+			int i0, int i1);
+
 	/**
 	 * Implements the shape of the substratum carrier for the multigrid
 	 * computation
@@ -5,6 +5,8 @@ package nl.tudelft.bt.model.multigrid.boundary_conditions;
 
 import java.io.Serializable;
 
+import nl.tudelft.bt.model.multigrid.GridLevel;
+
 /**
  * Implements boundary conditions for a granule type of morphology where bottom
  * all borders are constant value
@@ -15,33 +17,85 @@ public class GranuleBoundaryConditions implements BoundaryConditions,
 		Serializable {
 
 	// // CYCLIC BOUNDARIES EVERYWHERE
-	public void refreshBoundaryConditions(float[][][] u) {
-		int l = u[0][0].length - 2;
-		int m = u[0].length - 2;
-		int n = u.length - 2;
+	public void refreshBoundaryConditions(float[] u, GridLevel g) {
+		int l = g.l;
+		int m = g.m;
+		int n = g.n;
+		int si = g.si;
+		int sj = g.sj;
 
 		for (int i = 1; i <= n; i++) {
 			for (int j = 1; j <= m; j++) {
+				int p = i * si + j * sj;
 				// cyclic borders (sides)
-				u[i][j][0] = u[i][j][l];
-				u[i][j][l + 1] = u[i][j][1];
+				u[p] = u[p + l];
+				u[p + l + 1] = u[p + 1];
 			}
 			for (int k = 1; k <= l; k++) {
+				int p = i * si + k;
 				// cyclic borders (sides)
-				u[i][0][k] = u[i][m][k];
-				u[i][m + 1][k] = u[i][1][k];
+				u[p] = u[p + m * sj];
+				u[p + (m + 1) * sj] = u[p + sj];
 			}
 		}
 		for (int j = 1; j <= m; j++) {
 			for (int k = 1; k <= l; k++) {
+				int p = j * sj + k;
 				// cyclic borders (bottom)
-				u[0][j][k] = u[n][j][k];
-				u[n + 1][j][k] = u[1][j][k];
+				u[p] = u[p + n * si];
+				u[p + (n + 1) * si] = u[p + si];
 			}
 		}
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions#refreshBoundaryConditions(float[], GridLevel, int, int, int)
+	 */
+	public void refreshBoundaryConditions(float[] u, GridLevel g, int colour,
+			int i0, int i1) {
+		int l = g.l;
+		int m = g.m;
+		int n = g.n;
+		int si = g.si;
+		int sj = g.sj;
+
+		for (int i = i0; i <= i1; i++) {
+			// cyclic borders (sides)
+			for (int j = GridLevel.firstOfColour(colour, i + l); j <= m; j += 2) {
+				int p = i * si + j * sj;
+				u[p] = u[p + l];
+			}
+			for (int j = GridLevel.firstOfColour(colour, i + 1); j <= m; j += 2) {
+				int p = i * si + j * sj;
+				u[p + l + 1] = u[p + 1];
+			}
+			for (int k = GridLevel.firstOfColour(colour, i + m); k <= l; k += 2) {
+				int p = i * si + k;
+				u[p] = u[p + m * sj];
+			}
+			for (int k = GridLevel.firstOfColour(colour, i + 1); k <= l; k += 2) {
+				int p = i * si + k;
+				u[p + (m + 1) * sj] = u[p + sj];
+			}
+		}
+		// cyclic borders (bottom)
+		for (int j = 1; j <= m; j++) {
+			if (i1 == n)
+				for (int k = GridLevel.firstOfColour(colour, n + j); k <= l; k += 2) {
+					int p = j * sj + k;
+					u[p] = u[p + n * si];
+				}
+			if (i0 == 1)
+				for (int k = GridLevel.firstOfColour(colour, 1 + j); k <= l; k += 2) {
+					int p = j * sj + k;
+					u[p + (n + 1) * si] = u[p + si];
+				}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -5,6 +5,8 @@ package nl.tudelft.bt.model.multigrid.boundary_conditions;
 
 import java.io.Serializable;
 
+import nl.tudelft.bt.model.multigrid.GridLevel;
+
 /**
  * Implements boundary conditions where all borders are constant value
  * 
@@ -14,11 +16,21 @@ public class SurroundedByBulkBoundaryConditions implements BoundaryConditions,
 		Serializable {
 
 	// // CYCLIC BOUNDARIES EVERYWHERE
-	public void refreshBoundaryConditions(float[][][] u) {
+	public void refreshBoundaryConditions(float[] u, GridLevel g) {
 		// DO NOTHING - this way the padding keeps the original bulk values
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions#refreshBoundaryConditions(float[], GridLevel, int, int, int)
+	 */
+	public void refreshBoundaryConditions(float[] u, GridLevel g, int colour,
+			int i0, int i1) {
+		// DO NOTHING - this way the padding keeps the original bulk values
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -7,6 +7,7 @@ import java.io.Serializable;
 
 import nl.tudelft.bt.model.Model;
 import nl.tudelft.bt.model.exceptions.ModelRuntimeException;
+import nl.tudelft.bt.model.multigrid.GridLevel;
 import nl.tudelft.bt.model.util.ExtraMath;
 
 /**
@@ -31,34 +32,88 @@ public class TissueBoundaryConditions implements BoundaryConditions,
 		_externalTransfer = externalTransfer;
 	}
 
-	public void refreshBoundaryConditions(float[][][] u) {
-		int l = u[0][0].length - 2;
-		int m = u[0].length - 2;
-		int n = u.length - 2;
+	public void refreshBoundaryConditions(float[] u, GridLevel g) {
+		int l = g.l;
+		int m = g.m;
+		int n = g.n;
+		int si = g.si;
+		int sj = g.sj;
 
-		float bulkConcentration = u[0][0][0];
+		float bulkConcentration = u[0];
 		float aux1 = bulkConcentration * _externalTransfer;
 		float aux2 = 1 - _externalTransfer;
 
 		for (int i = 1; i <= n; i++) {
 			for (int j = 1; j <= m; j++) {
-				u[i][j][0] = aux1 + aux2 * u[i][j][1];
-				u[i][j][l + 1] = aux1 + aux2 * u[i][j][l];
+				int p = i * si + j * sj;
+				u[p] = aux1 + aux2 * u[p + 1];
+				u[p + l + 1] = aux1 + aux2 * u[p + l];
 			}
 			for (int k = 1; k <= l; k++) {
-				u[i][0][k] = aux1 + aux2 * u[i][1][k];
-				u[i][m + 1][k] = aux1 + aux2 * u[i][m][k];
+				int p = i * si + k;
+				u[p] = aux1 + aux2 * u[p + sj];
+				u[p + (m + 1) * sj] = aux1 + aux2 * u[p + m * sj];
 			}
 		}
 		for (int j = 1; j <= m; j++) {
 			for (int k = 1; k <= l; k++) {
-				u[0][j][k] = aux1 + aux2 * u[1][j][k];
-				u[n + 1][j][k] = aux1 + aux2 * u[n][j][k];
+				int p = j * sj + k;
+				u[p] = aux1 + aux2 * u[p + si];
+				u[p + (n + 1) * si] = aux1 + aux2 * u[p + n * si];
 			}
 		}
 
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions#refreshBoundaryConditions(float[], GridLevel, int, int, int)
+	 */
+	public void refreshBoundaryConditions(float[] u, GridLevel g, int colour,
+			int i0, int i1) {
+		int l = g.l;
+		int m = g.m;
+		int n = g.n;
+		int si = g.si;
+		int sj = g.sj;
+
+		float bulkConcentration = u[0];
+		float aux1 = bulkConcentration * _externalTransfer;
+		float aux2 = 1 - _externalTransfer;
+
+		for (int i = i0; i <= i1; i++) {
+			for (int j = GridLevel.firstOfColour(colour, i + 1); j <= m; j += 2) {
+				int p = i * si + j * sj;
+				u[p] = aux1 + aux2 * u[p + 1];
+			}
+			for (int j = GridLevel.firstOfColour(colour, i + l); j <= m; j += 2) {
+				int p = i * si + j * sj;
+				u[p + l + 1] = aux1 + aux2 * u[p + l];
+			}
+			for (int k = GridLevel.firstOfColour(colour, i + 1); k <= l; k += 2) {
+				int p = i * si + k;
+				u[p] = aux1 + aux2 * u[p + sj];
+			}
+			for (int k = GridLevel.firstOfColour(colour, i + m); k <= l; k += 2) {
+				int p = i * si + k;
+				u[p + (m + 1) * sj] = aux1 + aux2 * u[p + m * sj];
+			}
+		}
+		for (int j = 1; j <= m; j++) {
+			if (i0 == 1)
+				for (int k = GridLevel.firstOfColour(colour, 1 + j); k <= l; k += 2) {
+					int p = j * sj + k;
+					u[p] = aux1 + aux2 * u[p + si];
+				}
+			if (i1 == n)
+				for (int k = GridLevel.firstOfColour(colour, n + j); k <= l; k += 2) {
+					int p = j * sj + k;
+					u[p + (n + 1) * si] = aux1 + aux2 * u[p + n * si];
+				}
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
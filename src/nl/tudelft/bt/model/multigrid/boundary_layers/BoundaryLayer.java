@@ -1,6 +1,7 @@
 package nl.tudelft.bt.model.multigrid.boundary_layers;
 
 import nl.tudelft.bt.model.exceptions.MultigridSystemNotSetException;
+import nl.tudelft.bt.model.multigrid.GridLevel;
 import nl.tudelft.bt.model.multigrid.MultigridVariable;
 import nl.tudelft.bt.model.multigrid.ParticulateSpecies;
 import nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions;
@@ -11,6 +12,29 @@ import nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions;
  * @author Joao Xavier (j.xavier@tnw.tudelft.nl)
  */
 abstract public class BoundaryLayer extends MultigridVariable {
+	/**
+	 * Colour of the voxels (i, j, k) with i + j + k odd, relaxed in the first
+	 * pass of red-black relaxation
+	 */
+	public static final int RED = 0;
+
+	/**
+	 * Colour of the voxels (i, j, k) with i + j + k even, relaxed in the second
+	 * pass of red-black relaxation
+	 */
+	public static final int BLACK = 1;
+
+	// positions of the voxels inside the boundary layer, for each grid order
+	// and colour, in the order in which they are found sweeping the grid
+	private transient int[][][] _activeVoxels;
+
+	// number of entries of _activeVoxels in use
+	private transient int[][] _nActiveVoxels;
+
+	// for each grid order and colour, entry i is the number of entries of
+	// _activeVoxels with first index lower than i
+	private transient int[][][] _planeOffsets;
+
 	/**
 	 * New boundary layer object
 	 * 
@@ -32,4 +56,105 @@ abstract public class BoundaryLayer extends MultigridVariable {
 
 	public void setThickness(float h) {
 	};
+
+	/**
+	 * Restrict the boundary layer to all coarser grids and build the lists of
+	 * voxels inside the boundary layer. Must be called each time
+	 * setBoundaryLayer is called, before the solver uses the lists.
+	 */
+	public void updateMultigridCopies() {
+		super.updateMultigridCopies();
+		updateActiveVoxels();
+	}
+
+	/**
+	 * Build the lists of voxels inside the boundary layer (value below
+	 * BLTHRESH) for every grid order, split by colour. The arrays are reused
+	 * between calls if they are large enough.
+	 */
+	private void updateActiveVoxels() {
+		if ((_activeVoxels == null) || (_activeVoxels.length != _order)) {
+			_activeVoxels = new int[_order][2][0];
+			_nActiveVoxels = new int[_order][2];
+			_planeOffsets = new int[_order][2][];
+		}
+		for (int g = 0; g < _order; g++) {
+			GridLevel lv = getGridLevel(g);
+			float[] blg = _mg[g];
+			int[] n = _nActiveVoxels[g];
+			n[RED] = 0;
+			n[BLACK] = 0;
+			// count the voxels of each colour
+			for (int i = 1; i <= lv.n; i++)
+				for (int j = 1; j <= lv.m; j++)
+					for (int k = 1, p = lv.index(i, j, 1); k <= lv.l; k++, p++)
+						if (blg[p] < BLTHRESH)
+							n[GridLevel.colour(i, j, k)]++;
+			for (int c = 0; c < 2; c++) {
+				if (_activeVoxels[g][c].length < n[c])
+					_activeVoxels[g][c] = new int[n[c]];
+				if ((_planeOffsets[g][c] == null)
+						|| (_planeOffsets[g][c].length != lv.n + 2))
+					_planeOffsets[g][c] = new int[lv.n + 2];
+				n[c] = 0;
+			}
+			// fill the lists (sorted by plane, since p increases with i)
+			for (int i = 1; i <= lv.n; i++) {
+				_planeOffsets[g][RED][i] = n[RED];
+				_planeOffsets[g][BLACK][i] = n[BLACK];
+				for (int j = 1; j <= lv.m; j++)
+					for (int k = 1, p = lv.index(i, j, 1); k <= lv.l; k++, p++)
+						if (blg[p] < BLTHRESH) {
+							int c = GridLevel.colour(i, j, k);
+							_activeVoxels[g][c][n[c]++] = p;
+						}
+			}
+			_planeOffsets[g][RED][lv.n + 1] = n[RED];
+			_planeOffsets[g][BLACK][lv.n + 1] = n[BLACK];
+		}
+	}
+
+	/**
+	 * Get the positions of the voxels of one colour inside the boundary layer
+	 * at grid order g. Only the first getNumberOfActiveVoxels(g, colour)
+	 * entries of the array are valid.
+	 * 
+	 * @param g
+	 *            grid order
+	 * @param colour
+	 *            RED or BLACK
+	 * @return positions of the voxels in the contiguous array of grid g
+	 */
+	public int[] getActiveVoxels(int g, int colour) {
+		return _activeVoxels[g][colour];
+	}
+
+	/**
+	 * @param g
+	 *            grid order
+	 * @param colour
+	 *            RED or BLACK
+	 * @return number of voxels of one colour inside the boundary layer at grid
+	 *         order g
+	 */
+	public int getNumberOfActiveVoxels(int g, int colour) {
+		return _nActiveVoxels[g][colour];
+	}
+
+	/**
+	 * Get the offsets of each plane (voxels with the same first index i) in
+	 * the list of active voxels of one colour. The voxels of planes i0 to i1
+	 * are the entries from offsets[i0] to offsets[i1 + 1] - 1 of the list
+	 * returned by getActiveVoxels(g, colour).
+	 * 
+	 * @param g
+	 *            grid order
+	 * @param colour
+	 *            RED or BLACK
+	 * @return array where entry i (from 1 to n + 1) is the number of active
+	 *         voxels of the colour with first index lower than i
+	 */
+	public int[] getPlaneOffsets(int g, int colour) {
+		return _planeOffsets[g][colour];
+	}
 }
\ No newline at end of file
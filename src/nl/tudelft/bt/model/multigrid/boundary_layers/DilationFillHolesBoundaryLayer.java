@@ -3,6 +3,7 @@ package nl.tudelft.bt.model.multigrid.boundary_layers;
 import nl.tudelft.bt.model.detachment.cvf.ConnectedToTopCvf;
 import nl.tudelft.bt.model.detachment.cvf.ConnectedVolumeFilter;
 import nl.tudelft.bt.model.exceptions.MultigridSystemNotSetException;
+import nl.tudelft.bt.model.multigrid.GridLevel;
 import nl.tudelft.bt.model.multigrid.ParticulateSpecies;
 import nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions;
 
@@ -28,20 +29,32 @@ public class DilationFillHolesBoundaryLayer extends SphericalDilationBoundaryLay
 		cvf = new ConnectedToTopCvf(_n, _m, _l);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.boundary_layers.SphericalDilationBoundaryLayer#adaptToGrid(float)
+	 */
+	public void adaptToGrid(float value) {
+		super.adaptToGrid(value);
+		_boundaryLayer = new boolean[_n][_m][_l];
+		cvf = new ConnectedToTopCvf(_n, _m, _l);
+	}
+
 	/**
 	 * Here we define a dilation boundary condition but then fill the holes
 	 * inside the cell cluster (the tumor or the biofilm) using a connected
 	 * volume filtration
 	 */
 	public void setBoundaryLayer(ParticulateSpecies[] b, BoundaryConditions bc) {
-		float[][][] bl = _mg[_order - 1];
+		float[] bl = _mg[_order - 1];
+		GridLevel f = _levels[_order - 1];
 		// get the information on all the biomass
 		for (int i = 0; i < _n; i++)
 			for (int j = 0; j < _m; j++)
 				for (int k = 0; k < _l; k++) {
 					_totalBiomass[i][j][k] = false;
 					for (int sp = 0; sp < b.length; sp++)
-						if (b[sp]._mg[_order - 1][i + 1][j + 1][k + 1] > 0) {
+						if (b[sp]._mg[_order - 1][f.index(i + 1, j + 1, k + 1)] > 0) {
 							_totalBiomass[i][j][k] = true;
 							break;
 						}
@@ -70,8 +83,8 @@ public class DilationFillHolesBoundaryLayer extends SphericalDilationBoundaryLay
 			for (int j = 0; j < _m; j++)
 				for (int k = 0; k < _l; k++)
 					if (cvf2[i][j][k])
-						bl[i + 1][j + 1][k + 1] = 1;
+						bl[f.index(i + 1, j + 1, k + 1)] = 1;
 					else
-						bl[i + 1][j + 1][k + 1] = 0;
+						bl[f.index(i + 1, j + 1, k + 1)] = 0;
 	}
 }
\ No newline at end of file
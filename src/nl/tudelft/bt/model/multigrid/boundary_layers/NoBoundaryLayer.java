@@ -23,7 +23,7 @@ public class NoBoundaryLayer extends BoundaryLayer {
 	public void setBoundaryLayer(ParticulateSpecies[] b, BoundaryConditions bc) {
 		// boundary layer initialized with 0 everywhere - means that calculation
 		// will be everywhere
-		float[][][] bl = _mg[_order - 1];
+		float[] bl = _mg[_order - 1];
 		MultigridUtils.setValues(bl, 0f);
 	}
 }
\ No newline at end of file
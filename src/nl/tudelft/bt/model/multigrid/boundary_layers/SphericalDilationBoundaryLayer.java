@@ -2,6 +2,7 @@ package nl.tudelft.bt.model.multigrid.boundary_layers;
 
 import nl.tudelft.bt.model.Model;
 import nl.tudelft.bt.model.exceptions.MultigridSystemNotSetException;
+import nl.tudelft.bt.model.multigrid.GridLevel;
 import nl.tudelft.bt.model.multigrid.MultigridUtils;
 import nl.tudelft.bt.model.multigrid.ParticulateSpecies;
 import nl.tudelft.bt.model.multigrid.boundary_conditions.BoundaryConditions;
@@ -32,16 +33,27 @@ public class SphericalDilationBoundaryLayer extends BoundaryLayer {
 		_totalBiomass = new boolean[_n][_m][_l];
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.multigrid.MultigridVariable#adaptToGrid(float)
+	 */
+	public void adaptToGrid(float value) {
+		super.adaptToGrid(value);
+		_totalBiomass = new boolean[_n][_m][_l];
+	}
+
 	public void setBoundaryLayer(ParticulateSpecies[] b,
 			BoundaryConditions bc) {
-		float[][][] bl = _mg[_order - 1];
+		float[] bl = _mg[_order - 1];
+		GridLevel f = _levels[_order - 1];
 		// get the information concerning all the biomass
 		for (int i = 0; i < _n; i++)
 			for (int j = 0; j < _m; j++)
 				for (int k = 0; k < _l; k++) {
 					_totalBiomass[i][j][k] = false;
 					for (int sp = 0; sp < b.length; sp++)
-						if (b[sp]._mg[_order - 1][i + 1][j + 1][k + 1] > 0) {
+						if (b[sp]._mg[_order - 1][f.index(i + 1, j + 1, k + 1)] > 0) {
 							_totalBiomass[i][j][k] = true;
 							break;
 						}
@@ -52,10 +64,10 @@ public class SphericalDilationBoundaryLayer extends BoundaryLayer {
 				for (int k = 0; k < _l; k++)
 					if (_totalBiomass[i][j][k] | bc.isCarrier(i, j, k)) {
 						//if this is biomass,
-						bl[i + 1][j + 1][k + 1] = 0;
+						bl[f.index(i + 1, j + 1, k + 1)] = 0;
 					} else {
 						//if liquid, check dilation sphere for biomass
-						bl[i + 1][j + 1][k + 1] = checkDilationRadiusForBiomass(
+						bl[f.index(i + 1, j + 1, k + 1)] = checkDilationRadiusForBiomass(
 								i, j, k);
 					}
 	}
@@ -140,7 +152,7 @@ public class SphericalDilationBoundaryLayer extends BoundaryLayer {
 	public boolean sphericalOutOfBounds(float x, float y, float z) {
 		//get the center's coordinates:
 		float centerX = Math.round(((float) _m - 1) / 2f) * _voxelSide;
-		float centerY = Math.round(((float) _n - 1) / 2f) * _voxelSide;
+		float centerY = Math.round(((float) _nSystem - 1) / 2f) * _voxelSide;
 		float centerZ = Math.round(((float) _l - 1) / 2f) * _voxelSide;
 		// get point distance to center
 		float dist = ExtraMath
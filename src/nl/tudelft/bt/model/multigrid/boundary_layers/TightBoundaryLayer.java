@@ -22,15 +22,13 @@ public class TightBoundaryLayer extends BoundaryLayer {
 
 	public void setBoundaryLayer(ParticulateSpecies[] b,
 			BoundaryConditions bc) {
-		float[][][] bl = _mg[_order - 1];
+		float[] bl = _mg[_order - 1];
 		MultigridUtils.setValues(bl, 1.0f);
-		for (int i = 0; i < bl.length; i++)
-			for (int j = 0; j < bl[i].length; j++)
-				for (int k = 0; k < bl[i][j].length; k++)
-					for (int sp = 0; sp < b.length; sp++)
-						if (b[sp]._mg[_order - 1][i][j][k] > 0) {
-							bl[i][j][k] = 0;
-							break;
-						}
+		for (int p = 0; p < bl.length; p++)
+			for (int sp = 0; sp < b.length; sp++)
+				if (b[sp]._mg[_order - 1][p] > 0) {
+					bl[p] = 0;
+					break;
+				}
 	}
 }
\ No newline at end of file
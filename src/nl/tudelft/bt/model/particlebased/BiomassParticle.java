@@ -23,13 +23,11 @@ public class BiomassParticle implements Cloneable, Serializable {
 
 	protected BiomassSpecies.Composition _composition;
 
-	protected float _r;
+	// store of the center and radius of the particle, and the id of the
+	// particle in the store
+	protected ParticleStore _store;
 
-	protected float _centerX;
-
-	protected float _centerY;
-
-	protected float _centerZ;
+	protected int _id;
 
 	private int _shovL;
 
@@ -71,8 +69,8 @@ public class BiomassParticle implements Cloneable, Serializable {
 		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
 		 */
 		public int compare(Object b1, Object b2) {
-			float z1 = ((BiomassParticle) b1)._centerZ;
-			float z2 = ((BiomassParticle) b2)._centerZ;
+			float z1 = ((BiomassParticle) b1).getCenterZ();
+			float z2 = ((BiomassParticle) b2).getCenterZ();
 			return (z1 < z2 ? 1 : -1);
 		}
 	}
@@ -89,8 +87,8 @@ public class BiomassParticle implements Cloneable, Serializable {
 		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
 		 */
 		public int compare(Object b1, Object b2) {
-			return (((BiomassParticle) b1)._centerX > ((BiomassParticle) b2)._centerX ? 1
-					: -1);
+			return (((BiomassParticle) b1).getCenterX() > ((BiomassParticle) b2)
+					.getCenterX() ? 1 : -1);
 		}
 	}
 
@@ -107,8 +105,8 @@ public class BiomassParticle implements Cloneable, Serializable {
 		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
 		 */
 		public int compare(Object b1, Object b2) {
-			return (((BiomassParticle) b1)._centerX > ((BiomassParticle) b2)._centerX ? -1
-					: 1);
+			return (((BiomassParticle) b1).getCenterX() > ((BiomassParticle) b2)
+					.getCenterX() ? -1 : 1);
 		}
 	}
 
@@ -141,10 +139,11 @@ public class BiomassParticle implements Cloneable, Serializable {
 		_biomassSpecies = s;
 		// create composition
 		_composition = _biomassSpecies.newParticleComposition();
-		// initialize position stuff
-		_centerX = 0;
-		_centerY = 0;
-		_centerZ = 0;
+		// get the reference to the particle container
+		_particleContainer = (BiomassParticleContainer) Model.model().biomassContainer;
+		// initialize position stuff (center is set to 0 in the store)
+		_store = _particleContainer.getParticleStore();
+		_id = _store.add();
 		_shovL = 0;
 		_shovM = 0;
 		_shovN = 0;
@@ -152,9 +151,37 @@ public class BiomassParticle implements Cloneable, Serializable {
 		_willDetachByErosion = false;
 		_willDetachBySloughing = false;
 		// initialize the radius
-		_r = _composition.computeRadius();
-		// get the reference to the particle container
-		_particleContainer = (BiomassParticleContainer) Model.model().biomassContainer;
+		_store.radius[_id] = _composition.computeRadius();
+	}
+
+	/**
+	 * The copy gets its own id in the particle store, with the center and
+	 * radius of this particle
+	 * 
+	 * @see java.lang.Object#clone()
+	 */
+	protected Object clone() throws CloneNotSupportedException {
+		BiomassParticle b = (BiomassParticle) super.clone();
+		b._id = _store.copy(_id);
+		return b;
+	}
+
+	/**
+	 * Store the center of this particle, without updating its position in
+	 * the shoving grid (for subclasses that implement other boundary
+	 * conditions in setCenter)
+	 * 
+	 * @param x
+	 *            x [micron]
+	 * @param y
+	 *            y [micron]
+	 * @param z
+	 *            z [micron]
+	 */
+	protected final void storeCenter(float x, float y, float z) {
+		_store.centerX[_id] = x;
+		_store.centerY[_id] = y;
+		_store.centerZ[_id] = z;
 	}
 
 	/**
@@ -167,21 +194,21 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 */
 	public float grow(float t) {
 		// get - volume before growth
-		_radiusChangeInThisIteration = -_r;
+		_radiusChangeInThisIteration = -_store.radius[_id];
 		// create a copy of center
 		ContinuousCoordinate c = getCenter();
 		// update composition
 		float m = _composition.grow(t, getCenter());
 		// allow reseting of center position for flexibility in the
 		// growth (e.g. to implement motility)
-		_centerX = c.x;
-		_centerY = c.y;
-		_centerZ = c.z;
+		_store.centerX[_id] = c.x;
+		_store.centerY[_id] = c.y;
+		_store.centerZ[_id] = c.z;
 		// float m = _composition.grow(t, getCenter());
 		// update radius
-		_r = _composition.computeRadius();
+		_store.radius[_id] = _composition.computeRadius();
 		// subtract radius to determine radius change
-		_radiusChangeInThisIteration += _r;
+		_radiusChangeInThisIteration += _store.radius[_id];
 		return m;
 	}
 
@@ -195,7 +222,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 */
 	public BiomassSpecies.Composition erode(float f) {
 		// get - volume before growth
-		float radiusBeforeErosion = _r;
+		float radiusBeforeErosion = _store.radius[_id];
 		// create a copy of center
 		ContinuousCoordinate c = getCenter();
 		// update composition
@@ -210,14 +237,14 @@ public class BiomassParticle implements Cloneable, Serializable {
 		Composition cEroded =  _composition.divideMasses(1.0f - f);
 		// allow reseting of center position for flexibility in the
 		// growth (e.g. to implement motility)
-		_centerX = c.x;
-		_centerY = c.y;
-		_centerZ = c.z;
+		_store.centerX[_id] = c.x;
+		_store.centerY[_id] = c.y;
+		_store.centerZ[_id] = c.z;
 		// float m = _composition.grow(t, getCenter());
 		// update radius
-		_r = _composition.computeRadius();
+		_store.radius[_id] = _composition.computeRadius();
 		// subtract radius to determine radius change
-		_radiusChangeInThisIteration += (_r - radiusBeforeErosion);
+		_radiusChangeInThisIteration += (_store.radius[_id] - radiusBeforeErosion);
 		return cEroded;
 	}
 /*	public BiomassSpecies.Composition erode(float f) {
@@ -258,7 +285,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return true if _radius is lower than minimum radius
 	 */
 	public boolean isDead() {
-		return _r < _particleContainer.getMinimumRadius();
+		return _store.radius[_id] < _particleContainer.getMinimumRadius();
 	}
 
 	/**
@@ -268,7 +295,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return true if particle is out of bounds
 	 */
 	public boolean outOfBounds() {
-		return _centerX > _model.getMaximumBiofilmHeight();
+		return _store.centerX[_id] > _model.getMaximumBiofilmHeight();
 	}
 
 	/**
@@ -305,7 +332,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return true if radius is higher than maximum radius
 	 */
 	public boolean willDivide() {
-		return _r > _particleContainer.getMaximumRadius();
+		return _store.radius[_id] > _particleContainer.getMaximumRadius();
 	}
 
 	/**
@@ -327,7 +354,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 		_divisionPhi = _model.getRandom() * ExtraMath.PI;
 		// save the volume for later;
 		float volumeBeforeDivision = computeVolume();
-		float radiusBeforeDivision = _r;
+		float radiusBeforeDivision = _store.radius[_id];
 		try {
 			// cloning mother cell to new cell
 			BiomassParticle baby = (BiomassParticle) this.clone();
@@ -338,21 +365,22 @@ public class BiomassParticle implements Cloneable, Serializable {
 			// balance)
 			baby._composition = _composition.divideMasses(divisionFraction);
 			// Update radius of both mother and daughter
-			_r = _composition.computeRadius();
-			baby._r = baby._composition.computeRadius();
+			_store.radius[_id] = _composition.computeRadius();
+			_store.radius[baby._id] = baby._composition.computeRadius();
 			// because baby had no volume before being created
 			// update
-			_radiusChangeInThisIteration = _r - radiusBeforeDivision;
-			baby._radiusChangeInThisIteration = baby._r;
+			_radiusChangeInThisIteration = _store.radius[_id]
+					- radiusBeforeDivision;
+			baby._radiusChangeInThisIteration = _store.radius[baby._id];
 			//
 			// create a movement direction for baby
-			float delx = _r
+			float delx = _store.radius[_id]
 					* (float) (Math.cos(_divisionTheta) * Math
 							.sin(_divisionPhi));
-			float dely = _r
+			float dely = _store.radius[_id]
 					* (float) (Math.sin(_divisionTheta) * Math
 							.sin(_divisionPhi));
-			float delz = _r * (float) (Math.cos(_divisionPhi));
+			float delz = _store.radius[_id] * (float) (Math.cos(_divisionPhi));
 			// move baby cell
 			// TODO remove try catch block after testing
 			//try {
@@ -366,9 +394,9 @@ public class BiomassParticle implements Cloneable, Serializable {
 						+ volumeBeforeDivision);
 				System.out.println("radiusBeforeDivision = "
 						+ radiusBeforeDivision);
-				System.out.println("_r = " + _r);
+				System.out.println("_r = " + _store.radius[_id]);
 				System.out.println("_composition = " + _composition);
-				System.out.println("baby._r = " + baby._r);
+				System.out.println("baby._r = " + _store.radius[baby._id]);
 				System.out.println("baby._composition = " + baby._composition);
 
 				throw new ModelRuntimeException(e.toString());
@@ -403,7 +431,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 		float epsPlacementTheta = _model.getRandom() * ExtraMath.PI2;
 		float epsPlacementPhi = _model.getRandom() * ExtraMath.PI;
 		// save the radius for later;
-		float radiusBeforeDivision = _r;
+		float radiusBeforeDivision = _store.radius[_id];
 		try {
 			// cloning mother cell to new cell
 			BiomassParticle excretedEps = (BiomassParticle) this.clone();
@@ -413,21 +441,22 @@ public class BiomassParticle implements Cloneable, Serializable {
 			// balance)
 			excretedEps._composition = _composition.removeCapsule();
 			// udpate radius of both mother and daughter
-			_r = _composition.computeRadius();
-			excretedEps._r = excretedEps._composition.computeRadius();
+			_store.radius[_id] = _composition.computeRadius();
+			_store.radius[excretedEps._id] = excretedEps._composition
+					.computeRadius();
 			// because baby had no volume before being created
 			// update
-			_radiusChangeInThisIteration = _r - radiusBeforeDivision;
-			excretedEps._radiusChangeInThisIteration = excretedEps._r;
+			_radiusChangeInThisIteration = _store.radius[_id] - radiusBeforeDivision;
+			excretedEps._radiusChangeInThisIteration = _store.radius[excretedEps._id];
 			//
 			// create a movement direction for baby
-			float delx = _r
+			float delx = _store.radius[_id]
 					* (float) (Math.cos(epsPlacementTheta) * Math
 							.sin(epsPlacementPhi));
-			float dely = _r
+			float dely = _store.radius[_id]
 					* (float) (Math.sin(epsPlacementTheta) * Math
 							.sin(epsPlacementPhi));
-			float delz = _r * (float) (Math.cos(epsPlacementPhi));
+			float delz = _store.radius[_id] * (float) (Math.cos(epsPlacementPhi));
 			// move baby cell
 			excretedEps.move(delx, dely, delz);
 			// update position of mother cell
@@ -447,7 +476,8 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * _shovL.
 	 */
 	protected final void setShovingMapPositionAndAddToShovingMap() {
-		_particleContainer.addToShovingGrid(this, _centerX, _centerY, _centerZ);
+		_particleContainer.addToShovingGrid(this, _store.centerX[_id],
+				_store.centerY[_id], _store.centerZ[_id]);
 	}
 
 	/**
@@ -483,14 +513,14 @@ public class BiomassParticle implements Cloneable, Serializable {
 		int n = _shovN - 1;
 		// return immediately if particle is placed in the substrate
 		if (n == -1)
-			return _centerX - _r;
+			return _store.centerX[_id] - _store.radius[_id];
 		// otherwise, check is particle is floating
 		while (shovingGridEmpty(n--, _shovM, _shovL)) {
 			ngrids++;
 			// if n == 1 it means substrate was reached
 			// move particle all the way to the bottom
 			if (n == -1)
-				return _centerX - _r;
+				return _store.centerX[_id] - _store.radius[_id];
 		}
 		return ngrids * _particleContainer.shovingGridSide;
 	}
@@ -535,25 +565,26 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 */
 	public void setCenter(float x, float y, float z) {
 		// implement solid substratum for planar geometry
-		_centerX = (x < _r ? _r : x);
+		float r = _store.radius[_id];
+		_store.centerX[_id] = (x < r ? r : x);
 		// Implement periodic boundaries (side walls)
 		float Lyy = _model.systemSize.y;
 		if (y >= Lyy)
-			_centerY = y - Lyy;
+			_store.centerY[_id] = y - Lyy;
 		else if (y < 0)
-			_centerY = Lyy + y;
+			_store.centerY[_id] = Lyy + y;
 		else
-			_centerY = y;
+			_store.centerY[_id] = y;
 		float Lzz = _model.systemSize.z;
 		if (Lzz == 0)
 			// 2D case
-			_centerZ = 0;
+			_store.centerZ[_id] = 0;
 		else if (z >= Lzz)
-			_centerZ = z - Lzz;
+			_store.centerZ[_id] = z - Lzz;
 		else if (z < 0)
-			_centerZ = Lzz + z;
+			_store.centerZ[_id] = Lzz + z;
 		else
-			_centerZ = z;
+			_store.centerZ[_id] = z;
 		setShovingMapPositionAndAddToShovingMap();
 	}
 
@@ -570,9 +601,10 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 */
 	public void move(float x, float y, float z) {
 		removeFromShovingMap();
-		setCenter(_centerX - x / _biomassSpecies.getShovingHierarchy(),
-				_centerY - y / _biomassSpecies.getShovingHierarchy(), _centerZ
-						- z / _biomassSpecies.getShovingHierarchy());
+		setCenter(_store.centerX[_id] - x
+				/ _biomassSpecies.getShovingHierarchy(), _store.centerY[_id]
+				- y / _biomassSpecies.getShovingHierarchy(),
+				_store.centerZ[_id] - z / _biomassSpecies.getShovingHierarchy());
 	}
 
 	/**
@@ -595,35 +627,39 @@ public class BiomassParticle implements Cloneable, Serializable {
 				.getShovingHierarchy())
 			return false;*/
 		// if not, then calculate if there is overlap
-		float neibX = neib._centerX;
-		float neibY = neib._centerY;
-		float neibZ = neib._centerZ;
-		float r = neib._r;
+		ParticleStore store = _store;
+		float centerX = store.centerX[_id];
+		float centerY = store.centerY[_id];
+		float centerZ = store.centerZ[_id];
+		float neibX = store.centerX[neib._id];
+		float neibY = store.centerY[neib._id];
+		float neibZ = store.centerZ[neib._id];
+		float r = store.radius[neib._id];
 		float dx;
 		float dy;
 		float dz;
 		float dxq = _particleContainer.shovingGridSide;
 		// no periodicity for vertical direction
-		dx = neibX - _centerX;
+		dx = neibX - centerX;
 		// take periodicity into account in y-direction
 		float Lyy = _model.systemSize.y;
-		if (neibY < dxq && _centerY > Lyy - dxq)
+		if (neibY < dxq && centerY > Lyy - dxq)
 			// neighbor on the left, this on right
-			dy = Lyy + neibY - _centerY;
-		else if (_centerY < dxq && neibY > Lyy - dxq)
+			dy = Lyy + neibY - centerY;
+		else if (centerY < dxq && neibY > Lyy - dxq)
 			// this on the left, neighbor on right
-			dy = neibY - Lyy - _centerY;
+			dy = neibY - Lyy - centerY;
 		else
 			// the regular case
-			dy = neibY - _centerY;
+			dy = neibY - centerY;
 		// take periodicity into account in z-direction
 		float Lzz = _model.systemSize.z;
-		if (neibZ < dxq && _centerZ > Lzz - dxq)
-			dz = Lzz + neibZ - _centerZ;
-		else if (_centerZ < dxq && neibZ > Lzz - dxq)
-			dz = neibZ - Lzz - _centerZ;
+		if (neibZ < dxq && centerZ > Lzz - dxq)
+			dz = Lzz + neibZ - centerZ;
+		else if (centerZ < dxq && neibZ > Lzz - dxq)
+			dz = neibZ - Lzz - centerZ;
 		else
-			dz = neibZ - _centerZ;
+			dz = neibZ - centerZ;
 		// length of difference vector between
 		// the two cells
 		float d = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
@@ -631,7 +667,8 @@ public class BiomassParticle implements Cloneable, Serializable {
 		if (d == 0)
 			d = 1e-3f * _particleContainer.getMaximumRadius();
 		// normalized overlapping distance overlapping length
-		float nod = (_particleContainer.shovingParameter * (_r + r) - d) / d;
+		float nod = (_particleContainer.shovingParameter
+				* (store.radius[_id] + r) - d) / d;
 		if (nod > 0.1) {
 			m.x += dx * nod;
 			m.y += dy * nod;
@@ -646,21 +683,24 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return the distance to particle neib taking periodicity into account
 	 */
 	public float distanceTo(BiomassParticle neib) {
-		float neibX = neib._centerX;
-		float neibY = neib._centerY;
-		float neibZ = neib._centerZ;
+		float centerX = _store.centerX[_id];
+		float centerY = _store.centerY[_id];
+		float centerZ = _store.centerZ[_id];
+		float neibX = _store.centerX[neib._id];
+		float neibY = _store.centerY[neib._id];
+		float neibZ = _store.centerZ[neib._id];
 		float dx;
 		float dy;
 		float dz;
 		// no periodicity for vertical direction
-		dx = neibX - _centerX;
+		dx = neibX - centerX;
 		// take periodicity into account in y-direction
 		float Lyy = _model.systemSize.y;
-		dy = ExtraMath.abs(neibY - _centerY);
+		dy = ExtraMath.abs(neibY - centerY);
 		dy = ExtraMath.min(dy, Lyy - dy);
 		// take periodicity into account in z-direction
 		float Lzz = _model.systemSize.z;
-		dz = ExtraMath.abs(neibZ - _centerZ);
+		dz = ExtraMath.abs(neibZ - centerZ);
 		dz = ExtraMath.min(dz, Lzz - dz);
 		// length of difference vector between
 		// the two cells
@@ -708,26 +748,27 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return the cell center coordinates
 	 */
 	public ContinuousCoordinate getCenter() {
-		return new ContinuousCoordinate(_centerX, _centerY, _centerZ);
+		return new ContinuousCoordinate(_store.centerX[_id],
+				_store.centerY[_id], _store.centerZ[_id]);
 	}
 
 	public float getCenterX() {
-		return _centerX;
+		return _store.centerX[_id];
 	}
 
 	public float getCenterY() {
-		return _centerY;
+		return _store.centerY[_id];
 	}
 
 	public float getCenterZ() {
-		return _centerZ;
+		return _store.centerZ[_id];
 	}
 
 	/**
 	 * @return the cell radius
 	 */
 	public float getRadius() {
-		return _r;
+		return _store.radius[_id];
 	}
 
 	/**
@@ -739,7 +780,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return the volume of the particle [um3]
 	 */
 	public float computeVolume() {
-		return computeVolume(_r);
+		return computeVolume(_store.radius[_id]);
 	}
 
 	/**
@@ -807,7 +848,7 @@ public class BiomassParticle implements Cloneable, Serializable {
 	public void setMass(ParticulateSpecies s, float m) {
 		_composition.setMass(s, m);
 		// update the radius
-		_r = _composition.computeRadius();
+		_store.radius[_id] = _composition.computeRadius();
 	}
 
 	/**
@@ -816,11 +857,12 @@ public class BiomassParticle implements Cloneable, Serializable {
 	public String toString() {
 		Color colorCore = getColorCore();
 		Color colorCapsule = getColorCapsule();
-		return _centerX + "\t" + _centerY + "\t" + _centerZ + "\t"
-				+ getCoreRadius() + "\t" + colorCore.getRed() + "\t"
-				+ colorCore.getGreen() + "\t" + colorCore.getBlue() + "\t" + _r
-				+ "\t" + colorCapsule.getRed() + "\t" + colorCapsule.getGreen()
-				+ "\t" + colorCapsule.getBlue() + "\n";
+		return _store.centerX[_id] + "\t" + _store.centerY[_id] + "\t"
+				+ _store.centerZ[_id] + "\t" + getCoreRadius() + "\t"
+				+ colorCore.getRed() + "\t" + colorCore.getGreen() + "\t"
+				+ colorCore.getBlue() + "\t" + _store.radius[_id] + "\t"
+				+ colorCapsule.getRed() + "\t" + colorCapsule.getGreen() + "\t"
+				+ colorCapsule.getBlue() + "\n";
 	}
 
 	/**
@@ -841,32 +883,35 @@ public class BiomassParticle implements Cloneable, Serializable {
 	 * @return true if there is overlapping, flase otherwise
 	 */
 	protected void addInfluenceToPressureMoveDirection(BiomassParticle neib) {
-		float neibX = neib._centerX;
-		float neibY = neib._centerY;
-		float neibZ = neib._centerZ;
-		float r = neib._r;
+		float centerX = _store.centerX[_id];
+		float centerY = _store.centerY[_id];
+		float centerZ = _store.centerZ[_id];
+		float neibX = _store.centerX[neib._id];
+		float neibY = _store.centerY[neib._id];
+		float neibZ = _store.centerZ[neib._id];
+		float r = _store.radius[neib._id];
 		float dx;
 		float dy;
 		float dz;
 		float dxq = _particleContainer.shovingGridSide;
 		// no periodicity for vertical direction
-		dx = neibX - _centerX;
+		dx = neibX - centerX;
 		// take periodicity into account in y-direction
 		float Lyy = _model.systemSize.y;
-		if (neibY < dxq && _centerY > Lyy - dxq)
-			dy = Lyy + neibY - _centerY;
-		else if (_centerY < dxq && neibY > Lyy - dxq)
-			dy = neibY - Lyy - _centerY;
+		if (neibY < dxq && centerY > Lyy - dxq)
+			dy = Lyy + neibY - centerY;
+		else if (centerY < dxq && neibY > Lyy - dxq)
+			dy = neibY - Lyy - centerY;
 		else
-			dy = neibY - _centerY;
+			dy = neibY - centerY;
 		// take periodicity into account in z-direction
 		float Lzz = _model.systemSize.z;
-		if (neibZ < dxq && _centerZ > Lzz - dxq)
-			dz = Lzz + neibZ - _centerZ;
-		else if (_centerZ < dxq && neibZ > Lzz - dxq)
-			dz = neibZ - Lzz - _centerZ;
+		if (neibZ < dxq && centerZ > Lzz - dxq)
+			dz = Lzz + neibZ - centerZ;
+		else if (centerZ < dxq && neibZ > Lzz - dxq)
+			dz = neibZ - Lzz - centerZ;
 		else
-			dz = neibZ - _centerZ;
+			dz = neibZ - centerZ;
 		// length of difference vector between
 		// the two cells
 		float d = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
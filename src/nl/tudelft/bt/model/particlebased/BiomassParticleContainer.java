@@ -3,6 +3,8 @@ package nl.tudelft.bt.model.particlebased;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import nl.tudelft.bt.model.BiomassContainer;
 import nl.tudelft.bt.model.BiomassSpecies;
@@ -35,6 +37,19 @@ import nl.tudelft.bt.model.util.ExtraMath;
  * @author Jo?o Xavier (j.xavier@tnw.tudelft.nl)
  */
 public class BiomassParticleContainer extends BiomassContainer {
+	/**
+	 * Shoving by Gauss-Seidel iterations: each particle is moved as soon as
+	 * its move is computed, in the order of the particle list (default)
+	 */
+	public static final int SHOVING_GAUSS_SEIDEL = 0;
+
+	/**
+	 * Shoving by Jacobi iterations: the moves of all particles are computed
+	 * from the same positions, in parallel if more than one thread is set,
+	 * and are then applied in the order of the particle list
+	 */
+	public static final int SHOVING_JACOBI = 1;
+
 	protected float shovingParameter;
 
 	protected float shovingGridSide;
@@ -65,6 +80,9 @@ public class BiomassParticleContainer extends BiomassContainer {
 
 	protected List<BiomassParticle> particleList;
 
+	// centers and radii of the particles
+	private ParticleStore _particleStore;
+
 	// For abrasion operations
 	private DensityLevelSet _densityLevelSet;
 
@@ -77,6 +95,9 @@ public class BiomassParticleContainer extends BiomassContainer {
 	// an array for determining the potential shovers
 	private BiomassParticleSet _ps;
 
+	// elements of the shoving grid around a particle (at most 3*3*3 = 27)
+	private int[] _neighborCells = new int[27];
+
 	protected ConnectedVolumeFilter _cvfForBiomass;
 
 	protected ConnectedVolumeFilter _cvfForLiquid;
@@ -89,6 +110,39 @@ public class BiomassParticleContainer extends BiomassContainer {
 
 	private boolean _sloughinfIsOn = true;
 
+	private int _shovingMethod = SHOVING_GAUSS_SEIDEL;
+
+	// threads computing the moves of Jacobi shoving (null if serial)
+	private transient ForkJoinPool _shovingPool;
+
+	private int _shovingThreads = 1;
+
+	// particles and their moves (3 entries per particle) in a Jacobi
+	// shoving step
+	private transient BiomassParticle[] _particles;
+
+	private transient float[] _moves;
+
+	private transient boolean[] _shoved;
+
+	// the particles of a Jacobi shoving step, sorted by shoving grid element
+	private transient ShovingCellList _cellList;
+
+	// true while spreadByShoving tracks the moves, to skip the particles
+	// whose neighborhood did not change
+	private transient boolean _trackingShovingMoves;
+
+	// number of moves made since spreadByShoving started
+	private transient int _shovingMoves;
+
+	// value of _shovingMoves at the last move of a particle from or to each
+	// element of the shoving grid (numbered as in getNeighborCells)
+	private transient int[] _elementMoveCounts;
+
+	// value of _shovingMoves at the last test of each particle of the
+	// particle list (-1 if not yet tested)
+	private transient int[] _particleTestCounts;
+
 	/**
 	 * Creates a new BacteriaConainer with a shoving grid which is optimized for
 	 * shoving. The grid is defined from a "reference system size".
@@ -133,6 +187,7 @@ public class BiomassParticleContainer extends BiomassContainer {
 		// initialize shoving grid and bacteria list
 		shovingGrid = new BiomassParticleSet[_n + 10][_m][_l];
 		particleList = new ArrayList();
+		_particleStore = new ParticleStore();
 		//
 		_biomassProducedInThisIteration = 0;
 		// create connected volume filtrator
@@ -253,9 +308,86 @@ public class BiomassParticleContainer extends BiomassContainer {
 		// Shoving until a completly stable system is achieved is:
 		// while ( niter < _maximumShovingIteration && performShovingStep() );
 		// here we use a fraction of shoved cells for increased efficiency
+		startTrackingShovingMoves();
 		while (performSpreadingStep() > shovlimit) {
 			// do nothing
 		}
+		_trackingShovingMoves = false;
+	}
+
+	/**
+	 * Start tracking the moves of shoving, so that particles that were not
+	 * shoved when last tested, and around which no particle has moved since,
+	 * are not tested again (the test would give the same result). Tracking
+	 * is only valid while no particles are added, removed or grown.
+	 */
+	private void startTrackingShovingMoves() {
+		int nElements = (_n + 10) * _m * _l;
+		if ((_elementMoveCounts == null)
+				|| (_elementMoveCounts.length != nElements))
+			_elementMoveCounts = new int[nElements];
+		else
+			Arrays.fill(_elementMoveCounts, 0);
+		int nParticles = particleList.size();
+		if ((_particleTestCounts == null)
+				|| (_particleTestCounts.length < nParticles))
+			_particleTestCounts = new int[nParticles];
+		Arrays.fill(_particleTestCounts, -1);
+		_shovingMoves = 0;
+		_trackingShovingMoves = true;
+	}
+
+	/**
+	 * Check if particle b must be tested for shoving, which is the case
+	 * unless it was tested before and no particle has moved from or to the
+	 * elements of the shoving grid around it since. If so, the test is
+	 * recorded.
+	 * 
+	 * @param b
+	 * @param p
+	 *            entry of b in the particle list
+	 * @param cells
+	 *            to hold the neighboring elements of the shoving grid
+	 * @return true if b must be tested
+	 */
+	private boolean isShovingTestNeeded(BiomassParticle b, int p, int[] cells) {
+		if (!_trackingShovingMoves)
+			return true;
+		int lastTest = _particleTestCounts[p];
+		if (lastTest >= 0) {
+			boolean changed = false;
+			int nCells = getNeighborCells(b, cells);
+			for (int c = 0; c < nCells; c++) {
+				if (_elementMoveCounts[cells[c]] > lastTest) {
+					changed = true;
+					break;
+				}
+			}
+			if (!changed)
+				return false;
+		}
+		_particleTestCounts[p] = _shovingMoves;
+		return true;
+	}
+
+	/**
+	 * Move particle b by shoving, recording the move in the elements of the
+	 * shoving grid it moves from and to if the moves are tracked
+	 * 
+	 * @param b
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            the move (see BiomassParticle.move)
+	 */
+	private void moveByShoving(BiomassParticle b, float x, float y, float z) {
+		if (_trackingShovingMoves) {
+			_shovingMoves++;
+			_elementMoveCounts[getShovingGridElementNumber(b)] = _shovingMoves;
+		}
+		b.move(x, y, z);
+		if (_trackingShovingMoves)
+			_elementMoveCounts[getShovingGridElementNumber(b)] = _shovingMoves;
 	}
 
 	/**
@@ -264,42 +396,212 @@ public class BiomassParticleContainer extends BiomassContainer {
 	 * @return number of shoved particles in this iteration
 	 */
 	public int performSpreadingStep() {
+		if (_shovingMethod == SHOVING_JACOBI)
+			return performJacobiSpreadingStep();
 		// create checker for shoving overlap in any of the
 		// cells
 		int shoved = 0;
 		// create a new movement vector
 		ContinuousCoordinate m = new ContinuousCoordinate();
 		// iterate through bacteria list
+		int p = 0;
 		for (Iterator iter = particleList.iterator(); iter.hasNext();) {
 			BiomassParticle b = (BiomassParticle) iter.next();
-			if (true) {
+			if (isShovingTestNeeded(b, p++, _neighborCells)) {
 				// create checker for occurence of shoving in this
 				// bacteria
 				boolean thisShoved = false;
 				// set to zeros the movement vector
 				m.reset();
-				// get an array of potential shovers from the
-				// shoving grid
-				BiomassParticleSet potentialShovers = getPotentialShovers(b);
+				// iterate in place through the potential shovers in the
+				// neighboring elements of the shoving grid
+				int nCells = getNeighborCells(b, _neighborCells);
 				int numberOfOverlappingNeighbors = 0;
-				while (potentialShovers.hasNext()) {
-					BiomassParticle neib = potentialShovers.next();
-					if (b.addOverlappingMoveDirection(neib, m)) {
-						thisShoved = true;
-						numberOfOverlappingNeighbors++;
+				for (int c = 0; c < nCells; c++) {
+					BiomassParticleSet cell = getShovingGridElement(
+							_neighborCells[c]);
+					if (cell == null)
+						continue;
+					for (int q = 0; q < cell.getNumberOfParticles(); q++) {
+						if (b.addOverlappingMoveDirection(cell.get(q), m)) {
+							thisShoved = true;
+							numberOfOverlappingNeighbors++;
+						}
 					}
 				}
 				// update cell position
 				if (thisShoved) {
 					shoved++;
 					// move the cell
-					b.move(m.x, m.y, m.z);
+					moveByShoving(b, m.x, m.y, m.z);
 				}
 			} // end if(b.willDetach())
 		}
 		return shoved;
 	}
 
+	/**
+	 * Perform a single shoving iteration by Jacobi iterations. The moves of
+	 * all particles are computed from the present positions (concurrently if
+	 * more than one thread was set) and are only then applied, serially and
+	 * in the order of the particle list. The result is thus the same for any
+	 * number of threads. Since no particle moves while the moves are
+	 * computed, the particles are first sorted by shoving grid element, and
+	 * the neighbors of each particle are read in place from the sorted list.
+	 * 
+	 * @return number of shoved particles in this iteration
+	 */
+	private int performJacobiSpreadingStep() {
+		int nParticles = particleList.size();
+		if ((_particles == null) || (_particles.length < nParticles))
+			_particles = new BiomassParticle[nParticles];
+		_particles = particleList.toArray(_particles);
+		if ((_moves == null) || (_moves.length < 3 * nParticles)) {
+			_moves = new float[3 * nParticles];
+			_shoved = new boolean[nParticles];
+		}
+		if (_cellList == null)
+			_cellList = new ShovingCellList();
+		_cellList.build(_particles, nParticles, (_n + 10) * _m * _l, _m, _l);
+		// compute the moves
+		if (_shovingPool == null) {
+			computeShovingMoves(0, nParticles, _neighborCells,
+					new ContinuousCoordinate());
+		} else {
+			// a few chunks per thread, for load balance
+			int nChunks = Math.min(4 * _shovingThreads, nParticles);
+			ShovingMovesChunk[] chunks = new ShovingMovesChunk[nChunks];
+			for (int c = 0; c < nChunks; c++)
+				chunks[c] = new ShovingMovesChunk(c * nParticles / nChunks,
+						(c + 1) * nParticles / nChunks);
+			_shovingPool.invoke(new ShovingMovesPass(chunks));
+		}
+		// apply them
+		int shoved = 0;
+		for (int p = 0; p < nParticles; p++) {
+			if (_shoved[p]) {
+				shoved++;
+				moveByShoving(_particles[p], _moves[3 * p], _moves[3 * p + 1],
+						_moves[3 * p + 2]);
+			}
+		}
+		return shoved;
+	}
+
+	/**
+	 * Compute the moves of particles at entries p0 to p1 (exclusive) of
+	 * _particles, without moving any particle, reading the neighbors from
+	 * _cellList and skipping the particles whose neighborhood did not change
+	 * (see isShovingTestNeeded). Only cells and m are written besides the
+	 * entries of these particles (their moves and tests), so that ranges
+	 * that do not overlap may be computed concurrently.
+	 * 
+	 * @param p0
+	 *            first entry
+	 * @param p1
+	 *            entry after the last entry
+	 * @param cells
+	 *            to hold the neighboring elements of the shoving grid
+	 * @param m
+	 *            to hold the move of a particle
+	 */
+	private void computeShovingMoves(int p0, int p1, int[] cells,
+			ContinuousCoordinate m) {
+		int[] start = _cellList.start;
+		BiomassParticle[] sorted = _cellList.particles;
+		for (int p = p0; p < p1; p++) {
+			BiomassParticle b = _particles[p];
+			boolean thisShoved = false;
+			m.reset();
+			if (!isShovingTestNeeded(b, p, cells)) {
+				_shoved[p] = false;
+				continue;
+			}
+			int nCells = getNeighborCells(b, cells);
+			for (int c = 0; c < nCells; c++) {
+				int end = start[cells[c] + 1];
+				for (int q = start[cells[c]]; q < end; q++) {
+					if (b.addOverlappingMoveDirection(sorted[q], m))
+						thisShoved = true;
+				}
+			}
+			_shoved[p] = thisShoved;
+			_moves[3 * p] = m.x;
+			_moves[3 * p + 1] = m.y;
+			_moves[3 * p + 2] = m.z;
+		}
+	}
+
+	/**
+	 * A range of particles for which the moves of Jacobi shoving are
+	 * computed by one worker of the fork/join pool
+	 */
+	private class ShovingMovesChunk extends RecursiveAction {
+		private final int _p0;
+
+		private final int _p1;
+
+		ShovingMovesChunk(int p0, int p1) {
+			_p0 = p0;
+			_p1 = p1;
+		}
+
+		protected void compute() {
+			computeShovingMoves(_p0, _p1, new int[27],
+					new ContinuousCoordinate());
+		}
+	}
+
+	/**
+	 * The computation of the moves of all particles, in the fork/join pool
+	 */
+	private static class ShovingMovesPass extends RecursiveAction {
+		private final ShovingMovesChunk[] _chunks;
+
+		ShovingMovesPass(ShovingMovesChunk[] chunks) {
+			_chunks = chunks;
+		}
+
+		protected void compute() {
+			invokeAll(_chunks);
+		}
+	}
+
+	/**
+	 * Set the method used for shoving: SHOVING_GAUSS_SEIDEL (default) or
+	 * SHOVING_JACOBI. Jacobi shoving may be computed by several threads (see
+	 * setNumberOfShovingThreads), but needs more iterations to relax, since a
+	 * particle does not see the moves of its neighbours in the same
+	 * iteration.
+	 * 
+	 * @param method
+	 *            the shoving method
+	 */
+	public void setShovingMethod(int method) {
+		if ((method != SHOVING_GAUSS_SEIDEL) && (method != SHOVING_JACOBI))
+			throw new ModelRuntimeException("invalid shoving method "
+					+ method);
+		_shovingMethod = method;
+	}
+
+	/**
+	 * Set the number of threads used to compute the moves of Jacobi shoving.
+	 * With 1 thread (the default) the moves are computed serially. If n is 0
+	 * or less, the number of available processors is used. Gauss-Seidel
+	 * shoving is always serial.
+	 * 
+	 * @param n
+	 *            number of threads
+	 */
+	public void setNumberOfShovingThreads(int n) {
+		if (n <= 0)
+			n = Runtime.getRuntime().availableProcessors();
+		if (_shovingPool != null)
+			_shovingPool.shutdown();
+		_shovingThreads = n;
+		_shovingPool = (n == 1 ? null : new ForkJoinPool(n));
+	}
+
 	/**
 	 * Get the neighbors from shoving map that may be overlapping
 	 * 
@@ -307,14 +609,31 @@ public class BiomassParticleContainer extends BiomassContainer {
 	 * @return set of barticles in neighboring grids of the shoving map
 	 */
 	public BiomassParticleSet getPotentialShovers(BiomassParticle b) {
+		// reset the array that holds the potential shoving neighbors
+		_ps.reset();
+		int nCells = getNeighborCells(b, _neighborCells);
+		for (int c = 0; c < nCells; c++)
+			_ps.addAll(getShovingGridElement(_neighborCells[c]));
+		return _ps;
+	}
+
+	/**
+	 * Get the elements of the shoving map around particle b (including the
+	 * element of b), numbered (n * _m + m) * _l + l for element [n][m][l].
+	 * 
+	 * @param b
+	 * @param cells
+	 *            array with at least 27 entries to hold the elements
+	 * @return the number of elements written to cells
+	 */
+	private int getNeighborCells(BiomassParticle b, int[] cells) {
 		// Pre-allocate
 		int m, n, l;
 		//
 		int i = b.getShovingMapN();
 		int j = b.getShovingMapM();
 		int k = b.getShovingMapL();
-		// reset the array that holds the potential shoving neighbors
-		_ps.reset();
+		int nCells = 0;
 
 		// check 8-neighbors for Bacteria
 		// check neighbors in vertical direction
@@ -328,15 +647,34 @@ public class BiomassParticleContainer extends BiomassContainer {
 					for (l = k - 1; l <= k + 1; l++) {
 						// 3D case
 						int lwrap = (l < 0 ? _l - 1 : (l == _l ? 0 : l));
-						_ps.addAll(shovingGrid[n][mwrap][lwrap]);
+						cells[nCells++] = (n * _m + mwrap) * _l + lwrap;
 					}
 				} else {
 					// 2D case
-					_ps.addAll(shovingGrid[n][mwrap][0]);
+					cells[nCells++] = n * _m + mwrap;
 				}
 			}
 		}
-		return _ps;
+		return nCells;
+	}
+
+	/**
+	 * @param c
+	 *            element of the shoving map, numbered as in getNeighborCells
+	 * @return the particles in element c (null if none was ever added)
+	 */
+	private BiomassParticleSet getShovingGridElement(int c) {
+		return shovingGrid[c / (_m * _l)][(c / _l) % _m][c % _l];
+	}
+
+	/**
+	 * @param b
+	 * @return the element of the shoving map of particle b, numbered as in
+	 *         getNeighborCells
+	 */
+	private int getShovingGridElementNumber(BiomassParticle b) {
+		return (b.getShovingMapN() * _m + b.getShovingMapM()) * _l
+				+ b.getShovingMapL();
 	}
 
 	/**
@@ -377,21 +715,24 @@ public class BiomassParticleContainer extends BiomassContainer {
 	 * category
 	 */
 	protected void detachMarkedAndOutOfBoundsBiomass() {
-		// Don't iterate using iterator because list is changed
-		// each time an element is removed
+		// particles are removed from the list in a single pass (see
+		// removeFromGridAndStore) and accounted for at once
+		List detached = new ArrayList();
+		int nKept = 0;
 		for (int i = 0; i < particleList.size(); i++) {
 			// get the current bacterium
 			BiomassParticle b = (BiomassParticle) particleList.get(i);
 			if (b.outOfBounds() | b.willDetachByErosion()
 					| b.willDetachBySloughing()) {
-				remove(b);
-				// account for detached biomass
-				Model.model().detachedBiomassContainer()
-						.addToDetachedBiomass(b);
-				// decrement index to repeat this value
-				i--;
+				removeFromGridAndStore(b);
+				detached.add(b);
+			} else {
+				particleList.set(nKept++, b);
 			}
 		}
+		truncateParticleList(nKept);
+		// account for detached biomass
+		Model.model().detachedBiomassContainer().addToDetachedBiomass(detached);
 	}
 
 	/**
@@ -492,27 +833,61 @@ public class BiomassParticleContainer extends BiomassContainer {
 	 * Iterate through all bacteria in the system removing "dead" cells.
 	 */
 	public void removeDeadBiomass() {
-		// Get the current number of bacteria in the system, 'ncl'
+		// the particle list is compacted in a single pass
+		int nKept = 0;
 		for (int i = 0; i < particleList.size(); i++) {
 			// get the current bacterium
 			BiomassParticle b = (BiomassParticle) particleList.get(i);
-			if (b.isDead()) {
-				remove(b);
-				// decrement index to repeat this value
-				i--;
-			}
+			if (b.isDead())
+				removeFromGridAndStore(b);
+			else
+				particleList.set(nKept++, b);
 		}
+		truncateParticleList(nKept);
 	}
 
 	/**
-	 * Remove bacteria from the bacteria list and from the shoving grid
+	 * Remove bacteria from the bacteria list and from the shoving grid. This
+	 * searches the list, so loops that remove many particles use
+	 * removeFromGridAndStore and compact the list at the end instead.
 	 * 
 	 * @param b
 	 *            bacterium to remove
 	 */
 	public void remove(BiomassParticle b) {
 		particleList.remove(b);
+		removeFromGridAndStore(b);
+	}
+
+	/**
+	 * Remove a particle from the shoving grid and the particle store, but not
+	 * from the particle list
+	 * 
+	 * @param b
+	 *            particle to remove
+	 */
+	private void removeFromGridAndStore(BiomassParticle b) {
 		b.removeFromShovingMap();
+		_particleStore.release(b._id);
+	}
+
+	/**
+	 * Remove the entries of the particle list after the first n, once the
+	 * particles kept were moved to the first n entries
+	 * 
+	 * @param n
+	 *            number of particles kept
+	 */
+	private void truncateParticleList(int n) {
+		if (n < particleList.size())
+			particleList.subList(n, particleList.size()).clear();
+	}
+
+	/**
+	 * @return the store of the centers and radii of the particles
+	 */
+	ParticleStore getParticleStore() {
+		return _particleStore;
 	}
 
 	/**
@@ -609,7 +984,7 @@ public class BiomassParticleContainer extends BiomassContainer {
 		float h = 0;
 		for (Iterator iter = particleList.iterator(); iter.hasNext();) {
 			// get bacterium height
-			float x = ((BiomassParticle) iter.next()).getCenter().x;
+			float x = ((BiomassParticle) iter.next()).getCenterX();
 			h = (x > h ? x : h);
 		}
 		return h;
@@ -733,13 +1108,19 @@ public class BiomassParticleContainer extends BiomassContainer {
 		for (Iterator iter = particleList.iterator(); iter.hasNext();) {
 			BiomassParticle b = (BiomassParticle) iter.next();
 			b.resetMoveByPressureVector();
-			// get an array of potential shovers from the
-			// shoving grid
-			BiomassParticleSet neighborsInShovingMap = getPotentialShovers(b);
-			while (neighborsInShovingMap.hasNext()) {
-				BiomassParticle neib = neighborsInShovingMap.next();
-				if (neib != b)
-					b.addInfluenceToPressureMoveDirection(neib);
+			// iterate in place through the neighbors in the
+			// neighboring elements of the shoving grid
+			int nCells = getNeighborCells(b, _neighborCells);
+			for (int c = 0; c < nCells; c++) {
+				BiomassParticleSet cell = getShovingGridElement(
+						_neighborCells[c]);
+				if (cell == null)
+					continue;
+				for (int q = 0; q < cell.getNumberOfParticles(); q++) {
+					BiomassParticle neib = cell.get(q);
+					if (neib != b)
+						b.addInfluenceToPressureMoveDirection(neib);
+				}
 			}
 		}
 		// iterate through bacteria list again and perform the movements
@@ -55,12 +55,11 @@ public class BiomassParticleSet implements Serializable {
 		if (_end < _set.length) {
 			_set[_end++] = b;
 		} else {
-			// increase storage size in case limit is reached
-			BiomassParticle[] _set2 = new BiomassParticle[_set.length + 1];
+			// increase storage size in case limit is reached (doubling it,
+			// so that filling a set takes linear time)
+			BiomassParticle[] _set2 = new BiomassParticle[2 * _set.length + 1];
 			// copy values to new array
-			for (int i = 0; i < _set.length; i++) {
-				_set2[i] = _set[i];
-			}
+			System.arraycopy(_set, 0, _set2, 0, _set.length);
 			// add the new value
 			_set2[_end++] = b;
 			// replace array with extended array
@@ -134,6 +133,18 @@ public class BiomassParticleSet implements Serializable {
 		return _set[_index++];
 	}
 
+	/**
+	 * Get a bacterium without changing the index for iterating, so that the
+	 * set may be iterated in place by several readers
+	 * 
+	 * @param i
+	 *            entry, from 0 to getNumberOfParticles() - 1
+	 * @return bacterium at entry i
+	 */
+	BiomassParticle get(int i) {
+		return _set[i];
+	}
+
 	/**
 	 * Boolen test
 	 * 
@@ -0,0 +1,136 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.particlebased;
+
+import java.io.Serializable;
+
+/**
+ * Stores the centers and radii of the biomass particles of a container in
+ * arrays indexed by the id of each particle, so that loops over many
+ * particles (such as shoving) read contiguous arrays instead of following the
+ * reference to each particle. Each BiomassParticle keeps only its id and
+ * reads and writes its center and radius here. The ids of removed particles
+ * are reused by particles created later.
+ *
+ * @author jxavier
+ */
+public class ParticleStore implements Serializable {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// center and radius of the particle of each id
+	float[] centerX;
+
+	float[] centerY;
+
+	float[] centerZ;
+
+	float[] radius;
+
+	// ids of removed particles, available for new particles
+	private int[] _freeIds;
+
+	private int _nFreeIds;
+
+	// number of ids handed out (ids 0 to _size - 1)
+	private int _size;
+
+	/**
+	 * Create an empty store
+	 */
+	public ParticleStore() {
+		centerX = new float[INITIAL_CAPACITY];
+		centerY = new float[INITIAL_CAPACITY];
+		centerZ = new float[INITIAL_CAPACITY];
+		radius = new float[INITIAL_CAPACITY];
+		_freeIds = new int[INITIAL_CAPACITY];
+		_nFreeIds = 0;
+		_size = 0;
+	}
+
+	/**
+	 * Get an id for a new particle, with center and radius set to 0
+	 *
+	 * @return the id
+	 */
+	int add() {
+		int id;
+		if (_nFreeIds > 0) {
+			id = _freeIds[--_nFreeIds];
+		} else {
+			if (_size == centerX.length)
+				setCapacity(2 * _size);
+			id = _size++;
+		}
+		centerX[id] = 0;
+		centerY[id] = 0;
+		centerZ[id] = 0;
+		radius[id] = 0;
+		return id;
+	}
+
+	/**
+	 * Get an id for a new particle with the center and radius of particle id
+	 *
+	 * @param id
+	 *            id of the particle to copy
+	 * @return the id of the copy
+	 */
+	int copy(int id) {
+		int c = add();
+		centerX[c] = centerX[id];
+		centerY[c] = centerY[id];
+		centerZ[c] = centerZ[id];
+		radius[c] = radius[id];
+		return c;
+	}
+
+	/**
+	 * Make the id of a removed particle available for new particles. The
+	 * center and radius of the removed particle are no longer kept.
+	 *
+	 * @param id
+	 *            id of the removed particle
+	 */
+	void release(int id) {
+		if (_nFreeIds == _freeIds.length) {
+			int[] aux = new int[2 * _freeIds.length];
+			System.arraycopy(_freeIds, 0, aux, 0, _nFreeIds);
+			_freeIds = aux;
+		}
+		_freeIds[_nFreeIds++] = id;
+	}
+
+	/**
+	 * Change the length of the arrays, keeping the values of the ids handed
+	 * out
+	 *
+	 * @param capacity
+	 *            the new length
+	 */
+	private void setCapacity(int capacity) {
+		centerX = copyOf(centerX, capacity);
+		centerY = copyOf(centerY, capacity);
+		centerZ = copyOf(centerZ, capacity);
+		radius = copyOf(radius, capacity);
+	}
+
+	/**
+	 * @param a
+	 * @param length
+	 * @return a copy of the first _size values of a in an array of length
+	 *         length
+	 */
+	private float[] copyOf(float[] a, int length) {
+		float[] b = new float[length];
+		System.arraycopy(a, 0, b, 0, _size);
+		return b;
+	}
+
+	/**
+	 * @return the number of particles in the store
+	 */
+	public int getNumberOfParticles() {
+		return _size - _nFreeIds;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * File created originally on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.particlebased;
+
+import java.util.Arrays;
+
+/**
+ * The particles of a container sorted by the element of the shoving grid they
+ * are in, so that the particles in the elements around a particle are
+ * iterated in place instead of being copied to a set at each query. The
+ * elements are numbered (n * m + j) * l + k, for element [n][j][k] of a
+ * shoving grid with m and l elements in the horizontal directions. The
+ * particles of element c are at entries start[c] to start[c + 1] - 1 of
+ * particles, in the order in which they were given to build. The list is
+ * valid only while no particle changes element, so it must be built again
+ * after particles are moved.
+ *
+ * @author jxavier
+ */
+class ShovingCellList {
+	// first entry in particles of each element (one more entry than elements)
+	int[] start;
+
+	// the particles, sorted by element
+	BiomassParticle[] particles;
+
+	// element of each particle given to build
+	private int[] _cellOfParticle;
+
+	/**
+	 * Sort particles by element of the shoving grid (counting sort, keeping
+	 * the order of p within each element)
+	 *
+	 * @param p
+	 *            the particles
+	 * @param nParticles
+	 *            number of entries of p to sort
+	 * @param nCells
+	 *            number of elements of the shoving grid
+	 * @param m
+	 *            number of elements of the shoving grid in direction y
+	 * @param l
+	 *            number of elements of the shoving grid in direction z
+	 */
+	void build(BiomassParticle[] p, int nParticles, int nCells, int m, int l) {
+		if ((start == null) || (start.length != nCells + 1))
+			start = new int[nCells + 1];
+		else
+			Arrays.fill(start, 0);
+		if ((particles == null) || (particles.length < nParticles)) {
+			particles = new BiomassParticle[nParticles];
+			_cellOfParticle = new int[nParticles];
+		}
+		// count the particles in each element
+		for (int q = 0; q < nParticles; q++) {
+			int c = (p[q].getShovingMapN() * m + p[q].getShovingMapM()) * l
+					+ p[q].getShovingMapL();
+			_cellOfParticle[q] = c;
+			start[c + 1]++;
+		}
+		// offsets of the elements
+		for (int c = 0; c < nCells; c++)
+			start[c + 1] += start[c];
+		// place the particles, using start[c] as the next free entry of
+		// element c and shifting it back afterwards
+		for (int q = 0; q < nParticles; q++)
+			particles[start[_cellOfParticle[q]]++] = p[q];
+		for (int c = nCells; c > 0; c--)
+			start[c] = start[c - 1];
+		start[0] = 0;
+		// release the references to particles no longer in the container
+		for (int q = nParticles; q < particles.length; q++)
+			particles[q] = null;
+	}
+}
@@ -32,8 +32,8 @@ public class GranuleBiomassParticle extends BiomassParticle {
 	public boolean outOfBounds() {
 		if (_sheedingOn)
 			return ((SphericalDilationBoundaryLayer) Model.model()
-					.getBoundaryLayer()).sphericalOutOfBounds(_centerX,
-					_centerY, _centerZ);
+					.getBoundaryLayer()).sphericalOutOfBounds(getCenterX(),
+					getCenterY(), getCenterZ());
 		return false;
 	}
 
@@ -51,28 +51,23 @@ public class GranuleBiomassParticle extends BiomassParticle {
 		// Implement periodic boundaries
 		float Lxx = _model.systemSize.x;
 		if (x >= Lxx)
-			_centerX = x - Lxx;
+			x = x - Lxx;
 		else if (x < 0)
-			_centerX = Lxx + x;
-		else
-			_centerX = x;
+			x = Lxx + x;
 		float Lyy = _model.systemSize.y;
 		if (y >= Lyy)
-			_centerY = y - Lyy;
+			y = y - Lyy;
 		else if (y < 0)
-			_centerY = Lyy + y;
-		else
-			_centerY = y;
+			y = Lyy + y;
 		float Lzz = _model.systemSize.z;
 		if (Lzz == 0)
 			// 2D case
-			_centerZ = 0;
+			z = 0;
 		else if (z >= Lzz)
-			_centerZ = z - Lzz;
+			z = z - Lzz;
 		else if (z < 0)
-			_centerZ = Lzz + z;
-		else
-			_centerZ = z;
+			z = Lzz + z;
+		storeCenter(x, y, z);
 		setShovingMapPositionAndAddToShovingMap();
 	}
 
@@ -5,6 +5,7 @@ package nl.tudelft.bt.model.reaction;
 
 import nl.tudelft.bt.model.BiomassSpecies.Composition;
 import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+import nl.tudelft.bt.model.multigrid.VoxelCursor;
 
 /**
  * Implements constant kinetics for reaction factor
@@ -26,6 +27,36 @@ public class Constant extends ProcessFactor {
 		return _k;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		return _k;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == Constant.class)
+			k.addFactor(ReactionKernel.CONSTANT, null, _k, null, 0, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		return _k;
 	}
@@ -34,4 +65,14 @@ public class Constant extends ProcessFactor {
 		return 0f;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
+		return 0f;
+	}
+
 }
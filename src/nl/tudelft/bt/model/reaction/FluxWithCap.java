@@ -70,6 +70,18 @@ public class FluxWithCap extends Reaction implements Serializable {
 		return (_bulkConcentration - _species.getValue());
 	}
 
+	/**
+	 * Returns the rate at the voxel pointed by cursor v
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return flux rate [g/um^3/h]
+	 */
+	public float getRate(VoxelCursor v) {
+		float clocal = _species.getValue(v);
+		return (clocal > _bulkConcentration ? 0 : _bulkConcentration - clocal);
+	}
+
 	/**
 	 * Pre-compute the mass-based growth rate and store it in atribute
 	 * _presentReactionRate. Also, update the value of _globalReactionRate
@@ -152,4 +164,25 @@ public class FluxWithCap extends Reaction implements Serializable {
 		rDr[1] = getRateDerivative(c);
 	}
 
+	/**
+	 * Update the array with values of the rate and rate derivative at the
+	 * voxel pointed by cursor vc
+	 * 
+	 * @param c
+	 *            the solute species for which this is being computed
+	 * @param rDr
+	 *            [rate, rateDerivative]
+	 * @param vc
+	 *            voxel cursor
+	 */
+	public void updateValuesForRateAndRateDerivative(SoluteSpecies c,
+			float[] rDr, VoxelCursor vc) {
+		rDr[0] = getRate(vc);
+		if (c == _species) {
+			float clocal = _species.getValue(vc);
+			rDr[1] = (clocal > _bulkConcentration ? 0 : -clocal);
+		} else
+			rDr[1] = 0;
+	}
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package nl.tudelft.bt.model.reaction;
 
 import nl.tudelft.bt.model.multigrid.MultigridVariable;
 import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+import nl.tudelft.bt.model.multigrid.VoxelCursor;
 
 /**
  * Calculates the process factor by Hill (non-Michaelis-Menten) kinetics
@@ -33,7 +34,12 @@ public class Hill extends ProcessFactor {
 
 	@Override
 	public float getValue() {
-		float conc = _species.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	@Override
+	public float getValue(VoxelCursor v) {
+		float conc = _species.getValue(v);
 		conc = (conc < 0 ? 0 : conc);
 		double p = Math.pow(conc, _n) / (Math.pow(_k, _n) + Math.pow(conc, _n));
 		return (float) p;
@@ -41,8 +47,13 @@ public class Hill extends ProcessFactor {
 
 	@Override
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	@Override
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _species) {
-			float conc = _species.getValue();
+			float conc = _species.getValue(v);
 			conc = (conc < 0 ? 0 : conc);
 			double p = (_n * Math.pow(_k, _n) * Math.pow(conc, _n - 1)) 
 				/ (Math.pow(Math.pow(_k, _n) + Math.pow(conc, _n), 2));
@@ -53,6 +64,19 @@ public class Hill extends ProcessFactor {
 		}
 	}
 
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	void compile(ReactionKernel k) {
+		if (getClass() == Hill.class)
+			k.addFactor(ReactionKernel.HILL, _species, _k, null, _n, this);
+		else
+			super.compile(k);
+	}
+
 	@Override
 	public float getMaximumValue() {
 		float conc = _species.getMaximumValue();
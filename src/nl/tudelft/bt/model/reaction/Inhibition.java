@@ -24,11 +24,41 @@ public class Inhibition extends ProcessFactor {
 	}
 
 	public float getValue() {
-		float conc = _species.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float conc = _species.getValue(v);
 		conc = (conc < 0 ? 0 : conc);
 		return _k / (_k + conc);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == Inhibition.class)
+			k.addFactor(ReactionKernel.INHIBITION, _species, _k, null, 0, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float conc = _species.getMaximumValue();
 		conc = (conc < 0 ? 0 : conc);
@@ -36,8 +66,18 @@ public class Inhibition extends ProcessFactor {
 	}
 
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _species) {
-			float conc = _species.getValue();
+			float conc = _species.getValue(v);
 			conc = (conc < 0 ? 0 : conc);
 			return -_k / ((_k + conc) * (_k + conc));
 		}
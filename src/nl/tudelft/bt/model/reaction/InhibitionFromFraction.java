@@ -28,8 +28,38 @@ public class InhibitionFromFraction extends ProcessFactor {
 		_k = k;
 	}
 	public float getValue() {
-		float v2 = _species2.getValue();
-		return (v2 > 0) ? (_k / (_k + _species1.getValue() / v2)) : 0;
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float v2 = _species2.getValue(v);
+		return (v2 > 0) ? (_k / (_k + _species1.getValue(v) / v2)) : 0;
+	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == InhibitionFromFraction.class)
+			k.addFactor(ReactionKernel.INHIBITION_FROM_FRACTION, _species1, _k,
+					_species2, 0, this);
+		else
+			super.compile(k);
 	}
 	public float getMaximumValue() {
 		float v2 = _species2.getMaximumValue();
@@ -41,6 +71,15 @@ public class InhibitionFromFraction extends ProcessFactor {
 		// involved
 		return 0f;
 	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
+		return 0f;
+	}
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -38,14 +38,45 @@ public class InhibitionFromFractionCapacity extends ProcessFactor {
 	}
 
 	public float getValue() {
-		float v1 = _species1.getValue();
-		float v2 = _species2.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float v1 = _species1.getValue(v);
+		float v2 = _species2.getValue(v);
 		float f = v1 / v2;
 		if ((v2 == 0) | (f > _fmax))
 			return 0;
 		return (_fmax - f) / (_k + (_fmax - f));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == InhibitionFromFractionCapacity.class)
+			k.addFactor(ReactionKernel.INHIBITION_FROM_FRACTION_CAPACITY, _species1, _k,
+					_species2, _fmax, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float v1 = _species1.getMaximumValue();
 		float v2 = _species2.getMaximumValue();
@@ -62,6 +93,15 @@ public class InhibitionFromFractionCapacity extends ProcessFactor {
 		// involved
 		return 0f;
 	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
+		return 0f;
+	}
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -28,13 +28,31 @@ public class LinearWithSpeciesArray extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalValue(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getValue() {
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
 		float concS = 0;
 		for (int i = 0; i < _substrateSpecies.length; i++) {
-			concS += _substrateSpecies[i].getValue();
+			concS += _substrateSpecies[i].getValue(v);
 		}
 		return (concS < 0 ? 0 : concS);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	public float getMaximumValue() {
 		float concS = 0;
 		for (int i = 0; i < _substrateSpecies.length; i++) {
@@ -49,9 +67,19 @@ public class LinearWithSpeciesArray extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalDerivative(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		for (int i = 0; i < _substrateSpecies.length; i++) {
 			if (c == _substrateSpecies[i]){
-				float concS = _substrateSpecies[i].getValue();
+				float concS = _substrateSpecies[i].getValue(v);
 				return (concS == 0 ? 0 : 1);
 			} 			
 		}
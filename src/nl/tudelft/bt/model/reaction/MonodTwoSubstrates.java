@@ -37,11 +37,42 @@ public class MonodTwoSubstrates extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalValue(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getValue() {
-		float conc1 = _solute1.getValue();
-		float conc2 = _solute2.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float conc1 = _solute1.getValue(v);
+		float conc2 = _solute2.getValue(v);
 		return conc1 / (_ks1 + conc1) * conc2 / (_ks2 + conc2);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == MonodTwoSubstrates.class)
+			k.addFactor(ReactionKernel.MONOD_TWO_SUBSTRATES, _solute1, _ks1,
+					_solute2, _ks2, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float conc1 = _solute1.getMaximumValue();
 		float conc2 = _solute2.getMaximumValue();
@@ -54,17 +85,27 @@ public class MonodTwoSubstrates extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalDerivative(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _solute1) {
-			float conc1 = _solute1.getValue();
-			float conc2 = _solute2.getValue();
+			float conc1 = _solute1.getValue(v);
+			float conc2 = _solute2.getValue(v);
 			return _ks1
 				/ (_ks1 + conc1)
 				/ (_ks1 + conc1)
 				* conc2
 				/ (_ks2 + conc2);
 		} else if (c == _solute2) {
-			float conc1 = _solute1.getValue();
-			float conc2 = _solute2.getValue();
+			float conc1 = _solute1.getValue(v);
+			float conc2 = _solute2.getValue(v);
 			return conc1
 				/ (_ks1 + conc1)
 				* _ks2
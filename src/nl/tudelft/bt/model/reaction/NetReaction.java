@@ -8,7 +8,9 @@ import java.util.Arrays;
 import java.util.List;
 
 import nl.tudelft.bt.model.exceptions.ModelRuntimeException;
+import nl.tudelft.bt.model.multigrid.MultigridVariable;
 import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+import nl.tudelft.bt.model.multigrid.VoxelCursor;
 
 /**
  * Implements a container for processes and their sthoichiometric coeficients
@@ -21,9 +23,6 @@ public class NetReaction implements Serializable {
 	private float[] _coeficients;
 
 	private int _addCounter;
-	
-	//auxiliary variable
-	static final float[] _reactionRDr = new float[2];
 
 	/**
 	 * creates a new instance o ReactionStoichiometry with space for n reactions
@@ -49,6 +48,7 @@ public class NetReaction implements Serializable {
 		try {
 			_reactions[_addCounter] = r;
 			_coeficients[_addCounter++] = coef;
+			ReactionKernel.reactionsChanged();
 		} catch (ArrayIndexOutOfBoundsException e) {
 			throw new ModelRuntimeException("Trying to add a "
 					+ (_addCounter + 1) + " reaction to stoichiometry");
@@ -113,6 +113,22 @@ public class NetReaction implements Serializable {
 		}
 		return r;
 	}
+
+	/**
+	 * Computes the net sum of process rates and their stoichiometric
+	 * coeficients at the voxel pointed by cursor v
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return net sum of rate factors [g/um^3/h]
+	 */
+	public float getRate(VoxelCursor v) {
+		float r = 0;
+		for (int i = 0; i < _addCounter; i++) {
+			r += _coeficients[i] * _reactions[i].getRate(v);
+		}
+		return r;
+	}
 	/**
 	 * @return the current Global rate for this net reaction
 	 */
@@ -147,15 +163,65 @@ public class NetReaction implements Serializable {
 	 * @param rDr [rate, rateDerivative]
 	 */
 	public void updateValuesForRateAndRateDerivative(SoluteSpecies c, float [] rDr) {
+		updateValuesForRateAndRateDerivative(c, rDr, MultigridVariable
+				.getCurrentVoxel());
+	}
+
+	/**
+	 * Update the array with values of the rate and rate derivative at the
+	 * voxel pointed by cursor v
+	 * 
+	 * @param c the solute species for which this is being computed
+	 * @param rDr [rate, rateDerivative]
+	 * @param v voxel cursor (holds the scratch space for the computation)
+	 */
+	public void updateValuesForRateAndRateDerivative(SoluteSpecies c,
+			float[] rDr, VoxelCursor v) {
+		float[] reactionRDr = v.reactionRDr;
 		rDr[0] = 0;
 		rDr[1] = 0;
 		for (int i = 0; i < _addCounter; i++) {
-			_reactions[i].updateValuesForRateAndRateDerivative(c, _reactionRDr);
-			rDr[0] += _coeficients[i] * _reactionRDr[0];
-			rDr[1] += _coeficients[i] * _reactionRDr[1];
+			_reactions[i].updateValuesForRateAndRateDerivative(c, reactionRDr,
+					v);
+			rDr[0] += _coeficients[i] * reactionRDr[0];
+			rDr[1] += _coeficients[i] * reactionRDr[1];
 		}
 	}
+
+	/**
+	 * @return true if all reactions may be computed concurrently for
+	 *         different voxels
+	 */
+	public boolean isThreadSafe() {
+		for (int i = 0; i < _addCounter; i++)
+			if (!_reactions[i].isThreadSafe())
+				return false;
+		return true;
+	}
 	
+	/**
+	 * @return the number of reactions added
+	 */
+	int getNumberOfReactions() {
+		return _addCounter;
+	}
+
+	/**
+	 * @param i
+	 * @return reaction i
+	 */
+	Reaction getReaction(int i) {
+		return _reactions[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the stoichiometric coefficient of reaction i
+	 */
+	float getCoefficient(int i) {
+		return _coeficients[i];
+	}
+
 	/**
 	 * @return the reactions as a List
 	 */
@@ -27,10 +27,40 @@ public class PowerLaw extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalValue(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getValue() {
-		float conc = _chemical.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float conc = _chemical.getValue(v);
 		return (float)Math.pow(conc, _k);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == PowerLaw.class)
+			k.addFactor(ReactionKernel.POWER_LAW, _chemical, _k, null, 0, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float conc = _chemical.getMaximumValue();
 		return (float)Math.pow(conc, _k);
@@ -40,8 +70,18 @@ public class PowerLaw extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalDerivative(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _chemical) {
-			float conc = _chemical.getValue();
+			float conc = _chemical.getValue(v);
 			return _k * (float)Math.pow( conc , _k-1 );
 		}
 		return 0f;
@@ -6,7 +6,9 @@ package nl.tudelft.bt.model.reaction;
 import java.io.Serializable;
 
 import nl.tudelft.bt.model.BiomassSpecies;
+import nl.tudelft.bt.model.multigrid.MultigridVariable;
 import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+import nl.tudelft.bt.model.multigrid.VoxelCursor;
 
 /**
  * Abstract Reaction factor
@@ -16,8 +18,6 @@ import nl.tudelft.bt.model.multigrid.SoluteSpecies;
 public abstract class ProcessFactor implements Serializable {
 	abstract public float getValue();
 
-	protected float preComputedValue;
-
 	abstract public float getDerivative(SoluteSpecies c);
 
 	abstract public float getMaximumValue();
@@ -31,6 +31,62 @@ public abstract class ProcessFactor implements Serializable {
 		return getValue();
 	}
 
+	/**
+	 * Get the value of the factor at the voxel pointed by cursor v. The
+	 * default implementation moves the static location of MultigridVariable
+	 * to v and calls getValue(), so it is only valid when rates are computed
+	 * in a single thread. Factors that override this method should also
+	 * override isThreadSafe().
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return the value of the factor at v
+	 */
+	public float getValue(VoxelCursor v) {
+		MultigridVariable.setCurrentVoxel(v);
+		return getValue();
+	}
+
+	/**
+	 * Get the derivative of the factor in respect to c at the voxel pointed by
+	 * cursor v. The default implementation moves the static location of
+	 * MultigridVariable to v and calls getDerivative(c).
+	 * 
+	 * @param c
+	 *            solute species to derivate factor to
+	 * @param v
+	 *            voxel cursor
+	 * @return the derivative of the factor at v
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
+		MultigridVariable.setCurrentVoxel(v);
+		return getDerivative(c);
+	}
+
+	/**
+	 * @return true if getValue(VoxelCursor) and getDerivative(SoluteSpecies,
+	 *         VoxelCursor) are implemented without using the static location
+	 *         of MultigridVariable, so that they may be called from several
+	 *         threads
+	 */
+	public boolean isThreadSafe() {
+		return false;
+	}
+
+	/**
+	 * Add this factor to the reaction being compiled by a reaction kernel. By
+	 * default the kernel evaluates the factor through getValue(VoxelCursor)
+	 * and getDerivative(SoluteSpecies, VoxelCursor). Factors whose
+	 * expressions are known to the kernel override this method to pass their
+	 * type and parameters instead.
+	 * 
+	 * @param k
+	 *            the kernel being compiled
+	 */
+	void compile(ReactionKernel k) {
+		k.addFactor(this);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -61,6 +61,7 @@ public class Reaction implements Serializable {
 	public void addFactor(ProcessFactor _f) {
 		try {
 			_factors[_addCounter++] = _f;
+			ReactionKernel.reactionsChanged();
 		} catch (ArrayIndexOutOfBoundsException e) {
 			throw new ModelRuntimeException("Trying to add a " + _addCounter
 					+ " factor to " + _name);
@@ -73,7 +74,22 @@ public class Reaction implements Serializable {
 	 * @return rate of reaction [g/um^3/h]
 	 */
 	public float getRate() {
-		return getSpecificRateFactor() * _catalyst.getValue();
+		return getRate(MultigridVariable.getCurrentVoxel());
+	}
+
+	/**
+	 * Returns the rate at the voxel pointed by cursor v
+	 * 
+	 * @param v
+	 *            voxel cursor
+	 * @return rate of reaction [g/um^3/h]
+	 */
+	public float getRate(VoxelCursor v) {
+		float r = _constant;
+		for (int i = 0; i < _addCounter; i++) {
+			r *= _factors[i].getValue(v);
+		}
+		return r * _catalyst.getValue(v);
 	}
 
 	/**
@@ -84,8 +100,22 @@ public class Reaction implements Serializable {
 	 *            mass of catalyst species
 	 */
 	public void computeMassGrowthRateAndAddToGlobal(BiomassSpecies.Composition c) {
+		setMassGrowthRate(c, getSpecificRateFactor(c));
+	}
+
+	/**
+	 * Store the mass-based growth rate for a particle with composition c in
+	 * atribute _presentReactionRate and update the value of
+	 * _globalReactionRate
+	 * 
+	 * @param c
+	 *            composition of the particle
+	 * @param rateFactor
+	 *            specific rate of the reaction for the particle [h^-1]
+	 * @return the mass growth rate [g/h]
+	 */
+	float setMassGrowthRate(BiomassSpecies.Composition c, float rateFactor) {
 		float mCatalyst = c.getSpeciesMass((ParticulateSpecies) _catalyst);
-		float rateFactor = getSpecificRateFactor(c);
 		// Check if the values are valid
 		if ((mCatalyst != mCatalyst) | (rateFactor != rateFactor)) {
 			String st = "reaction " + _name + "produced NaN (mCatalyst = "
@@ -98,6 +128,7 @@ public class Reaction implements Serializable {
 		// it must be taken into account the numeric integration
 		// used for Composition.growWithIntegratedPrecision (NINT)
 		_globalReactionRate += _presentReactionRate / BiomassSpecies.NINT;
+		return _presentReactionRate;
 	}
 
 	/**
@@ -190,23 +221,43 @@ public class Reaction implements Serializable {
 	 */
 	public void updateValuesForRateAndRateDerivative(SoluteSpecies c,
 			float[] rDr) {
+		updateValuesForRateAndRateDerivative(c, rDr, MultigridVariable
+				.getCurrentVoxel());
+	}
+
+	/**
+	 * Update the array with values of the rate and rate derivative at the
+	 * voxel pointed by cursor vc. Values of the factors are kept in the
+	 * scratch space of the cursor, so that this may be called concurrently
+	 * for different voxels.
+	 * 
+	 * @param c
+	 *            the solute species for which this is being computed
+	 * @param rDr
+	 *            [rate, rateDerivative]
+	 * @param vc
+	 *            voxel cursor
+	 */
+	public void updateValuesForRateAndRateDerivative(SoluteSpecies c,
+			float[] rDr, VoxelCursor vc) {
+		float[] preComputedValues = vc.getFactorValues(_addCounter);
 		rDr[0] = _constant;
 		rDr[1] = 0;
-		float catalystValue = _catalyst.getValue();
+		float catalystValue = _catalyst.getValue(vc);
 		//compute the rates and store the values of the rates for each
 		//factor for later use
 		for (int i = 0; i < _addCounter; i++) {
-			_factors[i].preComputedValue = _factors[i].getValue();
-			rDr[0] *= _factors[i].preComputedValue;
+			preComputedValues[i] = _factors[i].getValue(vc);
+			rDr[0] *= preComputedValues[i];
 		}
 		rDr[0] *= catalystValue; //rate is finished computing
 		// Compute the derivative implemented by multiplying functions
 		for (int i = 0; i < _addCounter; i++) {
 			float v = 1;
-			v *= _factors[i].getDerivative(c);
+			v *= _factors[i].getDerivative(c, vc);
 			for (int j = 0; j < _addCounter; j++)
 				if (j != i)
-					v *= _factors[j].preComputedValue;
+					v *= preComputedValues[j];
 			rDr[1] += v;
 		}
 		rDr[1] *= _constant * catalystValue;
@@ -215,12 +266,40 @@ public class Reaction implements Serializable {
 			// in case the solute species is the catalyst of the reaciton
 			float r = _constant;
 			for (int i = 0; i < _addCounter; i++)
-				r *= _factors[i].preComputedValue;
+				r *= preComputedValues[i];
 			rDr[1] += r;
 			return;
 		}
 	}
 
+	/**
+	 * @return true if the rate and rate derivative of this reaction may be
+	 *         computed concurrently for different voxels
+	 */
+	public boolean isThreadSafe() {
+		for (int i = 0; i < _addCounter; i++)
+			if (!_factors[i].isThreadSafe())
+				return false;
+		return true;
+	}
+
+	/**
+	 * Add this reaction and its factors to a reaction kernel
+	 * 
+	 * @param k
+	 *            the kernel being compiled
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() != Reaction.class) {
+			// subclasses (such as Flux) define their own rates
+			k.addReaction(this);
+			return;
+		}
+		k.addReaction(this, _constant, _catalyst);
+		for (int i = 0; i < _addCounter; i++)
+			_factors[i].compile(k);
+	}
+
 	/**
 	 * @return Returns the _catalyst.
 	 */
@@ -236,6 +315,7 @@ public class Reaction implements Serializable {
 	 */
 	public void setConstant(float constant) {
 		this._constant = constant;
+		ReactionKernel.reactionsChanged();
 	}
 
 	/**
@@ -0,0 +1,911 @@
+/*
+ * Created on Oct 18, 2026
+ */
+package nl.tudelft.bt.model.reaction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import nl.tudelft.bt.model.BiomassSpecies;
+import nl.tudelft.bt.model.multigrid.MultigridVariable;
+import nl.tudelft.bt.model.multigrid.ParticulateSpecies;
+import nl.tudelft.bt.model.multigrid.SoluteSpecies;
+import nl.tudelft.bt.model.multigrid.VoxelCursor;
+
+/**
+ * Flat representation of the reactions of all solute species, used by the
+ * multigrid solver to compute rates and rate derivatives. The tree of
+ * NetReaction, Reaction and ProcessFactor objects is compiled into arrays of
+ * reaction constants, factor types and parameters, so that the rate of a
+ * solute at a voxel is computed in a single pass with a switch over the
+ * factor types. Values of the species at the voxel are read once into the
+ * scratch space of the voxel cursor, so no shared state is modified. Factors
+ * of types not known to the kernel are evaluated through
+ * getValue(VoxelCursor) and getDerivative(SoluteSpecies, VoxelCursor).
+ * <p>
+ * The net reactions of the solutes and particulates form a sparse
+ * stoichiometry matrix, stored by rows (one row per species). This allows
+ * the rate of each reaction to be computed once per voxel and scattered to
+ * all the solutes (computeRatesAndRateDerivatives) or, for particle growth,
+ * once per particle and scattered to all its particulates
+ * (computeGrowthRates).
+ *
+ * @author Joao Xavier (j.xavier@tnw.tudelft.nl)
+ */
+public class ReactionKernel implements Serializable {
+	// types of process factor
+	static final int GENERIC = 0;
+
+	static final int CONSTANT = 1;
+
+	static final int SATURATION = 2;
+
+	static final int INHIBITION = 3;
+
+	static final int SATURATION_WITH_MAINTENANCE = 4;
+
+	static final int MONOD_TWO_SUBSTRATES = 5;
+
+	static final int MONOD_SUM_OF_TWO_SUBSTRATES = 6;
+
+	static final int HILL = 7;
+
+	static final int POWER_LAW = 8;
+
+	static final int STEP = 9;
+
+	static final int ZEROTH_ORDER = 10;
+
+	static final int SATURATION_FROM_FRACTION = 11;
+
+	static final int INHIBITION_FROM_FRACTION = 12;
+
+	static final int INHIBITION_FROM_FRACTION_CAPACITY = 13;
+
+	// incremented each time a reaction or factor is changed
+	private static int _reactionsVersion = 0;
+
+	// value of _reactionsVersion when the kernel was compiled
+	private int _compiledVersion;
+
+	private SoluteSpecies[] _solutes;
+
+	private ParticulateSpecies[] _particulates;
+
+	// species read by the kernel
+	private MultigridVariable[] _variables;
+
+	// index in _variables of each solute
+	private int[] _soluteVariable;
+
+	// reactions
+	private float[] _constant;
+
+	private int[] _catalyst;
+
+	// reactions 0 to _nSoluteReactions - 1 are those involving solutes
+	private int _nSoluteReactions;
+
+	// subclasses of Reaction are evaluated through their own methods
+	private Reaction[] _reaction;
+
+	private boolean[] _ownRate;
+
+	// factors of reaction r are _firstFactor[r] to _firstFactor[r + 1] - 1
+	private int[] _firstFactor;
+
+	// factors
+	private int[] _type;
+
+	private int[] _species1;
+
+	private int[] _species2;
+
+	private float[] _k1;
+
+	private float[] _k2;
+
+	private ProcessFactor[] _factor;
+
+	// true for factors that have a specific value for the composition of a
+	// particle (see ProcessFactor.getValue(BiomassSpecies.Composition))
+	private boolean[] _compositionValue;
+
+	// stoichiometry matrix: the net reaction of solute s is made of terms
+	// _firstTerm[s] to _firstTerm[s + 1] - 1, and that of particulate p of
+	// terms _firstTerm[n + p] to _firstTerm[n + p + 1] - 1, where n is the
+	// number of solutes
+	private int[] _firstTerm;
+
+	private int[] _termReaction;
+
+	private float[] _termCoefficient;
+
+	// largest number of factors in a reaction
+	private int _maxFactors;
+
+	private boolean _threadSafe;
+
+	// lists used during compilation
+	private transient ArrayList<MultigridVariable> _variableList;
+
+	private transient ArrayList<Reaction> _reactionList;
+
+	private transient FloatList _constantList;
+
+	private transient IntList _catalystList;
+
+	private transient ArrayList<Boolean> _ownRateList;
+
+	private transient IntList _firstFactorList;
+
+	private transient ArrayList<ProcessFactor> _factorList;
+
+	private transient IntList _typeList;
+
+	private transient IntList _species1List;
+
+	private transient IntList _species2List;
+
+	private transient FloatList _k1List;
+
+	private transient FloatList _k2List;
+
+	/**
+	 * Compile the reactions of the solute and particulate species and bind
+	 * each solute to the kernel
+	 *
+	 * @param c
+	 *            array of the solute species in the system
+	 * @param p
+	 *            array of the particulate species in the system
+	 */
+	public ReactionKernel(SoluteSpecies[] c, ParticulateSpecies[] p) {
+		_solutes = c;
+		_particulates = p;
+		compile();
+	}
+
+	/**
+	 * Signal that a reaction, factor or net reaction was changed after being
+	 * compiled. The kernels will be compiled again when update() is called.
+	 */
+	public static void reactionsChanged() {
+		_reactionsVersion++;
+	}
+
+	/**
+	 * Compile the kernel again if any reaction or factor was changed since it
+	 * was compiled
+	 */
+	public void update() {
+		if (_compiledVersion != _reactionsVersion)
+			compile();
+	}
+
+	/**
+	 * Build the arrays of the kernel from the net reactions of the solutes
+	 */
+	private void compile() {
+		_variableList = new ArrayList<MultigridVariable>();
+		_reactionList = new ArrayList<Reaction>();
+		_constantList = new FloatList();
+		_catalystList = new IntList();
+		_ownRateList = new ArrayList<Boolean>();
+		_firstFactorList = new IntList();
+		_factorList = new ArrayList<ProcessFactor>();
+		_typeList = new IntList();
+		_species1List = new IntList();
+		_species2List = new IntList();
+		_k1List = new FloatList();
+		_k2List = new FloatList();
+		IntList termReactions = new IntList();
+		FloatList termCoefficients = new FloatList();
+		int nSpecies = _solutes.length + _particulates.length;
+		_firstTerm = new int[nSpecies + 1];
+		_soluteVariable = new int[_solutes.length];
+		for (int s = 0; s < nSpecies; s++) {
+			_firstTerm[s] = termReactions.size();
+			NetReaction p;
+			if (s < _solutes.length) {
+				_soluteVariable[s] = variableIndex(_solutes[s]);
+				p = _solutes[s].getProcesses();
+			} else {
+				p = _particulates[s - _solutes.length].getProcesses();
+				if (s == _solutes.length)
+					_nSoluteReactions = _reactionList.size();
+			}
+			if (p == null)
+				continue;
+			for (int i = 0; i < p.getNumberOfReactions(); i++) {
+				Reaction r = p.getReaction(i);
+				int ri = _reactionList.indexOf(r);
+				if (ri < 0) {
+					ri = _reactionList.size();
+					r.compile(this);
+				}
+				termReactions.add(ri);
+				termCoefficients.add(p.getCoefficient(i));
+			}
+		}
+		if (_particulates.length == 0)
+			_nSoluteReactions = _reactionList.size();
+		_firstTerm[nSpecies] = termReactions.size();
+		_firstFactorList.add(_factorList.size());
+		// convert to arrays
+		_variables = new MultigridVariable[_variableList.size()];
+		_variableList.toArray(_variables);
+		_factor = new ProcessFactor[_factorList.size()];
+		_factorList.toArray(_factor);
+		_reaction = new Reaction[_reactionList.size()];
+		_reactionList.toArray(_reaction);
+		_ownRate = new boolean[_reaction.length];
+		for (int r = 0; r < _ownRate.length; r++)
+			_ownRate[r] = _ownRateList.get(r).booleanValue();
+		_constant = _constantList.toArray();
+		_catalyst = _catalystList.toArray();
+		_firstFactor = _firstFactorList.toArray();
+		_type = _typeList.toArray();
+		_species1 = _species1List.toArray();
+		_species2 = _species2List.toArray();
+		_k1 = _k1List.toArray();
+		_k2 = _k2List.toArray();
+		_compositionValue = new boolean[_factor.length];
+		for (int f = 0; f < _factor.length; f++)
+			_compositionValue[f] = hasCompositionValue(f);
+		_termReaction = termReactions.toArray();
+		_termCoefficient = termCoefficients.toArray();
+		_maxFactors = 0;
+		for (int r = 0; r < _constant.length; r++)
+			_maxFactors = Math.max(_maxFactors, _firstFactor[r + 1]
+					- _firstFactor[r]);
+		_threadSafe = true;
+		for (int r = 0; r < _reaction.length; r++)
+			if (_ownRate[r] && !_reaction[r].isThreadSafe())
+				_threadSafe = false;
+		for (int f = 0; f < _factor.length; f++)
+			if ((_type[f] == GENERIC) && !_factor[f].isThreadSafe())
+				_threadSafe = false;
+		_variableList = null;
+		_reactionList = null;
+		_constantList = null;
+		_catalystList = null;
+		_ownRateList = null;
+		_firstFactorList = null;
+		_factorList = null;
+		_typeList = null;
+		_species1List = null;
+		_species2List = null;
+		_k1List = null;
+		_k2List = null;
+		_compiledVersion = _reactionsVersion;
+		// bind the solutes to the kernel
+		for (int s = 0; s < _solutes.length; s++)
+			_solutes[s].setReactionKernel(this, s);
+	}
+
+	/**
+	 * Add a reaction to the kernel. Called by Reaction.compile, which then
+	 * adds the factors of the reaction.
+	 *
+	 * @param r
+	 *            the reaction
+	 * @param constant
+	 *            rate constant
+	 * @param catalyst
+	 *            species that catalyzes the reaction
+	 */
+	void addReaction(Reaction r, float constant, MultigridVariable catalyst) {
+		_reactionList.add(r);
+		_ownRateList.add(Boolean.FALSE);
+		_constantList.add(constant);
+		_catalystList.add(variableIndex(catalyst));
+		_firstFactorList.add(_factorList.size());
+	}
+
+	/**
+	 * Add a reaction that is evaluated by its getRate(VoxelCursor) and
+	 * updateValuesForRateAndRateDerivative(SoluteSpecies, float[],
+	 * VoxelCursor) methods
+	 * 
+	 * @param r
+	 *            the reaction
+	 */
+	void addReaction(Reaction r) {
+		_reactionList.add(r);
+		_ownRateList.add(Boolean.TRUE);
+		_constantList.add(0);
+		_catalystList.add(-1);
+		_firstFactorList.add(_factorList.size());
+	}
+
+	/**
+	 * Add a factor of a type known to the kernel to the reaction being
+	 * compiled
+	 *
+	 * @param type
+	 *            type of factor
+	 * @param species1
+	 *            first species the factor depends on (may be null)
+	 * @param k1
+	 *            first parameter
+	 * @param species2
+	 *            second species the factor depends on (may be null)
+	 * @param k2
+	 *            second parameter
+	 * @param f
+	 *            the factor
+	 */
+	void addFactor(int type, MultigridVariable species1, float k1,
+			MultigridVariable species2, float k2, ProcessFactor f) {
+		_factorList.add(f);
+		_typeList.add(type);
+		_species1List.add(species1 == null ? -1 : variableIndex(species1));
+		_species2List.add(species2 == null ? -1 : variableIndex(species2));
+		_k1List.add(k1);
+		_k2List.add(k2);
+	}
+
+	/**
+	 * Add a factor that is evaluated by its getValue(VoxelCursor) and
+	 * getDerivative(SoluteSpecies, VoxelCursor) methods
+	 *
+	 * @param f
+	 *            the factor
+	 */
+	void addFactor(ProcessFactor f) {
+		addFactor(GENERIC, null, 0, null, 0, f);
+	}
+
+	/**
+	 * @param f
+	 *            index of a factor
+	 * @return true if the value of factor f for the composition of a particle
+	 *         differs from its value at the voxel
+	 */
+	private boolean hasCompositionValue(int f) {
+		switch (_type[f]) {
+		case GENERIC:
+		case SATURATION_FROM_FRACTION:
+		case INHIBITION_FROM_FRACTION:
+		case INHIBITION_FROM_FRACTION_CAPACITY:
+			return true;
+		case SATURATION:
+		case SATURATION_WITH_MAINTENANCE:
+			return _variables[_species1[f]] instanceof ParticulateSpecies;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @param v
+	 *            a species
+	 * @return the index of v in _variables (added if not yet present)
+	 */
+	private int variableIndex(MultigridVariable v) {
+		for (int i = 0; i < _variableList.size(); i++)
+			if (_variableList.get(i) == v)
+				return i;
+		_variableList.add(v);
+		return _variableList.size() - 1;
+	}
+
+	/**
+	 * A growable array of int values, used during compilation
+	 */
+	private static class IntList {
+		private int[] _values = new int[16];
+
+		private int _size = 0;
+
+		void add(int v) {
+			if (_size == _values.length)
+				_values = Arrays.copyOf(_values, 2 * _size);
+			_values[_size++] = v;
+		}
+
+		int size() {
+			return _size;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(_values, _size);
+		}
+	}
+
+	/**
+	 * A growable array of float values, used during compilation
+	 */
+	private static class FloatList {
+		private float[] _values = new float[16];
+
+		private int _size = 0;
+
+		void add(float v) {
+			if (_size == _values.length)
+				_values = Arrays.copyOf(_values, 2 * _size);
+			_values[_size++] = v;
+		}
+
+		float[] toArray() {
+			return Arrays.copyOf(_values, _size);
+		}
+	}
+
+	/**
+	 * Read the values of all the species used by the kernel at the voxel
+	 * pointed by cursor v into its scratch space
+	 *
+	 * @param v
+	 *            voxel cursor
+	 * @return the values of the species
+	 */
+	private float[] readVariables(VoxelCursor v) {
+		float[] x = v.getVariableValues(_variables.length);
+		for (int i = 0; i < _variables.length; i++)
+			x[i] = _variables[i]._mg[v.g][v.index];
+		return x;
+	}
+
+	/**
+	 * Compute the net rate of solute s at the voxel pointed by cursor v
+	 *
+	 * @param s
+	 *            index of the solute in the kernel
+	 * @param v
+	 *            voxel cursor
+	 * @return net rate [g/um^3/h]
+	 */
+	public float computeRate(int s, VoxelCursor v) {
+		float[] x = readVariables(v);
+		float rate = 0;
+		for (int t = _firstTerm[s]; t < _firstTerm[s + 1]; t++) {
+			int r = _termReaction[t];
+			if (_ownRate[r]) {
+				rate += _termCoefficient[t] * _reaction[r].getRate(v);
+				continue;
+			}
+			float rt = _constant[r];
+			for (int f = _firstFactor[r]; f < _firstFactor[r + 1]; f++)
+				rt *= value(f, x, v);
+			rate += _termCoefficient[t] * (rt * x[_catalyst[r]]);
+		}
+		return rate;
+	}
+
+	/**
+	 * Compute the net rate of solute s at the voxel pointed by cursor v and
+	 * its derivative in respect to the concentration of s
+	 *
+	 * @param s
+	 *            index of the solute in the kernel
+	 * @param rDr
+	 *            [rate, rateDerivative]
+	 * @param v
+	 *            voxel cursor
+	 */
+	public void computeRateAndRateDerivative(int s, float[] rDr, VoxelCursor v) {
+		float[] x = readVariables(v);
+		float[] fv = v.getFactorValues(_maxFactors);
+		int q = _soluteVariable[s];
+		rDr[0] = 0;
+		rDr[1] = 0;
+		for (int t = _firstTerm[s]; t < _firstTerm[s + 1]; t++) {
+			int r = _termReaction[t];
+			if (_ownRate[r]) {
+				float[] reactionRDr = v.reactionRDr;
+				_reaction[r].updateValuesForRateAndRateDerivative(_solutes[s],
+						reactionRDr, v);
+				rDr[0] += _termCoefficient[t] * reactionRDr[0];
+				rDr[1] += _termCoefficient[t] * reactionRDr[1];
+				continue;
+			}
+			int f0 = _firstFactor[r];
+			int f1 = _firstFactor[r + 1];
+			float catalystValue = x[_catalyst[r]];
+			// rate
+			float rateFactor = _constant[r];
+			for (int f = f0; f < f1; f++) {
+				fv[f - f0] = value(f, x, v);
+				rateFactor *= fv[f - f0];
+			}
+			// derivative of the product of factors
+			float dr = 0;
+			for (int f = f0; f < f1; f++) {
+				float d = derivative(f, q, _solutes[s], x, v);
+				if (d == 0)
+					continue;
+				for (int j = f0; j < f1; j++)
+					if (j != f)
+						d *= fv[j - f0];
+				dr += d;
+			}
+			dr *= _constant[r] * catalystValue;
+			// in case the solute is the catalyst of the reaction
+			if (_catalyst[r] == q)
+				dr += rateFactor;
+			rDr[0] += _termCoefficient[t] * (rateFactor * catalystValue);
+			rDr[1] += _termCoefficient[t] * dr;
+		}
+	}
+
+	/**
+	 * Compute the net rates of all solutes at the voxel pointed by cursor v
+	 * and their derivatives in respect to the concentration of each solute.
+	 * The rate of each reaction is computed once and scattered to the solutes
+	 * through the stoichiometry matrix.
+	 *
+	 * @param rDr
+	 *            [rate, rateDerivative] of solute s at entries 2s and 2s + 1
+	 * @param v
+	 *            voxel cursor
+	 */
+	public void computeRatesAndRateDerivatives(float[] rDr, VoxelCursor v) {
+		float[] x = readVariables(v);
+		float[] fv = v.getFactorValues(_firstFactor[_nSoluteReactions]);
+		float[] rateFactor = v.getReactionValues(_nSoluteReactions);
+		// evaluate the factors of each reaction once
+		for (int r = 0; r < _nSoluteReactions; r++) {
+			if (_ownRate[r])
+				continue;
+			rateFactor[r] = _constant[r];
+			for (int f = _firstFactor[r]; f < _firstFactor[r + 1]; f++) {
+				fv[f] = value(f, x, v);
+				rateFactor[r] *= fv[f];
+			}
+		}
+		// scatter to the solutes
+		for (int s = 0; s < _solutes.length; s++) {
+			int q = _soluteVariable[s];
+			float rate = 0;
+			float rateDerivative = 0;
+			for (int t = _firstTerm[s]; t < _firstTerm[s + 1]; t++) {
+				int r = _termReaction[t];
+				if (_ownRate[r]) {
+					float[] reactionRDr = v.reactionRDr;
+					_reaction[r].updateValuesForRateAndRateDerivative(
+							_solutes[s], reactionRDr, v);
+					rate += _termCoefficient[t] * reactionRDr[0];
+					rateDerivative += _termCoefficient[t] * reactionRDr[1];
+					continue;
+				}
+				int f0 = _firstFactor[r];
+				int f1 = _firstFactor[r + 1];
+				float catalystValue = x[_catalyst[r]];
+				// derivative of the product of factors
+				float dr = 0;
+				for (int f = f0; f < f1; f++) {
+					float d = derivative(f, q, _solutes[s], x, v);
+					if (d == 0)
+						continue;
+					for (int j = f0; j < f1; j++)
+						if (j != f)
+							d *= fv[j];
+					dr += d;
+				}
+				dr *= _constant[r] * catalystValue;
+				// in case the solute is the catalyst of the reaction
+				if (_catalyst[r] == q)
+					dr += rateFactor[r];
+				rate += _termCoefficient[t] * (rateFactor[r] * catalystValue);
+				rateDerivative += _termCoefficient[t] * dr;
+			}
+			rDr[2 * s] = rate;
+			rDr[2 * s + 1] = rateDerivative;
+		}
+	}
+
+	/**
+	 * Compute the net rates of all solutes at the voxel pointed by cursor v
+	 * and the derivatives of each rate in respect to the concentration of
+	 * every solute (the Jacobian of the rates), for the coupled relaxation of
+	 * the solutes of a voxel. The rate of each reaction and its derivatives
+	 * are computed once and scattered to the solutes through the
+	 * stoichiometry matrix. The diagonal of the Jacobian has the same values
+	 * as the rate derivatives of computeRatesAndRateDerivatives.
+	 *
+	 * @param rates
+	 *            net rate of solute s at entry s
+	 * @param jacobian
+	 *            derivative of the rate of solute s in respect to the
+	 *            concentration of solute t at entry s * n + t, where n is the
+	 *            number of solutes
+	 * @param v
+	 *            voxel cursor
+	 */
+	public void computeRatesAndJacobian(float[] rates, float[] jacobian,
+			VoxelCursor v) {
+		int n = _solutes.length;
+		float[] x = readVariables(v);
+		float[] fv = v.getFactorValues(_firstFactor[_nSoluteReactions]);
+		// rate of reaction r at entry r * (n + 1), followed by its
+		// derivatives in respect to each solute
+		float[] rv = v.getReactionValues(_nSoluteReactions * (n + 1));
+		for (int r = 0; r < _nSoluteReactions; r++) {
+			int o = r * (n + 1);
+			if (_ownRate[r]) {
+				float[] reactionRDr = v.reactionRDr;
+				for (int t = 0; t < n; t++) {
+					_reaction[r].updateValuesForRateAndRateDerivative(
+							_solutes[t], reactionRDr, v);
+					rv[o] = reactionRDr[0];
+					rv[o + 1 + t] = reactionRDr[1];
+				}
+				continue;
+			}
+			int f0 = _firstFactor[r];
+			int f1 = _firstFactor[r + 1];
+			float rateFactor = _constant[r];
+			for (int f = f0; f < f1; f++) {
+				fv[f] = value(f, x, v);
+				rateFactor *= fv[f];
+			}
+			float catalystValue = x[_catalyst[r]];
+			rv[o] = rateFactor * catalystValue;
+			for (int t = 0; t < n; t++) {
+				int q = _soluteVariable[t];
+				// derivative of the product of factors
+				float dr = 0;
+				for (int f = f0; f < f1; f++) {
+					float d = derivative(f, q, _solutes[t], x, v);
+					if (d == 0)
+						continue;
+					for (int j = f0; j < f1; j++)
+						if (j != f)
+							d *= fv[j];
+					dr += d;
+				}
+				dr *= _constant[r] * catalystValue;
+				// in case the solute is the catalyst of the reaction
+				if (_catalyst[r] == q)
+					dr += rateFactor;
+				rv[o + 1 + t] = dr;
+			}
+		}
+		// scatter to the solutes
+		for (int s = 0; s < n; s++) {
+			float rate = 0;
+			for (int t = 0; t < n; t++)
+				jacobian[s * n + t] = 0;
+			for (int t = _firstTerm[s]; t < _firstTerm[s + 1]; t++) {
+				int o = _termReaction[t] * (n + 1);
+				float coefficient = _termCoefficient[t];
+				rate += coefficient * rv[o];
+				for (int u = 0; u < n; u++)
+					jacobian[s * n + u] += coefficient * rv[o + 1 + u];
+			}
+			rates[s] = rate;
+		}
+	}
+
+	/**
+	 * Compute the mass growth rates of the particulates of a biomass particle
+	 * with composition c, located at the voxel pointed by cursor v. The rate
+	 * of each reaction is computed once, stored in the reaction (see
+	 * Reaction.getPreComputedMassGrowthRate) and scattered to the
+	 * particulates through the stoichiometry matrix. The static location of
+	 * MultigridVariable must also be set to the particle, since it is used by
+	 * the factors that have specific values for a composition.
+	 *
+	 * @param c
+	 *            composition of the particle
+	 * @param p
+	 *            particulates of the composition
+	 * @param growthRates
+	 *            array to write the mass growth rate of each particulate
+	 *            [g/h]
+	 * @param v
+	 *            voxel cursor
+	 * @return false if some particulate in p was not compiled in this kernel,
+	 *         in which case nothing is computed
+	 */
+	public boolean computeGrowthRates(BiomassSpecies.Composition c,
+			ParticulateSpecies[] p, float[] growthRates, VoxelCursor v) {
+		for (int i = 0; i < p.length; i++)
+			if (particulateIndex(p[i]) < 0)
+				return false;
+		float[] x = readVariables(v);
+		float[] massRate = v.getReactionValues(_reaction.length);
+		// NaN marks the reactions not yet computed for this particle
+		for (int r = 0; r < _reaction.length; r++)
+			massRate[r] = Float.NaN;
+		for (int i = 0; i < p.length; i++) {
+			int row = _solutes.length + particulateIndex(p[i]);
+			float g = 0;
+			for (int t = _firstTerm[row]; t < _firstTerm[row + 1]; t++) {
+				int r = _termReaction[t];
+				if (massRate[r] != massRate[r])
+					massRate[r] = computeMassGrowthRate(r, c, x, v);
+				g += _termCoefficient[t] * massRate[r];
+			}
+			growthRates[i] = g;
+		}
+		return true;
+	}
+
+	/**
+	 * @param r
+	 *            index of the reaction
+	 * @param c
+	 *            composition of the particle
+	 * @param x
+	 *            values of the species at the voxel
+	 * @param v
+	 *            voxel cursor
+	 * @return the mass growth rate of reaction r for the particle [g/h]
+	 */
+	private float computeMassGrowthRate(int r, BiomassSpecies.Composition c,
+			float[] x, VoxelCursor v) {
+		if (_ownRate[r]) {
+			_reaction[r].computeMassGrowthRateAndAddToGlobal(c);
+			return _reaction[r].getPreComputedMassGrowthRate();
+		}
+		float rateFactor = _constant[r];
+		for (int f = _firstFactor[r]; f < _firstFactor[r + 1]; f++)
+			rateFactor *= (_compositionValue[f] ? _factor[f].getValue(c)
+					: value(f, x, v));
+		return _reaction[r].setMassGrowthRate(c, rateFactor);
+	}
+
+	/**
+	 * @param p
+	 *            a particulate species
+	 * @return the index of p in _particulates, or -1 if not compiled
+	 */
+	private int particulateIndex(ParticulateSpecies p) {
+		for (int i = 0; i < _particulates.length; i++)
+			if (_particulates[i] == p)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @param f
+	 *            index of the factor
+	 * @param x
+	 *            values of the species at the voxel
+	 * @param v
+	 *            voxel cursor
+	 * @return value of factor f
+	 */
+	private float value(int f, float[] x, VoxelCursor v) {
+		float k = _k1[f];
+		float conc;
+		float conc2;
+		switch (_type[f]) {
+		case CONSTANT:
+			return k;
+		case SATURATION:
+			conc = x[_species1[f]];
+			conc = (conc < 0 ? 0 : conc);
+			return conc / (k + conc);
+		case INHIBITION:
+			conc = x[_species1[f]];
+			conc = (conc < 0 ? 0 : conc);
+			return k / (k + conc);
+		case SATURATION_WITH_MAINTENANCE:
+			conc = x[_species1[f]];
+			if (conc < (_k2[f] / (1 - _k2[f]) * k))
+				return 0;
+			return conc / (k + conc) - _k2[f];
+		case MONOD_TWO_SUBSTRATES:
+			conc = x[_species1[f]];
+			conc2 = x[_species2[f]];
+			return conc / (k + conc) * conc2 / (_k2[f] + conc2);
+		case MONOD_SUM_OF_TWO_SUBSTRATES:
+			conc = x[_species1[f]];
+			conc2 = x[_species2[f]];
+			return (conc + conc2) / (k + conc + conc2);
+		case HILL:
+			conc = x[_species1[f]];
+			conc = (conc < 0 ? 0 : conc);
+			return (float) (Math.pow(conc, _k2[f]) / (Math.pow(k, _k2[f]) + Math
+					.pow(conc, _k2[f])));
+		case POWER_LAW:
+			return (float) Math.pow(x[_species1[f]], k);
+		case STEP:
+			return (x[_species1[f]] > k ? 1 : 0);
+		case ZEROTH_ORDER:
+			return (x[_species1[f]] == 0 ? 0 : 1);
+		case SATURATION_FROM_FRACTION:
+			conc = x[_species1[f]];
+			conc2 = x[_species2[f]];
+			return (conc2 > 0) ? ((conc / conc2) / (k + conc / conc2)) : 0;
+		case INHIBITION_FROM_FRACTION:
+			conc2 = x[_species2[f]];
+			return (conc2 > 0) ? (k / (k + x[_species1[f]] / conc2)) : 0;
+		case INHIBITION_FROM_FRACTION_CAPACITY:
+			conc2 = x[_species2[f]];
+			conc = x[_species1[f]] / conc2;
+			if ((conc2 == 0) | (conc > _k2[f]))
+				return 0;
+			return (_k2[f] - conc) / (k + (_k2[f] - conc));
+		default:
+			return _factor[f].getValue(v);
+		}
+	}
+
+	/**
+	 * @param f
+	 *            index of the factor
+	 * @param q
+	 *            index of solute c in the species read by the kernel
+	 * @param c
+	 *            the solute to derivate factor to
+	 * @param x
+	 *            values of the species at the voxel
+	 * @param v
+	 *            voxel cursor
+	 * @return derivative of factor f in respect to c
+	 */
+	private float derivative(int f, int q, SoluteSpecies c, float[] x,
+			VoxelCursor v) {
+		float k = _k1[f];
+		float conc;
+		float conc2;
+		switch (_type[f]) {
+		case SATURATION:
+			if (_species1[f] != q)
+				return 0;
+			conc = x[q];
+			conc = (conc < 0 ? 0 : conc);
+			return k / ((k + conc) * (k + conc));
+		case INHIBITION:
+			if (_species1[f] != q)
+				return 0;
+			conc = x[q];
+			conc = (conc < 0 ? 0 : conc);
+			return -k / ((k + conc) * (k + conc));
+		case SATURATION_WITH_MAINTENANCE:
+			if (_species1[f] != q)
+				return 0;
+			conc = x[q];
+			if (conc < (_k2[f] / (1 - _k2[f]) * k))
+				return 0;
+			return k / ((k + conc) * (k + conc));
+		case MONOD_TWO_SUBSTRATES:
+			conc = x[_species1[f]];
+			conc2 = x[_species2[f]];
+			if (_species1[f] == q)
+				return k / (k + conc) / (k + conc) * conc2 / (_k2[f] + conc2);
+			if (_species2[f] == q)
+				return conc / (k + conc) * _k2[f] / (_k2[f] + conc2)
+						/ (_k2[f] + conc2);
+			return 0;
+		case MONOD_SUM_OF_TWO_SUBSTRATES:
+			if ((_species1[f] != q) & (_species2[f] != q))
+				return 0;
+			conc = x[_species1[f]];
+			conc2 = x[_species2[f]];
+			return 1 / (conc + conc2 + k) - (conc + conc2)
+					/ ((conc + conc2 + k) * (conc + conc2 + k));
+		case HILL:
+			if (_species1[f] != q)
+				return 0;
+			conc = x[q];
+			conc = (conc < 0 ? 0 : conc);
+			float n = _k2[f];
+			return (float) ((n * Math.pow(k, n) * Math.pow(conc, n - 1)) / (Math
+					.pow(Math.pow(k, n) + Math.pow(conc, n), 2)));
+		case POWER_LAW:
+			if (_species1[f] != q)
+				return 0;
+			return k * (float) Math.pow(x[q], k - 1);
+		case GENERIC:
+			return _factor[f].getDerivative(c, v);
+		default:
+			// factors that do not depend on solute concentrations
+			return 0;
+		}
+	}
+
+	/**
+	 * @return true if the kernel may be used concurrently for different
+	 *         voxels
+	 */
+	public boolean isThreadSafe() {
+		return _threadSafe;
+	}
+}
@@ -31,11 +31,41 @@ public class Saturation extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalValue(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getValue() {
-		float conc = _species.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float conc = _species.getValue(v);
 		conc = (conc < 0 ? 0 : conc);
 		return conc / (_k + conc);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == Saturation.class)
+			k.addFactor(ReactionKernel.SATURATION, _species, _k, null, 0, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float conc = _species.getMaximumValue();
 		conc = (conc < 0 ? 0 : conc);
@@ -48,8 +78,18 @@ public class Saturation extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalDerivative(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _species) {
-			float conc = _species.getValue();
+			float conc = _species.getValue(v);
 			conc = (conc < 0 ? 0 : conc);
 			return _k / ((_k + conc) * (_k + conc));
 		}
@@ -62,6 +102,7 @@ public class Saturation extends ProcessFactor {
 	 */
 	public void setK(float k) {
 		this._k = k;
+		ReactionKernel.reactionsChanged();
 	}
 
 	/*
@@ -28,10 +28,40 @@ public class SaturationFromFraction extends ProcessFactor {
 		_k = k;
 	}
 	public float getValue() {
-		float v1 = _species1.getValue();
-		float v2 = _species2.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float v1 = _species1.getValue(v);
+		float v2 = _species2.getValue(v);
 		return (v2 > 0) ? ((v1 / v2) / (_k + v1 / v2)) : 0;
 	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == SaturationFromFraction.class)
+			k.addFactor(ReactionKernel.SATURATION_FROM_FRACTION, _species1, _k,
+					_species2, 0, this);
+		else
+			super.compile(k);
+	}
 	public float getMaximumValue() {
 		float v1 = _species1.getMaximumValue();
 		float v2 = _species2.getMaximumValue();
@@ -43,6 +73,15 @@ public class SaturationFromFraction extends ProcessFactor {
 		// involved
 		return 0f;
 	}
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
+		return 0f;
+	}
 	/*
 	 * (non-Javadoc)
 	 * 
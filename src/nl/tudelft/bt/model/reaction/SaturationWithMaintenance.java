@@ -41,12 +41,43 @@ public class SaturationWithMaintenance extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalValue(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getValue() {
-		float conc = _species.getValue();
+		return getValue(MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getValue(nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getValue(VoxelCursor v) {
+		float conc = _species.getValue(v);
 		if (conc < (_f / (1 - _f) * _k))
 			return 0;
 		return conc / (_k + conc) - _f;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#isThreadSafe()
+	 */
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#compile(nl.tudelft.bt.model.reaction.ReactionKernel)
+	 */
+	void compile(ReactionKernel k) {
+		if (getClass() == SaturationWithMaintenance.class)
+			k.addFactor(ReactionKernel.SATURATION_WITH_MAINTENANCE, _species, _k,
+					null, _f, this);
+		else
+			super.compile(k);
+	}
+
 	public float getMaximumValue() {
 		float conc = _species.getMaximumValue();
 		if (conc < (_f / (1 - _f) * _k))
@@ -60,8 +91,18 @@ public class SaturationWithMaintenance extends ProcessFactor {
 	 * @see org.photobiofilms.phlip.reaction.ReactionFactor#getLocalDerivative(org.photobiofilms.phlip.ContinuousCoordinate)
 	 */
 	public float getDerivative(SoluteSpecies c) {
+		return getDerivative(c, MultigridVariable.getCurrentVoxel());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see nl.tudelft.bt.model.reaction.ProcessFactor#getDerivative(nl.tudelft.bt.model.multigrid.SoluteSpecies,
+	 *      nl.tudelft.bt.model.multigrid.VoxelCursor)
+	 */
+	public float getDerivative(SoluteSpecies c, VoxelCursor v) {
 		if (c == _species) {
-			float conc = _species.getValue();
+			float conc = _species.getValue(v);
 			if (conc < (_f / (1 - _f) * _k))
 				return 0;
 			return _k / ((_k + conc) * (_k + conc));
@@ -75,6 +116,7 @@ public class SaturationWithMaintenance extends ProcessFactor {
 	 */
 	public void setK(float k) {
 		this._k = k;
+		ReactionKernel.reactionsChanged();
 	}
 
 	/*